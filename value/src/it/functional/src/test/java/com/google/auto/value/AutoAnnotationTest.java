@@ -27,11 +27,13 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.testing.EqualsTester;
+import com.google.common.testing.GcFinalization;
 import com.google.common.testing.SerializableTester;
 import java.io.ObjectStreamClass;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -698,4 +700,93 @@ public class AutoAnnotationTest {
         AnnotatedWithEverythingWithDefaults.class.getAnnotation(EverythingWithDefaults.class);
     new EqualsTester().addEqualityGroup(generated, fromReflect).testEquals();
   }
+
+  @AutoAnnotation(intern = true)
+  static StringValues internedStringValues(String... value) {
+    return AutoAnnotation_AutoAnnotationTest_internedStringValues.intern(value);
+  }
+
+  @AutoAnnotation(intern = true)
+  static StringValues internedStringValuesFromList(List<String> value) {
+    return AutoAnnotation_AutoAnnotationTest_internedStringValuesFromList.intern(value);
+  }
+
+  @AutoAnnotation(intern = true)
+  static EverythingWithDefaults internedEverythingWithDefaults() {
+    return AutoAnnotation_AutoAnnotationTest_internedEverythingWithDefaults.intern();
+  }
+
+  @Test
+  public void testIntern() {
+    StringValues interned = internedStringValues("oops");
+    assertThat(internedStringValues("oops")).isSameInstanceAs(interned);
+    assertThat(internedStringValues("other")).isNotSameInstanceAs(interned);
+    new EqualsTester()
+        .addEqualityGroup(
+            interned,
+            newStringValues(new String[] {"oops"}),
+            AnnotatedClass.class.getAnnotation(StringValues.class))
+        .addEqualityGroup(internedStringValues("other"))
+        .testEquals();
+  }
+
+  @Test
+  public void testInternArraysAreCloned() {
+    String[] array = {"Jekyll"};
+    StringValues interned = internedStringValues(array);
+    array[0] = "Hyde";
+    assertThat(internedStringValues("Jekyll")).isSameInstanceAs(interned);
+    interned.value()[0] = "Hyde";
+    assertThat(internedStringValues("Jekyll").value()).asList().containsExactly("Jekyll");
+  }
+
+  @Test
+  public void testInternFromCollection() {
+    StringValues interned = internedStringValuesFromList(ImmutableList.of("a", "b"));
+    assertThat(internedStringValuesFromList(Arrays.asList("a", "b"))).isSameInstanceAs(interned);
+    assertThat(internedStringValuesFromList(ImmutableList.of("b", "a")))
+        .isNotSameInstanceAs(interned);
+    assertThat(interned).isEqualTo(internedStringValues("a", "b"));
+  }
+
+  @Test
+  public void testInternMany() {
+    List<StringValues> interned = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      interned.add(internedStringValues(Integer.toString(i)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertThat(internedStringValues(Integer.toString(i))).isSameInstanceAs(interned.get(i));
+    }
+  }
+
+  @Test
+  public void testInternedInstancesCanBeCollected() {
+    WeakReference<StringValues> ref = new WeakReference<>(internedStringValues("ephemeral"));
+    GcFinalization.awaitClear(ref);
+    StringValues interned = internedStringValues("ephemeral");
+    assertThat(internedStringValues("ephemeral")).isSameInstanceAs(interned);
+    assertThat(interned.value()).asList().containsExactly("ephemeral");
+  }
+
+  @Test
+  public void testInternWithoutParameters() {
+    EverythingWithDefaults interned = internedEverythingWithDefaults();
+    assertThat(internedEverythingWithDefaults()).isSameInstanceAs(interned);
+    new EqualsTester()
+        .addEqualityGroup(
+            interned,
+            newEverythingWithDefaults(),
+            AnnotatedWithEverythingWithDefaults.class.getAnnotation(EverythingWithDefaults.class))
+        .testEquals();
+  }
+
+  @Test
+  public void testInternSerialization() {
+    StringValues interned = internedStringValues("oops");
+    assertThat(SerializableTester.reserialize(interned)).isSameInstanceAs(interned);
+    EverythingWithDefaults internedWithoutParameters = internedEverythingWithDefaults();
+    assertThat(SerializableTester.reserialize(internedWithoutParameters))
+        .isSameInstanceAs(internedWithoutParameters);
+  }
 }
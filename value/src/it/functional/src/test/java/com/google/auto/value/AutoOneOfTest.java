@@ -684,4 +684,169 @@ public class AutoOneOfTest {
         OneOfFunkyString.ofFunkyString(new OneOfFunkyString.String());
     assertThat(oneOfFunkyString.funkyString()).isNotNull();
   }
+
+  @AutoOneOf(InterfaceOneOf.Kind.class)
+  public interface InterfaceOneOf extends Serializable {
+    enum Kind {
+      STRING,
+      INTS,
+      EMPTY,
+    }
+
+    Kind getKind();
+
+    String string();
+
+    @SuppressWarnings("mutable")
+    int[] ints();
+
+    void empty();
+
+    static InterfaceOneOf ofString(String s) {
+      return AutoOneOf_AutoOneOfTest_InterfaceOneOf.string(s);
+    }
+
+    static InterfaceOneOf ofInts(int... ints) {
+      return AutoOneOf_AutoOneOfTest_InterfaceOneOf.ints(ints);
+    }
+
+    static InterfaceOneOf ofEmpty() {
+      return AutoOneOf_AutoOneOfTest_InterfaceOneOf.empty();
+    }
+  }
+
+  @Test
+  public void testInterface() throws Exception {
+    InterfaceOneOf string = InterfaceOneOf.ofString("foo");
+    InterfaceOneOf ints = InterfaceOneOf.ofInts(1, 2);
+    InterfaceOneOf empty = InterfaceOneOf.ofEmpty();
+    assertThat(string.getKind()).isEqualTo(InterfaceOneOf.Kind.STRING);
+    assertThat(string.string()).isEqualTo("foo");
+    assertThat(string.toString()).isEqualTo("InterfaceOneOf{string=foo}");
+    assertThat(ints.toString()).isEqualTo("InterfaceOneOf{ints=[1, 2]}");
+    assertThat(empty.toString()).isEqualTo("InterfaceOneOf{empty}");
+    assertThat(InterfaceOneOf.ofEmpty()).isSameInstanceAs(empty);
+    new EqualsTester()
+        .addEqualityGroup(string, InterfaceOneOf.ofString("foo"))
+        .addEqualityGroup(ints, InterfaceOneOf.ofInts(1, 2))
+        .addEqualityGroup(empty)
+        .testEquals();
+    try {
+      string.ints();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      assertThat(e).hasMessageThat().containsMatch("(?i:string)");
+    }
+    try {
+      InterfaceOneOf.ofString(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(empty);
+    oos.writeObject(string);
+    oos.close();
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    assertThat(ois.readObject()).isSameInstanceAs(empty);
+    assertThat(ois.readObject()).isEqualTo(string);
+  }
+
+  @AutoOneOf(Measure.Kind.class)
+  public abstract static class Measure {
+    public enum Kind {
+      COUNT,
+      WEIGHT,
+      UNKNOWN,
+    }
+
+    public abstract Kind getKind();
+
+    public abstract long count();
+
+    public abstract double weight();
+
+    public abstract void unknown();
+
+    public interface Cases<R> {
+      R count(long count);
+
+      R weight(double weight);
+
+      R unknown();
+    }
+
+    public interface LongCases {
+      long count(long count);
+
+      long weight(double weight);
+
+      long unknown();
+    }
+
+    public abstract <R> R match(Cases<? extends R> cases);
+
+    public abstract long matchLong(LongCases cases);
+
+    public static Measure ofCount(long count) {
+      return AutoOneOf_AutoOneOfTest_Measure.count(count);
+    }
+
+    public static Measure ofWeight(double weight) {
+      return AutoOneOf_AutoOneOfTest_Measure.weight(weight);
+    }
+
+    public static Measure ofUnknown() {
+      return AutoOneOf_AutoOneOfTest_Measure.unknown();
+    }
+  }
+
+  @Test
+  public void testMatch() {
+    Measure.Cases<String> describe =
+        new Measure.Cases<String>() {
+          @Override
+          public String count(long count) {
+            return count + " items";
+          }
+
+          @Override
+          public String weight(double weight) {
+            return weight + " kg";
+          }
+
+          @Override
+          public String unknown() {
+            return "unknown";
+          }
+        };
+    assertThat(Measure.ofCount(3).match(describe)).isEqualTo("3 items");
+    assertThat(Measure.ofWeight(1.5).match(describe)).isEqualTo("1.5 kg");
+    assertThat(Measure.ofUnknown().match(describe)).isEqualTo("unknown");
+
+    Measure.LongCases rounded =
+        new Measure.LongCases() {
+          @Override
+          public long count(long count) {
+            return count;
+          }
+
+          @Override
+          public long weight(double weight) {
+            return Math.round(weight);
+          }
+
+          @Override
+          public long unknown() {
+            return 0;
+          }
+        };
+    long total = 0;
+    for (Measure measure :
+        new Measure[] {Measure.ofCount(3), Measure.ofWeight(1.6), Measure.ofUnknown()}) {
+      total += measure.matchLong(rounded);
+    }
+    assertThat(total).isEqualTo(5);
+  }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Like {@link AutoValueTest}, but compiled with {@code
+ * -Acom.google.auto.value.CopyOnWriteToBuilder}. That option changes every {@code toBuilder()} in
+ * the compilation, so the build compiles this class separately.
+ */
+@RunWith(JUnit4.class)
+public class AutoValueCopyOnWriteTest {
+  @AutoValue
+  public abstract static class Item {
+    public abstract String name();
+
+    public abstract ImmutableList<String> tags();
+
+    public abstract int count();
+
+    public static Builder builder() {
+      return new AutoValue_AutoValueCopyOnWriteTest_Item.Builder();
+    }
+
+    public abstract Builder toBuilder();
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+      public abstract Builder name(String x);
+
+      public abstract String name();
+
+      public abstract ImmutableList.Builder<String> tagsBuilder();
+
+      public abstract Builder count(int x);
+
+      public abstract Item build();
+    }
+  }
+
+  private static Item item() {
+    Item.Builder builder = Item.builder().name("widget").count(23);
+    builder.tagsBuilder().add("red", "blue");
+    return builder.build();
+  }
+
+  @Test
+  public void unchangedBuilderReturnsSource() {
+    Item item = item();
+    assertThat(item.toBuilder().build()).isSameInstanceAs(item);
+  }
+
+  @Test
+  public void getterDoesNotChangeProperty() {
+    Item item = item();
+    Item.Builder builder = item.toBuilder();
+    assertThat(builder.name()).isEqualTo("widget");
+    assertThat(builder.build()).isSameInstanceAs(item);
+  }
+
+  @Test
+  public void untouchedPropertiesComeFromSource() {
+    Item item = item();
+    Item renamed = item.toBuilder().name("gadget").build();
+    assertThat(renamed).isNotSameInstanceAs(item);
+    assertThat(renamed.name()).isEqualTo("gadget");
+    assertThat(renamed.count()).isEqualTo(23);
+    // If the builder had created a tags builder, build() would have made a new list.
+    assertThat(renamed.tags()).isSameInstanceAs(item.tags());
+  }
+
+  @Test
+  public void propertyBuilderStartsFromSource() {
+    Item item = item();
+    Item.Builder builder = item.toBuilder();
+    builder.tagsBuilder().add("green");
+    Item recoloured = builder.build();
+    assertThat(recoloured.tags()).containsExactly("red", "blue", "green").inOrder();
+    assertThat(recoloured.name()).isEqualTo("widget");
+    assertThat(recoloured.count()).isEqualTo(23);
+    assertThat(item.tags()).containsExactly("red", "blue").inOrder();
+  }
+
+  @Test
+  public void settingSameValueBuildsEqualInstance() {
+    Item item = item();
+    Item same = item.toBuilder().count(23).build();
+    assertThat(same).isNotSameInstanceAs(item);
+    assertThat(same).isEqualTo(item);
+  }
+
+  /** A class with more than 32 properties, so the builder needs two bitmask fields. */
+  @AutoValue
+  public abstract static class Wide {
+    public abstract int p0();
+
+    public abstract int p1();
+
+    public abstract int p2();
+
+    public abstract int p3();
+
+    public abstract int p4();
+
+    public abstract int p5();
+
+    public abstract int p6();
+
+    public abstract int p7();
+
+    public abstract int p8();
+
+    public abstract int p9();
+
+    public abstract int p10();
+
+    public abstract int p11();
+
+    public abstract int p12();
+
+    public abstract int p13();
+
+    public abstract int p14();
+
+    public abstract int p15();
+
+    public abstract int p16();
+
+    public abstract int p17();
+
+    public abstract int p18();
+
+    public abstract int p19();
+
+    public abstract int p20();
+
+    public abstract int p21();
+
+    public abstract int p22();
+
+    public abstract int p23();
+
+    public abstract int p24();
+
+    public abstract int p25();
+
+    public abstract int p26();
+
+    public abstract int p27();
+
+    public abstract int p28();
+
+    public abstract int p29();
+
+    public abstract int p30();
+
+    public abstract int p31();
+
+    public abstract int p32();
+
+    public abstract int p33();
+
+    public abstract int p34();
+
+    public abstract int p35();
+
+    public abstract int p36();
+
+    public abstract int p37();
+
+    public abstract int p38();
+
+    public abstract int p39();
+
+    public static Builder builder() {
+      return new AutoValue_AutoValueCopyOnWriteTest_Wide.Builder();
+    }
+
+    public abstract Builder toBuilder();
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+      public abstract Builder p0(int x);
+
+      public abstract Builder p1(int x);
+
+      public abstract Builder p2(int x);
+
+      public abstract Builder p3(int x);
+
+      public abstract Builder p4(int x);
+
+      public abstract Builder p5(int x);
+
+      public abstract Builder p6(int x);
+
+      public abstract Builder p7(int x);
+
+      public abstract Builder p8(int x);
+
+      public abstract Builder p9(int x);
+
+      public abstract Builder p10(int x);
+
+      public abstract Builder p11(int x);
+
+      public abstract Builder p12(int x);
+
+      public abstract Builder p13(int x);
+
+      public abstract Builder p14(int x);
+
+      public abstract Builder p15(int x);
+
+      public abstract Builder p16(int x);
+
+      public abstract Builder p17(int x);
+
+      public abstract Builder p18(int x);
+
+      public abstract Builder p19(int x);
+
+      public abstract Builder p20(int x);
+
+      public abstract Builder p21(int x);
+
+      public abstract Builder p22(int x);
+
+      public abstract Builder p23(int x);
+
+      public abstract Builder p24(int x);
+
+      public abstract Builder p25(int x);
+
+      public abstract Builder p26(int x);
+
+      public abstract Builder p27(int x);
+
+      public abstract Builder p28(int x);
+
+      public abstract Builder p29(int x);
+
+      public abstract Builder p30(int x);
+
+      public abstract Builder p31(int x);
+
+      public abstract Builder p32(int x);
+
+      public abstract Builder p33(int x);
+
+      public abstract Builder p34(int x);
+
+      public abstract Builder p35(int x);
+
+      public abstract Builder p36(int x);
+
+      public abstract Builder p37(int x);
+
+      public abstract Builder p38(int x);
+
+      public abstract Builder p39(int x);
+
+      public abstract Wide build();
+    }
+  }
+
+  private static Wide wide() {
+    Wide.Builder builder = Wide.builder();
+    builder.p0(0);
+    builder.p1(1);
+    builder.p2(2);
+    builder.p3(3);
+    builder.p4(4);
+    builder.p5(5);
+    builder.p6(6);
+    builder.p7(7);
+    builder.p8(8);
+    builder.p9(9);
+    builder.p10(10);
+    builder.p11(11);
+    builder.p12(12);
+    builder.p13(13);
+    builder.p14(14);
+    builder.p15(15);
+    builder.p16(16);
+    builder.p17(17);
+    builder.p18(18);
+    builder.p19(19);
+    builder.p20(20);
+    builder.p21(21);
+    builder.p22(22);
+    builder.p23(23);
+    builder.p24(24);
+    builder.p25(25);
+    builder.p26(26);
+    builder.p27(27);
+    builder.p28(28);
+    builder.p29(29);
+    builder.p30(30);
+    builder.p31(31);
+    builder.p32(32);
+    builder.p33(33);
+    builder.p34(34);
+    builder.p35(35);
+    builder.p36(36);
+    builder.p37(37);
+    builder.p38(38);
+    builder.p39(39);
+    return builder.build();
+  }
+
+  @Test
+  public void moreThan32Properties() {
+    Wide wide = wide();
+    assertThat(wide.toBuilder().build()).isSameInstanceAs(wide);
+
+    Wide high = wide.toBuilder().p35(-35).build();
+    assertThat(high.p35()).isEqualTo(-35);
+    assertThat(high.p34()).isEqualTo(34);
+    assertThat(high.p3()).isEqualTo(3);
+    assertThat(high.toBuilder().p35(35).build()).isEqualTo(wide);
+
+    Wide both = wide.toBuilder().p3(-3).p35(-35).build();
+    assertThat(both.p3()).isEqualTo(-3);
+    assertThat(both.p35()).isEqualTo(-35);
+    assertThat(both.p31()).isEqualTo(31);
+    assertThat(both.p32()).isEqualTo(32);
+    assertThat(both.p39()).isEqualTo(39);
+  }
+}
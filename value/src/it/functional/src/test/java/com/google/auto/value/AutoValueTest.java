@@ -139,6 +139,277 @@ public class AutoValueTest {
     assertEquals(instance, Empty.create());
   }
 
+  static final class HashCodeCounter {
+    private final int value;
+    int hashCodeCount;
+
+    HashCodeCounter(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof HashCodeCounter && ((HashCodeCounter) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      hashCodeCount++;
+      return value;
+    }
+  }
+
+  @AutoValue
+  @AutoValue.CacheHashCode
+  abstract static class CachedHashCode {
+    abstract String name();
+
+    abstract HashCodeCounter counter();
+
+    static CachedHashCode create(String name, HashCodeCounter counter) {
+      return new AutoValue_AutoValueTest_CachedHashCode(name, counter);
+    }
+  }
+
+  @Test
+  public void testCacheHashCode() {
+    HashCodeCounter counter = new HashCodeCounter(23);
+    CachedHashCode instance = CachedHashCode.create("example", counter);
+    int hashCode = instance.hashCode();
+    assertThat(instance.hashCode()).isEqualTo(hashCode);
+    assertThat(instance.hashCode()).isEqualTo(hashCode);
+    assertThat(counter.hashCodeCount).isEqualTo(1);
+
+    CachedHashCode same = CachedHashCode.create("example", new HashCodeCounter(23));
+    CachedHashCode different = CachedHashCode.create("example", new HashCodeCounter(17));
+    assertThat(same.hashCode()).isEqualTo(hashCode);
+    different.hashCode();
+    new EqualsTester()
+        .addEqualityGroup(instance, same, CachedHashCode.create("example", counter))
+        .addEqualityGroup(different)
+        .testEquals();
+  }
+
+  @AutoValue
+  @AutoValue.Intern
+  abstract static class InternedKey implements Serializable {
+    abstract String tenant();
+
+    abstract int tier();
+
+    static InternedKey of(String tenant, int tier) {
+      return builder().tenant(tenant).tier(tier).build();
+    }
+
+    static Builder builder() {
+      return new AutoValue_AutoValueTest_InternedKey.Builder();
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder {
+      abstract Builder tenant(String x);
+
+      abstract Builder tier(int x);
+
+      abstract InternedKey build();
+    }
+  }
+
+  @Test
+  public void testIntern() {
+    InternedKey key = InternedKey.of("tenant", 1);
+    assertSame(key, InternedKey.of("tenant", 1));
+    assertSame(key, InternedKey.builder().tenant("tenant").tier(1).build());
+    assertSame(key, SerializableTester.reserialize(key));
+    new EqualsTester()
+        .addEqualityGroup(key, InternedKey.of("tenant", 1))
+        .addEqualityGroup(InternedKey.of("tenant", 2))
+        .addEqualityGroup(InternedKey.of("other", 1))
+        .testEquals();
+  }
+
+  @AutoValue
+  @AutoValue.Intern
+  abstract static class InternedPair implements Serializable {
+    abstract String first();
+
+    abstract String second();
+
+    static InternedPair of(String first, String second) {
+      return AutoValue_AutoValueTest_InternedPair.intern(
+          new AutoValue_AutoValueTest_InternedPair(first, second));
+    }
+  }
+
+  @Test
+  public void testInternWithoutBuilder() {
+    InternedPair pair = InternedPair.of("a", "b");
+    assertSame(pair, InternedPair.of("a", "b"));
+    AutoValue_AutoValueTest_InternedPair notInterned =
+        new AutoValue_AutoValueTest_InternedPair("a", "b");
+    assertNotSame(pair, notInterned);
+    assertSame(pair, AutoValue_AutoValueTest_InternedPair.intern(notInterned));
+    assertSame(pair, SerializableTester.reserialize(pair));
+    assertSame(pair, SerializableTester.reserialize(notInterned));
+    new EqualsTester()
+        .addEqualityGroup(pair, notInterned)
+        .addEqualityGroup(InternedPair.of("a", "c"))
+        .addEqualityGroup(InternedPair.of("c", "b"))
+        .testEquals();
+  }
+
+  @AutoValue
+  abstract static class Coordinates {
+    abstract double latitude();
+
+    abstract double longitude();
+
+    @Nullable
+    abstract String label();
+
+    abstract Coordinates withLatitude(double latitude);
+
+    abstract Coordinates withLongitude(double longitude);
+
+    abstract Coordinates withLabel(@Nullable String label);
+
+    static Coordinates of(double latitude, double longitude, @Nullable String label) {
+      return new AutoValue_AutoValueTest_Coordinates(latitude, longitude, label);
+    }
+  }
+
+  @Test
+  public void testWithers() {
+    Coordinates home = Coordinates.of(46.2, 6.1, "home");
+    assertSame(home, home.withLatitude(46.2));
+    assertSame(home, home.withLabel(new String("home")));
+    assertEquals(Coordinates.of(47.4, 6.1, "home"), home.withLatitude(47.4));
+    assertEquals(Coordinates.of(46.2, 8.5, "home"), home.withLongitude(8.5));
+    Coordinates unlabeled = home.withLabel(null);
+    assertEquals(Coordinates.of(46.2, 6.1, null), unlabeled);
+    assertSame(unlabeled, unlabeled.withLabel(null));
+    assertEquals(home, unlabeled.withLabel("home"));
+  }
+
+  @AutoValue
+  abstract static class MixedProperties {
+    abstract ImmutableList<String> list();
+
+    abstract RetentionPolicy policy();
+
+    abstract float aFloat();
+
+    @Nullable
+    abstract String nullableString();
+
+    static MixedProperties create(
+        ImmutableList<String> list,
+        RetentionPolicy policy,
+        float aFloat,
+        @Nullable String nullableString) {
+      return new AutoValue_AutoValueTest_MixedProperties(list, policy, aFloat, nullableString);
+    }
+  }
+
+  @Test
+  public void testEqualsWithReorderedComparisons() {
+    ImmutableList<String> list = ImmutableList.of("a", "b");
+    new EqualsTester()
+        .addEqualityGroup(
+            MixedProperties.create(list, RetentionPolicy.CLASS, 1.5f, null),
+            MixedProperties.create(ImmutableList.of("a", "b"), RetentionPolicy.CLASS, 1.5f, null))
+        .addEqualityGroup(MixedProperties.create(list, RetentionPolicy.CLASS, 1.5f, "x"))
+        .addEqualityGroup(MixedProperties.create(list, RetentionPolicy.RUNTIME, 1.5f, null))
+        .addEqualityGroup(
+            MixedProperties.create(ImmutableList.of("a"), RetentionPolicy.CLASS, 1.5f, null))
+        .addEqualityGroup(
+            MixedProperties.create(list, RetentionPolicy.CLASS, Float.NaN, null),
+            MixedProperties.create(list, RetentionPolicy.CLASS, Float.NaN, null))
+        .addEqualityGroup(MixedProperties.create(list, RetentionPolicy.CLASS, 0.0f, null))
+        .addEqualityGroup(MixedProperties.create(list, RetentionPolicy.CLASS, -0.0f, null))
+        .testEquals();
+  }
+
+  @AutoValue
+  interface InterfaceValue {
+    String name();
+
+    @SuppressWarnings("mutable")
+    int[] ints();
+
+    @Nullable
+    Integer count();
+
+    Builder toBuilder();
+
+    static Builder builder() {
+      return new AutoValue_AutoValueTest_InterfaceValue.Builder();
+    }
+
+    @AutoValue.Builder
+    interface Builder {
+      Builder name(String x);
+
+      Builder ints(int... x);
+
+      Builder count(@Nullable Integer x);
+
+      InterfaceValue build();
+    }
+  }
+
+  @Test
+  public void testInterface() {
+    InterfaceValue instance = InterfaceValue.builder().name("foo").ints(1, 2).build();
+    String expectedString =
+        omitIdentifiers
+            ? "{foo, [1, 2], null}"
+            : "InterfaceValue{name=foo, ints=[1, 2], count=null}";
+    assertThat(instance.toString()).isEqualTo(expectedString);
+    new EqualsTester()
+        .addEqualityGroup(
+            instance, instance.toBuilder().build(), instance.toBuilder().ints(1, 2).build())
+        .addEqualityGroup(instance.toBuilder().ints(1).build())
+        .addEqualityGroup(instance.toBuilder().count(3).build())
+        .testEquals();
+    try {
+      InterfaceValue.builder().ints().build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @AutoValue
+  interface InterfacePoint {
+    int x();
+
+    String label();
+
+    static InterfacePoint of(int x, String label) {
+      return new AutoValue_AutoValueTest_InterfacePoint(x, label);
+    }
+  }
+
+  @AutoValue
+  abstract static class ClassPoint {
+    abstract int x();
+
+    abstract String label();
+
+    static ClassPoint of(int x, String label) {
+      return new AutoValue_AutoValueTest_ClassPoint(x, label);
+    }
+  }
+
+  @Test
+  public void testInterfaceHashCodeSameAsClass() {
+    // The interface is implemented as a record if the source version allows it. The hash code
+    // should not depend on that.
+    assertThat(InterfacePoint.of(23, "foo").hashCode())
+        .isEqualTo(ClassPoint.of(23, "foo").hashCode());
+    assertThat(InterfacePoint.of(-1, "").hashCode()).isEqualTo(ClassPoint.of(-1, "").hashCode());
+  }
+
   @AutoValue
   abstract static class SimpleWithGetters {
     abstract int getFoo();
@@ -1524,6 +1795,52 @@ public class AutoValueTest {
     assertEquals(x, y);
   }
 
+  @AutoValue
+  public abstract static class ResettableBuilder {
+    public abstract String name();
+
+    public abstract int count();
+
+    public abstract ImmutableList<String> tags();
+
+    public static Builder builder() {
+      return new AutoValue_AutoValueTest_ResettableBuilder.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+      public abstract Builder name(String x);
+
+      public abstract Builder count(int x);
+
+      public abstract ImmutableList.Builder<String> tagsBuilder();
+
+      public abstract Builder clear();
+
+      public abstract ResettableBuilder build();
+    }
+  }
+
+  @Test
+  public void testResettableBuilder() {
+    ResettableBuilder.Builder builder = ResettableBuilder.builder();
+    builder.tagsBuilder().add("a");
+    ResettableBuilder first = builder.name("first").count(1).build();
+    ResettableBuilder second = builder.clear().name("second").count(2).build();
+    assertThat(first.tags()).containsExactly("a");
+    assertThat(second.tags()).isEmpty();
+    assertEquals("first", first.name());
+    assertEquals("second", second.name());
+    try {
+      builder.clear().name("third").build();
+      fail("Expected exception for missing property");
+    } catch (IllegalStateException e) {
+      if (!omitIdentifiers) {
+        assertThat(e).hasMessageThat().contains("count");
+      }
+    }
+  }
+
   @AutoValue
   public abstract static class TwoPropertiesWithBuilderClass {
     public abstract String string();
@@ -71,7 +71,8 @@ import java.lang.reflect.AnnotatedElement;
  * method. It will throw {@code NullPointerException} if any parameter is null. In order to
  * guarantee that the constructed object is immutable, the constructor will clone each array
  * parameter corresponding to an array-valued annotation member, and the implementation of each such
- * member will also return a clone of the array.
+ * member will also return a clone of the array. Since the constructed object is immutable, its
+ * {@code hashCode()} is computed once, by the constructor.
  *
  * <p>If your annotation has many elements, you may consider using {@code @AutoBuilder} instead of
  * {@code @AutoAnnotation} to make it easier to construct instances. In that case, {@code default}
@@ -105,4 +106,28 @@ import java.lang.reflect.AnnotatedElement;
  */
 @Retention(RetentionPolicy.CLASS)
 @Target(ElementType.METHOD)
-public @interface AutoAnnotation {}
+public @interface AutoAnnotation {
+  /**
+   * If true, the generated class also has a static {@code intern} method with the same parameters
+   * as its constructor. That method returns the same instance whenever it is called with equal
+   * arguments, so that callers who repeatedly ask for the same annotation, for example to look up a
+   * qualified binding, don't allocate a new instance and new arrays each time:
+   *
+   * <pre>{@code
+   * @AutoAnnotation(intern = true)
+   * public static Named named(String value) {
+   *   return AutoAnnotation_Names_named.intern(value);
+   * }
+   * }</pre>
+   *
+   * <p>If the {@code @AutoAnnotation} method has no parameters, there is only one instance, which
+   * is created when the generated class is initialized. Otherwise, {@code intern} looks up an equal
+   * instance before allocating anything, so a repeated call does not create a new instance or copy
+   * any arrays. Interned instances have their hash code computed once. They are weakly referenced,
+   * so an instance that is no longer used elsewhere can be garbage-collected, and a later call
+   * creates a new one.
+   *
+   * <p>Interning with parameters is not supported for {@code @GwtCompatible} annotations.
+   */
+  boolean intern() default false;
+}
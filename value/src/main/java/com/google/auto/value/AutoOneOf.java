@@ -57,6 +57,14 @@ import java.lang.annotation.Target;
  * }
  * }</pre>
  *
+ * <p>The class can also have abstract methods like {@code <R> R match(Cases<R> cases)}, where
+ * {@code Cases} is an interface with one method per property, such as {@code R string(String s)}.
+ * Each generated implementation calls the method for its own property.
+ *
+ * <p>The annotated type can also be an interface. Then, if the source version is at least 17,
+ * the generated code is a sealed interface with a record for each variant, so that clients can use
+ * pattern matching instead of {@code getKind()}.
+ *
  * <p>{@code @AutoOneOf} is explained in more detail in the <a
  * href="https://github.com/google/auto/blob/main/value/userguide/howto.md#oneof">user guide</a>.
  *
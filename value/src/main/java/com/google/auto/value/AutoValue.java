@@ -164,4 +164,69 @@ public @interface AutoValue {
   public @interface CopyAnnotations {
     Class<? extends Annotation>[] exclude() default {};
   }
+
+  /**
+   * Specifies that the {@code hashCode()} method generated by AutoValue should remember its result
+   * in a field of the generated class, so that it is only computed once per instance. This is
+   * useful when instances are used as keys in hash-based collections and have properties, such as
+   * large {@code ImmutableList} or {@code ImmutableMap} values, that are expensive to hash.
+   *
+   * <pre>{@code
+   * @AutoValue
+   * @AutoValue.CacheHashCode
+   * abstract class RouteKey {
+   *   abstract String tenant();
+   *   abstract ImmutableList<String> path();
+   * }
+   * }</pre>
+   *
+   * <p>The cached value is stored in the same way as {@link String#hashCode()}: there is no
+   * {@code volatile} and no lock, so different threads may each compute the hash code once, and a
+   * hash code that happens to be zero is recomputed each time. The generated {@code equals} method
+   * also uses the cached values, when both are known, to reject unequal objects without comparing
+   * their properties.
+   *
+   * <p>This is only correct if every property is deeply immutable, in the sense that its own
+   * {@code hashCode()} never changes. It has no effect if the {@code @AutoValue} class defines its
+   * own {@code hashCode()}.
+   */
+  @Retention(RetentionPolicy.CLASS)
+  @Target(ElementType.TYPE)
+  public @interface CacheHashCode {}
+
+  /**
+   * Specifies that AutoValue should generate support for <i>interning</i> instances of the
+   * annotated class, meaning that equal instances can be replaced by a single canonical instance.
+   * This is useful when a program would otherwise retain many equal copies of the same value.
+   *
+   * <p>The generated {@code AutoValue_Foo} class has a static method {@code intern(AutoValue_Foo)}
+   * that returns the canonical instance equal to its argument, making the argument canonical if
+   * there was none before. Canonical instances are only weakly referenced by the generated code, so
+   * they can be garbage-collected once nothing else refers to them.
+   *
+   * <pre>{@code
+   * @AutoValue
+   * @AutoValue.Intern
+   * abstract class Key {
+   *   abstract String tenant();
+   *   abstract String region();
+   *
+   *   static Key of(String tenant, String region) {
+   *     return AutoValue_Key.intern(new AutoValue_Key(tenant, region));
+   *   }
+   * }
+   * }</pre>
+   *
+   * <p>If the class has an {@link AutoValue.Builder}, then its {@code build()} method always
+   * returns a canonical instance. If the class is {@link java.io.Serializable}, then deserialized
+   * instances are also canonical, unless the class defines its own {@code readResolve()} method.
+   * The generated {@code equals} method knows that two distinct canonical instances can never be
+   * equal, so comparing them does not need to look at their properties.
+   *
+   * <p>Interning is only correct if the class is deeply immutable, and it cannot be used in a class
+   * that is {@code @GwtCompatible}.
+   */
+  @Retention(RetentionPolicy.CLASS)
+  @Target(ElementType.TYPE)
+  public @interface Intern {}
 }
@@ -33,7 +33,6 @@ import java.lang.annotation.Target;
  *   <li>be {@code abstract} (except for {@link #hashCode()} and {@link #toString()}), {@code
  *       private}, {@code final}, or {@code static}
  *   <li>return {@code void}
- *   <li>have any parameters
  * </ul>
  *
  * <p>If you want to memoize {@link #hashCode()} or {@link #toString()}, you can redeclare them,
@@ -43,9 +42,23 @@ import java.lang.annotation.Target;
  * Nullable}, then {@code null} values will also be memoized. Otherwise, if the method returns
  * {@code null}, the overriding method will throw a {@link NullPointerException}.
  *
- * <p>The overriding method uses <a
+ * <p>If a {@code @Memoized} method has parameters, then the overriding method remembers the
+ * results for the {@linkplain #maxSize most recent} distinct arguments, in a small cache that
+ * belongs to the instance. Arguments are compared using {@link Object#equals equals}, or {@code ==}
+ * for primitives, so they should themselves be immutable values. For that reason, parameters
+ * cannot be arrays. A lookup in the cache does not lock, and the annotated method may be called
+ * more than once for the same arguments, if two threads call it at the same time or if the
+ * arguments have been evicted from the cache. The {@link #strategy} can't be specified for such a
+ * method.
+ *
+ * <p>By default, the overriding method uses <a
  * href="https://errorprone.info/bugpattern/DoubleCheckedLocking">double-checked locking</a> to
- * ensure that the annotated method is called at most once.
+ * ensure that the annotated method is called at most once. The exception is a memoized {@link
+ * #hashCode()}, or a {@link #toString()} that is not {@code @Nullable}. The overriding method then
+ * uses no lock, and the annotated method may be called more than once if several threads call it at
+ * the same time, as described for {@link Strategy#RACY}. A different {@link #strategy} can be
+ * selected, for example to avoid holding a monitor while a slow computation runs on a virtual
+ * thread.
  *
  * <h2>Example</h2>
  *
@@ -83,4 +96,96 @@ import java.lang.annotation.Target;
 @Documented
 @Retention(CLASS)
 @Target(METHOD)
-public @interface Memoized {}
+public @interface Memoized {
+  /**
+   * How the overriding method makes sure that concurrent callers all see the same memoized value.
+   */
+  Strategy strategy() default Strategy.DEFAULT;
+
+  /**
+   * For a method with parameters, the number of distinct arguments whose results are remembered.
+   * When the cache is full, the oldest entry is evicted to make room for a new one. The cache is
+   * searched linearly, so it is meant to be small.
+   */
+  int maxSize() default 8;
+
+  /**
+   * How the overriding method refers to the memoized value. With {@link Reference#SOFT} or {@link
+   * Reference#WEAK}, the garbage collector can reclaim the value, and it is computed again the
+   * next time the method is called. This is useful for large values that are cheap enough to
+   * recompute, such as a rendered {@code toString()}.
+   *
+   * <p>A method with a {@code SOFT} or {@code WEAK} reference cannot return a primitive or
+   * {@code @Nullable} type, cannot have parameters, cannot use the {@link
+   * Strategy#COMPARE_AND_SET} or {@link Strategy#EAGER} strategy, and cannot be in a class that is
+   * {@code @GwtCompatible}.
+   */
+  Reference reference() default Reference.STRONG;
+
+  /** The kinds of reference that the overriding method can use to hold the memoized value. */
+  enum Reference {
+    /** An ordinary field, so the value is kept as long as the instance is. */
+    STRONG,
+
+    /** A {@link java.lang.ref.SoftReference}, cleared when memory is short. */
+    SOFT,
+
+    /** A {@link java.lang.ref.WeakReference}, cleared when nothing else refers to the value. */
+    WEAK,
+  }
+
+  /** The ways that the overriding method can store the memoized value. */
+  enum Strategy {
+    /**
+     * {@link #RACY} for a method that overrides {@link Object#hashCode()}, or that overrides {@link
+     * Object#toString()} and is not {@code @Nullable}, since those return an immutable value and
+     * are conventionally cheap to call again; {@link #SYNCHRONIZED} for any other method.
+     */
+    DEFAULT,
+
+    /**
+     * Double-checked locking using {@code synchronized (this)}. The annotated method is called at
+     * most once. While it runs, a virtual thread that calls the overriding method is pinned to its
+     * carrier thread, and other code that synchronizes on the instance is blocked.
+     */
+    SYNCHRONIZED,
+
+    /**
+     * Double-checked locking using a {@link java.util.concurrent.locks.ReentrantLock} that belongs
+     * to the instance and is created the first time it is needed. The annotated method is called
+     * at most once, and a virtual thread that waits for the lock does not pin its carrier thread.
+     * This strategy cannot be used in a class that is {@code @GwtCompatible}.
+     */
+    LOCK,
+
+    /**
+     * No locking. Threads that call the overriding method concurrently before a value has been
+     * stored may each call the annotated method, and the first value to be stored is the one that
+     * is returned from then on. Uses a {@code VarHandle} or, when generating code for Java 8, an
+     * atomic field updater. The return type must be neither primitive nor {@code @Nullable}, and
+     * this strategy cannot be used in a class that is {@code @GwtCompatible}.
+     */
+    COMPARE_AND_SET,
+
+    /**
+     * No locking and no atomic update. Threads that call the overriding method concurrently before
+     * a value has been stored may each call the annotated method, and each of them may return the
+     * value it computed. This is appropriate when the method is cheap and returns equal values
+     * every time, like {@link String#hashCode()}.
+     */
+    RACY,
+
+    /**
+     * The annotated method is called from the constructor of the generated subclass, and its
+     * result is stored in a {@code final} field. The overriding method just returns that field,
+     * with no check or {@code volatile} read. This is appropriate for a value that is cheap enough
+     * to compute for every instance, or that is almost always needed.
+     *
+     * <p>{@code EAGER} methods are called in the order they are declared, after all properties
+     * have been set. So an {@code EAGER} method must not call another one that is declared after
+     * it. An {@code EAGER} method cannot throw checked exceptions. If the class is {@link
+     * java.io.Serializable}, the stored value is serialized along with the properties.
+     */
+    EAGER,
+  }
+}
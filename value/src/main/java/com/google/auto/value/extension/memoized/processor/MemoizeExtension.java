@@ -18,7 +18,7 @@ package com.google.auto.value.extension.memoized.processor;
 import static com.google.auto.common.GeneratedAnnotationSpecs.generatedAnnotationSpec;
 import static com.google.auto.value.extension.memoized.processor.ClassNames.MEMOIZED_NAME;
 import static com.google.auto.value.extension.memoized.processor.MemoizedValidator.getAnnotationMirror;
-import static com.google.common.base.Predicates.equalTo;
+import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
@@ -31,6 +31,7 @@ import static com.squareup.javapoet.TypeSpec.classBuilder;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.DEFAULT;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PUBLIC;
@@ -49,6 +50,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.annotations.FormatMethod;
 import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
@@ -58,16 +60,34 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -93,6 +113,54 @@ public final class MemoizeExtension extends AutoValueExtension {
   private static final AnnotationSpec SUPPRESS_WARNINGS =
       AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "Immutable").build();
 
+  private static final ClassName VAR_HANDLE = ClassName.get("java.lang.invoke", "VarHandle");
+
+  private static final String LOCK_NAME = "memoizedLock$";
+
+  /**
+   * If this option is present, and not {@code false}, then the generated class counts calls and
+   * computations of each {@code @Memoized} method, and the time spent computing, in {@link
+   * LongAdder} counters. The counters are only allocated and updated if the system property of the
+   * same name is {@code true} when the class is initialized, and a static {@code memoizedStats()}
+   * method returns their current values. That method is on whichever class this extension
+   * generates, which depends on the other extensions, but since it is static it can always be
+   * called as {@code AutoValue_Foo.memoizedStats()} from the package of {@code Foo}.
+   */
+  static final String MEMOIZED_STATS_OPTION = "com.google.auto.value.MemoizedStats";
+
+  private static final String STATS_ENABLED_NAME = "memoizedStatsEnabled$";
+
+  /** The class that holds the counters, so that they are only allocated when they are used. */
+  private static final String STATS_HOLDER_NAME = "MemoizedStats$";
+
+  /** The counters, in the {@link #STATS_HOLDER_NAME} class. */
+  private static final String STATS_NAME = STATS_HOLDER_NAME + ".COUNTERS";
+
+  /**
+   * Mirrors {@code Memoized.Strategy}. The processor can't refer to that enum directly, because
+   * the annotation might not be on the processor path.
+   */
+  private enum Strategy {
+    DEFAULT,
+    SYNCHRONIZED,
+    LOCK,
+    COMPARE_AND_SET,
+    RACY,
+    EAGER,
+  }
+
+  /** Mirrors {@code Memoized.Reference}. */
+  private enum Reference {
+    STRONG,
+    SOFT,
+    WEAK,
+  }
+
+  @Override
+  public ImmutableSet<String> getSupportedOptions() {
+    return ImmutableSet.of(MEMOIZED_STATS_OPTION);
+  }
+
   @Override
   public IncrementalExtensionType incrementalType(ProcessingEnvironment processingEnvironment) {
     return IncrementalExtensionType.ISOLATING;
@@ -126,6 +194,16 @@ public final class MemoizeExtension extends AutoValueExtension {
     private final Messager messager;
     private final Optional<AnnotationSpec> lazyInitAnnotation;
     private final Optional<AnnotationSpec> nullableAnnotation;
+    private final Set<String> fieldsWithAtomicAccess = new HashSet<>();
+    private final ImmutableList.Builder<FieldSpec> atomicAccessFields = ImmutableList.builder();
+    private final CodeBlock.Builder varHandleInitializers = CodeBlock.builder();
+    private final CodeBlock.Builder eagerInitializers = CodeBlock.builder();
+    private final Map<TypeKind, MemoizedCache> memoizedCaches = new LinkedHashMap<>();
+    private final Set<String> cacheFieldNames = new HashSet<>();
+    private Optional<StateBits> stateBits = Optional.empty();
+    private final List<String> statsMethodNames = new ArrayList<>();
+    private final boolean stats;
+    private boolean needsLock;
     private boolean hasErrors;
 
     Generator(Context context, String className, String classToExtend, boolean isFinal) {
@@ -139,6 +217,13 @@ public final class MemoizeExtension extends AutoValueExtension {
       this.messager = context.processingEnvironment().getMessager();
       this.lazyInitAnnotation = getLazyInitAnnotation(elements);
       this.nullableAnnotation = getNullableAnnotation(elements);
+      String statsOption =
+          context.processingEnvironment().getOptions().get(MEMOIZED_STATS_OPTION);
+      // LongAdder is not available in GWT, so there are no counters in a @GwtCompatible class.
+      this.stats =
+          context.processingEnvironment().getOptions().containsKey(MEMOIZED_STATS_OPTION)
+              && !"false".equals(statsOption)
+              && !isGwtCompatible();
     }
 
     String generate() {
@@ -151,19 +236,45 @@ public final class MemoizeExtension extends AutoValueExtension {
                       .map(AnnotationSpec::get)
                       .collect(toImmutableList()))
               .addTypeVariables(annotatedTypeVariableNames())
-              .addModifiers(isFinal ? FINAL : ABSTRACT)
-              .addMethod(constructor());
+              .addModifiers(isFinal ? FINAL : ABSTRACT);
       generatedAnnotationSpec(elements, sourceVersion, MemoizeExtension.class)
           .ifPresent(generated::addAnnotation);
 
+      stateBits = stateBits();
       for (ExecutableElement method : memoizedMethods(context)) {
         MethodOverrider methodOverrider = new MethodOverrider(method);
         generated.addFields(methodOverrider.fields());
         generated.addMethod(methodOverrider.method());
+        methodOverrider.computeMethod().ifPresent(generated::addMethod);
       }
+      if (stats) {
+        addStats(generated);
+      }
+      generated.addMethod(constructor());
+      stateBits.ifPresent(bits -> generated.addFields(bits.words));
+      memoizedCaches.values().forEach(cache -> generated.addType(cache.typeSpec()));
       if (isHashCodeMemoized() && !isEqualsFinal()) {
         generated.addMethod(equalsWithHashCodeCheck());
       }
+      if (needsLock) {
+        FieldSpec lockField =
+            buildCacheField(TypeName.get(ReentrantLock.class), LOCK_NAME);
+        generated.addField(lockField);
+        generated.addMethod(lockMethod(lockField));
+      }
+      generated.addFields(atomicAccessFields.build());
+      if (!varHandleInitializers.isEmpty()) {
+        generated.addStaticBlock(
+            CodeBlock.builder()
+                .beginControlFlow("try")
+                .addStatement(
+                    "$T lookup = $T.lookup()", MethodHandles.Lookup.class, MethodHandles.class)
+                .add(varHandleInitializers.build())
+                .nextControlFlow("catch ($T e)", ReflectiveOperationException.class)
+                .addStatement("throw new $T(e)", ExceptionInInitializerError.class)
+                .endControlFlow()
+                .build());
+      }
       if (hasErrors) {
         return null;
       }
@@ -171,6 +282,71 @@ public final class MemoizeExtension extends AutoValueExtension {
     }
 
 
+    /**
+     * Adds the {@link #MEMOIZED_STATS_OPTION} counters, and the {@code memoizedStats()} method that
+     * reports them. Each method has three counters: calls, computations, and nanoseconds spent
+     * computing. A call that does not compute is a hit. The counters are in a nested class, which
+     * is only initialized by the first update of a counter, so they are not allocated unless the
+     * system property is {@code true}.
+     */
+    private void addStats(TypeSpec.Builder generated) {
+      generated.addField(
+          FieldSpec.builder(TypeName.BOOLEAN, STATS_ENABLED_NAME, PRIVATE, STATIC, FINAL)
+              .initializer("$T.getBoolean($S)", Boolean.class, MEMOIZED_STATS_OPTION)
+              .build());
+      generated.addType(
+          classBuilder(STATS_HOLDER_NAME)
+              .addModifiers(PRIVATE, STATIC, FINAL)
+              .addField(
+                  FieldSpec.builder(LongAdder[].class, "COUNTERS", STATIC, FINAL)
+                      .initializer("new $T[$L]", LongAdder.class, 3 * statsMethodNames.size())
+                      .build())
+              .addStaticBlock(
+                  CodeBlock.builder()
+                      .beginControlFlow("for (int i = 0; i < COUNTERS.length; i++)")
+                      .addStatement("COUNTERS[i] = new $T()", LongAdder.class)
+                      .endControlFlow()
+                      .build())
+              .build());
+      ParameterizedTypeName mapType =
+          ParameterizedTypeName.get(Map.class, String.class, Long.class);
+      CodeBlock methodNames =
+          statsMethodNames.stream()
+              .map(n -> CodeBlock.of("$S", n))
+              .collect(CodeBlock.joining(", "));
+      String finalClassName = context.finalAutoValueClassName();
+      generated.addMethod(
+          methodBuilder("memoizedStats")
+              .addJavadoc(
+                  "Returns the current values of the counters for each {@code @Memoized} method,"
+                      + " keyed by\n{@code method(parameterTypes).counter}, or an empty map if the"
+                      + " {@code $L}\nsystem property was not {@code true}. Call it as {@code"
+                      + " $L.memoizedStats()}.\n",
+                  MEMOIZED_STATS_OPTION,
+                  finalClassName.substring(finalClassName.lastIndexOf('.') + 1))
+              .addModifiers(STATIC)
+              .returns(mapType)
+              .beginControlFlow("if (!$N)", STATS_ENABLED_NAME)
+              .addStatement("return $T.emptyMap()", Collections.class)
+              .endControlFlow()
+              .addStatement("String[] methods = {$L}", methodNames)
+              .addStatement("$T stats = new $T<>()", mapType, LinkedHashMap.class)
+              .beginControlFlow("for (int i = 0; i < methods.length; i++)")
+              .addStatement("long calls = $L[3 * i].sum()", STATS_NAME)
+              .addStatement("long computations = $L[3 * i + 1].sum()", STATS_NAME)
+              .addStatement("stats.put(methods[i] + $S, calls)", ".calls")
+              .addStatement(
+                  "stats.put(methods[i] + $S, $T.max(0, calls - computations))",
+                  ".hits",
+                  Math.class)
+              .addStatement("stats.put(methods[i] + $S, computations)", ".computations")
+              .addStatement(
+                  "stats.put(methods[i] + $S, $L[3 * i + 2].sum())", ".computeNanos", STATS_NAME)
+              .endControlFlow()
+              .addStatement("return $T.unmodifiableMap(stats)", Collections.class)
+              .build());
+    }
+
     private TypeName superType() {
       ClassName superType = ClassName.get(context.packageName(), classToExtend);
       ImmutableList<TypeVariableName> typeVariableNames = typeVariableNames();
@@ -214,6 +390,7 @@ public final class MemoizeExtension extends AutoValueExtension {
       String superParams =
           context.properties().keySet().stream().map(parameterNames::get).collect(joining(", "));
       constructor.addStatement("super($L)", superParams);
+      constructor.addCode(eagerInitializers.build());
       return constructor.build();
     }
 
@@ -231,6 +408,440 @@ public final class MemoizeExtension extends AutoValueExtension {
 
 
 
+    /**
+     * Builds a {@link FieldSpec} for use in property caching. Field will be {@code private
+     * transient volatile} and have the given type and name. If the @LazyInit annotation is
+     * available it is added as well.
+     */
+    private FieldSpec buildCacheField(TypeName type, String name) {
+      if (nullableAnnotation.isPresent() && !type.isPrimitive()) {
+        type = type.annotated(nullableAnnotation.get());
+      }
+
+      FieldSpec.Builder builder = FieldSpec.builder(type, name, PRIVATE, TRANSIENT, VOLATILE);
+      if (lazyInitAnnotation.isPresent()) {
+        builder.addAnnotation(lazyInitAnnotation.get());
+        builder.addAnnotation(SUPPRESS_WARNINGS);
+      }
+      return builder.build();
+    }
+
+    /**
+     * Returns an expression that atomically sets the given field of {@code this} to {@code
+     * newValue} if its current value is {@code expected}, and evaluates to true if it did. The
+     * field must be one of the {@code volatile} fields of the generated class, of type {@code
+     * fieldType}.
+     *
+     * <p>When generating code for Java 9 or later, the expression uses a {@code VarHandle}.
+     * Otherwise it uses an {@link AtomicReferenceFieldUpdater} or one of its primitive
+     * counterparts.
+     */
+    private CodeBlock compareAndSet(
+        FieldSpec field, TypeMirror fieldType, String expected, String newValue) {
+      return CodeBlock.of(
+          "$N.compareAndSet(this, $L, $L)", atomicAccess(field, fieldType), expected, newValue);
+    }
+
+    /**
+     * Returns a statement that atomically sets the bits of {@code bits} in the given {@code int} or
+     * {@code long} field of {@code this}, in the same way as {@link #compareAndSet}.
+     */
+    private CodeBlock bitwiseOr(FieldSpec field, TypeMirror fieldType, String bits) {
+      String accessName = atomicAccess(field, fieldType);
+      if (usesVarHandle()) {
+        return CodeBlock.builder()
+            .addStatement("$N.getAndBitwiseOr(this, $L)", accessName, bits)
+            .build();
+      }
+      return CodeBlock.builder()
+          .addStatement("$N.getAndUpdate(this, s$$ -> s$$ | $L)", accessName, bits)
+          .build();
+    }
+
+    private boolean usesVarHandle() {
+      return sourceVersion.ordinal() >= 9;
+    }
+
+    /**
+     * Returns the name of the static {@code VarHandle} or field updater for the given field, adding
+     * it to the generated class if this is the first time it has been needed.
+     */
+    private String atomicAccess(FieldSpec field, TypeMirror fieldType) {
+      boolean varHandle = usesVarHandle();
+      String accessName = field.name + (varHandle ? "$VarHandle" : "$Updater");
+      if (fieldsWithAtomicAccess.add(field.name)) {
+        ClassName rawClass = ClassName.get(context.packageName(), className);
+        TypeName erasedType = TypeName.get(types.erasure(fieldType));
+        if (varHandle) {
+          atomicAccessFields.add(
+              FieldSpec.builder(VAR_HANDLE, accessName, PRIVATE, STATIC, FINAL).build());
+          varHandleInitializers.addStatement(
+              "$N = lookup.findVarHandle($T.class, $S, $T.class)",
+              accessName,
+              rawClass,
+              field.name,
+              erasedType);
+        } else {
+          FieldSpec.Builder updater;
+          switch (fieldType.getKind()) {
+            case INT:
+              updater =
+                  updaterField(AtomicIntegerFieldUpdater.class, rawClass, field.name, accessName);
+              break;
+            case LONG:
+              updater =
+                  updaterField(AtomicLongFieldUpdater.class, rawClass, field.name, accessName);
+              break;
+            default:
+              updater =
+                  FieldSpec.builder(
+                          ParameterizedTypeName.get(
+                              ClassName.get(AtomicReferenceFieldUpdater.class),
+                              rawClass,
+                              erasedType),
+                          accessName,
+                          PRIVATE,
+                          STATIC,
+                          FINAL)
+                      .initializer(
+                          "$T.newUpdater($T.class, $T.class, $S)",
+                          AtomicReferenceFieldUpdater.class,
+                          rawClass,
+                          erasedType,
+                          field.name);
+          }
+          // A raw type appears in the updater's type if the generated class is generic or if the
+          // field's type is parameterized.
+          if (!typeVariableNames().isEmpty() || !erasedType.equals(TypeName.get(fieldType))) {
+            updater.addAnnotation(
+                AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "rawtypes")
+                    .build());
+          }
+          atomicAccessFields.add(updater.build());
+        }
+      }
+      return accessName;
+    }
+
+    private FieldSpec.Builder updaterField(
+        Class<?> updaterClass, ClassName rawClass, String fieldName, String accessName) {
+      return FieldSpec.builder(
+              ParameterizedTypeName.get(ClassName.get(updaterClass), rawClass),
+              accessName,
+              PRIVATE,
+              STATIC,
+              FINAL)
+          .initializer(
+              "$T.newUpdater($T.class, $S)",
+              updaterClass,
+              rawClass,
+              fieldName);
+    }
+
+    /**
+     * Returns the {@link StateBits} for the lazily memoized methods without parameters that return
+     * a primitive or {@code @Nullable} type, if there are any. If those methods don't all use the
+     * same strategy, they can set their bits concurrently, so the bits must be set atomically. That
+     * isn't possible in a {@code @GwtCompatible} class, so each method has its own {@code boolean}
+     * field instead.
+     */
+    private Optional<StateBits> stateBits() {
+      ImmutableList<ExecutableElement> methods =
+          memoizedMethods(context).stream()
+              .filter(m -> m.getParameters().isEmpty())
+              .filter(m -> !strategy(m).equals(Strategy.EAGER))
+              .filter(this::isPrimitiveOrNullable)
+              .collect(toImmutableList());
+      boolean atomic = methods.stream().map(this::strategy).distinct().count() > 1;
+      if (methods.isEmpty() || (atomic && isGwtCompatible())) {
+        return Optional.empty();
+      }
+      return Optional.of(new StateBits(methods, atomic));
+    }
+
+    /**
+     * Records which of the memoized methods that return a primitive or {@code @Nullable} type have
+     * stored their values. Each such method has one bit in a {@code volatile int}, or a {@code
+     * long} if there are more than 32 methods, and the bits of up to 64 methods share one field.
+     *
+     * <p>If all the methods use the same strategy, then a bit is set with a plain
+     * read-modify-write. That is safe because either the methods all set their bits while holding
+     * the same lock, or they are all {@link Strategy#RACY}, where losing a bit just means that a
+     * method will be called again. Otherwise the bits are set {@linkplain #bitwiseOr atomically}.
+     */
+    private final class StateBits {
+      private final ImmutableMap<String, Integer> bitIndexes;
+      private final boolean atomic;
+      private final TypeMirror wordType;
+      private final ImmutableList<FieldSpec> words;
+
+      StateBits(ImmutableList<ExecutableElement> methods, boolean atomic) {
+        this.bitIndexes =
+            methods.stream()
+                .collect(toImmutableMap(m -> m.getSimpleName().toString(), methods::indexOf));
+        this.atomic = atomic;
+        TypeKind wordKind = methods.size() <= Integer.SIZE ? TypeKind.INT : TypeKind.LONG;
+        this.wordType = types.getPrimitiveType(wordKind);
+        int wordCount = (methods.size() + Long.SIZE - 1) / Long.SIZE;
+        ImmutableList.Builder<FieldSpec> words = ImmutableList.builder();
+        for (int i = 0; i < wordCount; i++) {
+          String name = wordCount == 1 ? "memoizedState$" : "memoizedState$" + i;
+          words.add(buildCacheField(TypeName.get(wordType), name));
+        }
+        this.words = words.build();
+      }
+
+      /** An expression that is true if the given method has not yet stored its value. */
+      CodeBlock isUnset(ExecutableElement method) {
+        int index = bitIndexes.get(method.getSimpleName().toString());
+        return CodeBlock.of("($N & $L) == 0", word(index), mask(index));
+      }
+
+      /** A statement that records that the given method has stored its value. */
+      CodeBlock set(ExecutableElement method) {
+        int index = bitIndexes.get(method.getSimpleName().toString());
+        if (atomic) {
+          return bitwiseOr(word(index), wordType, mask(index));
+        }
+        return CodeBlock.builder().addStatement("$N |= $L", word(index), mask(index)).build();
+      }
+
+      private FieldSpec word(int index) {
+        return words.get(index / Long.SIZE);
+      }
+
+      private String mask(int index) {
+        if (wordType.getKind().equals(TypeKind.INT)) {
+          return String.format("0x%x", 1 << index);
+        }
+        return String.format("0x%xL", 1L << (index % Long.SIZE));
+      }
+    }
+
+    /**
+     * Returns {@code name}, or if that is already the name of a cache field, {@code name} with a
+     * number appended. Overloaded {@code @Memoized} methods need this.
+     */
+    private String cacheFieldName(String name) {
+      String fieldName = name;
+      for (int i = 2; !cacheFieldNames.add(fieldName); i++) {
+        fieldName = name + i;
+      }
+      return fieldName;
+    }
+
+    /**
+     * Returns the {@link MemoizedCache} for methods whose key has the given kind, adding it to the
+     * generated class the first time it is needed. The key of a method with one {@code int} or
+     * {@code long} parameter is that parameter, so it needs no boxing. Any other single parameter
+     * is its own key, and several parameters are combined into a {@code List}.
+     */
+    private MemoizedCache memoizedCache(TypeKind keyKind) {
+      switch (keyKind) {
+        case INT:
+          return memoizedCaches.computeIfAbsent(
+              keyKind, k -> new MemoizedCache("IntMemoizedCache$", TypeName.INT));
+        case LONG:
+          return memoizedCaches.computeIfAbsent(
+              keyKind, k -> new MemoizedCache("LongMemoizedCache$", TypeName.LONG));
+        default:
+          return memoizedCaches.computeIfAbsent(
+              TypeKind.DECLARED, k -> new MemoizedCache("MemoizedCache$", TypeName.OBJECT));
+      }
+    }
+
+    /**
+     * A nested class of the generated class that holds the most recent results of a {@code
+     * @Memoized} method with parameters. An instance is an immutable snapshot of parallel arrays of
+     * keys and values, so a lookup is a volatile read and a scan of a few array elements, with no
+     * locking. A miss makes a new snapshot with the new entry and without the oldest one if the
+     * cache is full, and writes it back. If two threads do that at the same time then one of their
+     * entries is lost, which just means that it will be computed again.
+     */
+    private final class MemoizedCache {
+      final ClassName className;
+      final TypeName keyType;
+
+      MemoizedCache(String simpleName, TypeName keyType) {
+        this.className = ClassName.get(context.packageName(), Generator.this.className, simpleName);
+        this.keyType = keyType;
+      }
+
+      TypeSpec typeSpec() {
+        TypeName keyArray = ArrayTypeName.of(keyType);
+        TypeName valueArray = ArrayTypeName.of(Object.class);
+        CodeBlock keyMatches =
+            keyType.isPrimitive()
+                ? CodeBlock.of("keys[i] == key")
+                : CodeBlock.of("$T.equals(keys[i], key)", Objects.class);
+        TypeVariableName v = TypeVariableName.get("V");
+        MethodSpec constructor =
+            constructorBuilder()
+                .addModifiers(PRIVATE)
+                .addParameter(keyArray, "keys")
+                .addParameter(valueArray, "values")
+                .addStatement("this.keys = keys")
+                .addStatement("this.values = values")
+                .build();
+        MethodSpec indexOf =
+            methodBuilder("indexOf")
+                .addModifiers(STATIC)
+                .returns(TypeName.INT)
+                .addParameter(className, "cache")
+                .addParameter(keyType, "key")
+                .beginControlFlow("if (cache != null)")
+                .addStatement("$T keys = cache.keys", keyArray)
+                .beginControlFlow("for (int i = keys.length - 1; i >= 0; i--)")
+                .beginControlFlow("if ($L)", keyMatches)
+                .addStatement("return i")
+                .endControlFlow()
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return -1")
+                .build();
+        MethodSpec value =
+            methodBuilder("value")
+                .addAnnotation(
+                    AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked")
+                        .build())
+                .addTypeVariable(v)
+                .returns(v)
+                .addParameter(TypeName.INT, "index")
+                .addStatement("return ($T) values[index]", v)
+                .build();
+        MethodSpec with =
+            methodBuilder("with")
+                .addModifiers(STATIC)
+                .returns(className)
+                .addParameter(className, "cache")
+                .addParameter(keyType, "key")
+                .addParameter(Object.class, "value")
+                .addParameter(TypeName.INT, "maxSize")
+                .addStatement(
+                    "int size = cache == null ? 0 : $T.min(cache.keys.length, maxSize - 1)",
+                    Math.class)
+                .addStatement("$T keys = new $T[size + 1]", keyArray, keyType)
+                .addStatement("$T values = new $T[size + 1]", valueArray, Object.class)
+                .beginControlFlow("if (size > 0)")
+                .addStatement(
+                    "$T.arraycopy(cache.keys, cache.keys.length - size, keys, 0, size)",
+                    System.class)
+                .addStatement(
+                    "$T.arraycopy(cache.values, cache.values.length - size, values, 0, size)",
+                    System.class)
+                .endControlFlow()
+                .addStatement("keys[size] = key")
+                .addStatement("values[size] = value")
+                .addStatement("return new $T(keys, values)", className)
+                .build();
+        return classBuilder(className)
+            .addModifiers(PRIVATE, STATIC, FINAL)
+            .addField(keyArray, "keys", PRIVATE, FINAL)
+            .addField(valueArray, "values", PRIVATE, FINAL)
+            .addMethod(constructor)
+            .addMethod(indexOf)
+            .addMethod(value)
+            .addMethod(with)
+            .build();
+      }
+    }
+
+    /**
+     * Returns the method that {@link Strategy#LOCK} uses to get the instance's lock, creating it
+     * the first time. The lock is created lazily, rather than in the constructor, so that it also
+     * exists after deserialization.
+     */
+    private MethodSpec lockMethod(FieldSpec lockField) {
+      TypeMirror lockType = elements.getTypeElement(ReentrantLock.class.getName()).asType();
+      return methodBuilder(LOCK_NAME)
+          .addModifiers(PRIVATE)
+          .returns(ReentrantLock.class)
+          .addStatement("$T lock = $N", ReentrantLock.class, lockField)
+          .beginControlFlow("if (lock == null)")
+          .addStatement("lock = new $T()", ReentrantLock.class)
+          .beginControlFlow("if (!$L)", compareAndSet(lockField, lockType, "null", "lock"))
+          .addStatement("lock = $N", lockField)
+          .endControlFlow()
+          .endControlFlow()
+          .addStatement("return lock")
+          .build();
+    }
+
+    /**
+     * The strategy given by the {@code strategy} element of {@code @Memoized}, with {@link
+     * Strategy#DEFAULT} resolved to a specific strategy.
+     */
+    private Strategy strategy(ExecutableElement method) {
+      Strategy strategy =
+          memoizedValue(method, "strategy")
+              .map(v -> ((VariableElement) v.getValue()).getSimpleName().toString())
+              .map(Strategy::valueOf)
+              .orElse(Strategy.DEFAULT);
+      if (strategy.equals(Strategy.DEFAULT)) {
+        // hashCode() returns an int and toString() a String, so a racing second call just
+        // publishes an equal value, and both are conventionally cheap. Any other method might be
+        // expensive, or the identity of its result might matter, so it is only called once. A
+        // @Nullable toString() can't use RACY, which treats null as "not yet computed".
+        return overridesObjectMethod(method, "hashCode")
+                || (overridesObjectMethod(method, "toString") && !isPrimitiveOrNullable(method))
+            ? Strategy.RACY
+            : Strategy.SYNCHRONIZED;
+      }
+      return strategy;
+    }
+
+    /**
+     * The value of the given element of the {@code @Memoized} annotation on {@code method}, if it
+     * was given explicitly.
+     */
+    private Optional<AnnotationValue> memoizedValue(ExecutableElement method, String name) {
+      AnnotationMirror memoized = getAnnotationMirror(method, MEMOIZED_NAME).get();
+      return memoized.getElementValues().entrySet().stream()
+          .filter(e -> e.getKey().getSimpleName().contentEquals(name))
+          .map(e -> (AnnotationValue) e.getValue())
+          .findFirst();
+    }
+
+    private Reference reference(ExecutableElement method) {
+      return memoizedValue(method, "reference")
+          .map(v -> ((VariableElement) v.getValue()).getSimpleName().toString())
+          .map(Reference::valueOf)
+          .orElse(Reference.STRONG);
+    }
+
+    private int maxSize(ExecutableElement method) {
+      return memoizedValue(method, "maxSize").map(v -> (Integer) v.getValue()).orElse(8);
+    }
+
+    private boolean isPrimitiveOrNullable(ExecutableElement method) {
+      return method.getReturnType().getKind().isPrimitive()
+          || containsNullable(method.getAnnotationMirrors())
+          || containsNullable(method.getReturnType().getAnnotationMirrors());
+    }
+
+    private boolean overridesObjectMethod(ExecutableElement method, String methodName) {
+      return elements.overrides(method, objectMethod(methodName), context.autoValueClass());
+    }
+
+    private ExecutableElement objectMethod(String methodName) {
+      TypeElement object = elements.getTypeElement(Object.class.getName());
+      return methodsIn(object.getEnclosedElements()).stream()
+          .filter(m -> m.getSimpleName().contentEquals(methodName))
+          .findFirst()
+          .orElseThrow(
+              () ->
+                  new IllegalArgumentException(
+                      String.format("No method in Object named \"%s\"", methodName)));
+    }
+
+    private boolean isGwtCompatible() {
+      return context.autoValueClass().getAnnotationMirrors().stream()
+          .map(a -> a.getAnnotationType().asElement().getSimpleName())
+          .anyMatch(n -> n.contentEquals("GwtCompatible"));
+    }
+
     private boolean isHashCodeMemoized() {
       return memoizedMethods(context).stream()
           .anyMatch(method -> method.getSimpleName().contentEquals("hashCode"));
@@ -274,49 +885,261 @@ public final class MemoizeExtension extends AutoValueExtension {
      */
     private final class MethodOverrider {
       private final ExecutableElement method;
+      private final Strategy strategy;
+      private final Reference reference;
       private final MethodSpec.Builder override;
       private final FieldSpec cacheField;
       private final ImmutableList.Builder<FieldSpec> fields = ImmutableList.builder();
+      private final int statsIndex;
+      private Optional<MethodSpec> computeMethod = Optional.empty();
 
       MethodOverrider(ExecutableElement method) {
         this.method = method;
+        this.strategy = strategy(method);
+        this.reference = reference(method);
         validate();
 
-        InitializationStrategy checkStrategy = strategy();
-
-        cacheField =
-            buildCacheField(
-                TypeName.get(method.getReturnType()), method.getSimpleName().toString());
-        fields.add(cacheField);
         override =
             methodBuilder(method.getSimpleName().toString())
                 .addAnnotation(Override.class)
                 .returns(annotatedType(method.getReturnType()))
                 .addExceptions(
                     method.getThrownTypes().stream().map(TypeName::get).collect(toList()))
-                .addModifiers(filter(method.getModifiers(), not(equalTo(ABSTRACT))));
+                .addModifiers(
+                    filter(method.getModifiers(), not(in(ImmutableSet.of(ABSTRACT, DEFAULT)))));
         for (AnnotationMirror annotation : context.methodAnnotationsToCopy(method)) {
           AnnotationSpec annotationSpec = AnnotationSpec.get(annotation);
           if (pullDownMethodAnnotation(annotation)) {
             override.addAnnotation(annotationSpec);
           }
         }
+        statsIndex = statsMethodNames.size();
+        if (stats) {
+          statsMethodNames.add(statsMethodName());
+          override
+              .beginControlFlow("if ($N)", STATS_ENABLED_NAME)
+              .addStatement("$L[$L].increment()", STATS_NAME, 3 * statsIndex)
+              .endControlFlow();
+        }
 
+        if (!method.getParameters().isEmpty()) {
+          cacheField = overrideWithParameters();
+          return;
+        }
+        if (strategy.equals(Strategy.EAGER)) {
+          cacheField = overrideEager();
+          return;
+        }
+
+        InitializationStrategy checkStrategy = initializationStrategy();
+        cacheField =
+            buildCacheField(checkStrategy.cacheFieldType(), method.getSimpleName().toString());
+        fields.add(cacheField);
         fields.addAll(checkStrategy.additionalFields());
+        // Local variable names end with $ so that they can't hide a cache field.
+        switch (strategy) {
+          case LOCK:
+            needsLock = true;
+            override
+                .addCode(checkStrategy.beforeCheck())
+                .beginControlFlow("if ($L)", checkStrategy.checkMemoized())
+                .addStatement("$T lock$$ = $N()", ReentrantLock.class, LOCK_NAME)
+                .addStatement("lock$$.lock()")
+                .beginControlFlow("try")
+                .addCode(computeAndStore(checkStrategy))
+                .nextControlFlow("finally")
+                .addStatement("lock$$.unlock()")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $L", checkStrategy.result());
+            break;
+          case COMPARE_AND_SET:
+            override
+                .addStatement("$T value$$ = $N", TypeName.get(method.getReturnType()), cacheField)
+                .beginControlFlow("if (value$$ == null)")
+                .addStatement("value$$ = $L", superCall(""))
+                .addCode(nullCheck("value$"))
+                .beginControlFlow(
+                    "if (!$L)",
+                    compareAndSet(cacheField, method.getReturnType(), "null", "value$"))
+                .addStatement("value$$ = $N", cacheField)
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return value$$");
+            break;
+          case RACY:
+            override
+                .addCode(checkStrategy.beforeCheck())
+                .beginControlFlow("if ($L)", checkStrategy.checkMemoized())
+                .addCode(checkStrategy.compute())
+                .addCode(checkStrategy.setMemoized())
+                .endControlFlow()
+                .addStatement("return $L", checkStrategy.result());
+            break;
+          default:
+            override
+                .addCode(checkStrategy.beforeCheck())
+                .beginControlFlow("if ($L)", checkStrategy.checkMemoized())
+                .beginControlFlow("synchronized ($L)", lockObject())
+                .addCode(computeAndStore(checkStrategy))
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $L", checkStrategy.result());
+        }
+      }
+
+      /**
+       * Completes the overriding method for a method with parameters, which looks up its arguments
+       * in a {@link MemoizedCache}, and returns the field that holds the cache.
+       */
+      private FieldSpec overrideWithParameters() {
+        List<? extends VariableElement> parameters = method.getParameters();
         override
+            .addTypeVariables(
+                method.getTypeParameters().stream()
+                    .map(TypeVariableName::get)
+                    .collect(toImmutableList()));
+        for (VariableElement parameter : parameters) {
+          override.addParameter(
+              annotatedType(parameter.asType()), parameter.getSimpleName().toString());
+        }
+        String arguments =
+            parameters.stream().map(p -> p.getSimpleName().toString()).collect(joining(", "));
+        TypeKind keyKind =
+            parameters.size() == 1 ? parameters.get(0).asType().getKind() : TypeKind.DECLARED;
+        MemoizedCache cache = memoizedCache(keyKind);
+        FieldSpec field =
+            buildCacheField(cache.className, cacheFieldName(method.getSimpleName() + "$Cache"));
+        fields.add(field);
+        CodeBlock key =
+            parameters.size() == 1
+                ? CodeBlock.of("$L", arguments)
+                : CodeBlock.of("$T.asList($L)", Arrays.class, arguments);
+        TypeName returnType = TypeName.get(method.getReturnType());
+        override
+            .addStatement("$T cache$$ = $N", cache.className, field)
+            .addStatement("$T key$$ = $L", cache.keyType, key)
+            .addStatement("int i$$ = $T.indexOf(cache$$, key$$)", cache.className)
+            .beginControlFlow("if (i$$ >= 0)")
+            .addStatement("return cache$$.<$T>value(i$$)", returnType.box())
+            .endControlFlow()
+            .addStatement("$T value$$ = $L", returnType, superCall(arguments));
+        if (!isPrimitiveOrNullable(method)) {
+          override.addCode(nullCheck("value$"));
+        }
+        override
+            .addStatement(
+                "$N = $T.with(cache$$, key$$, value$$, $L)",
+                field,
+                cache.className,
+                maxSize(method))
+            .addStatement("return value$$");
+        return field;
+      }
+
+      /**
+       * Completes the overriding method for a {@link Strategy#EAGER} method, which just returns a
+       * final field that the constructor sets, and returns that field.
+       */
+      private FieldSpec overrideEager() {
+        TypeName type = annotatedType(method.getReturnType());
+        if (nullableAnnotation.isPresent()
+            && !type.isPrimitive()
+            && containsNullable(method.getAnnotationMirrors())) {
+          type = type.annotated(nullableAnnotation.get());
+        }
+        FieldSpec field =
+            FieldSpec.builder(type, method.getSimpleName().toString(), PRIVATE, FINAL).build();
+        fields.add(field);
+        eagerInitializers.addStatement("this.$N = $L", field, superCall(""));
+        if (!isPrimitiveOrNullable(method)) {
+          eagerInitializers.add(nullCheck("this." + field.name));
+        }
+        override.addStatement("return $N", field);
+        return field;
+      }
+
+      private String lockObject() {
+        return "this";
+      }
+
+      /** The inner check of double-checked locking, and the code to store the computed value. */
+      private CodeBlock computeAndStore(InitializationStrategy checkStrategy) {
+        return CodeBlock.builder()
+            .add(checkStrategy.beforeRecheck())
             .beginControlFlow("if ($L)", checkStrategy.checkMemoized())
-            .beginControlFlow("synchronized ($L)", lockObject())
-            .beginControlFlow("if ($L)", checkStrategy.checkMemoized())
-            .addStatement("$N = super.$L()", cacheField, method.getSimpleName())
-            .addCode(checkStrategy.setMemoized())
+            .add(checkStrategy.compute())
+            .add(checkStrategy.setMemoized())
             .endControlFlow()
+            .build();
+      }
+
+      /**
+       * Returns an expression that calls the memoized method in the superclass with the given
+       * arguments. With {@link #MEMOIZED_STATS_OPTION}, the call goes through a generated method
+       * that also counts the computation and the time it takes.
+       */
+      private CodeBlock superCall(String arguments) {
+        if (!stats) {
+          return CodeBlock.of("super.$L($L)", method.getSimpleName(), arguments);
+        }
+        if (!computeMethod.isPresent()) {
+          computeMethod = Optional.of(instrumentedComputeMethod());
+        }
+        return CodeBlock.of("$N($L)", computeMethod.get(), arguments);
+      }
+
+      private MethodSpec instrumentedComputeMethod() {
+        MethodSpec.Builder compute =
+            methodBuilder(method.getSimpleName() + "$compute")
+                .addModifiers(PRIVATE)
+                .addTypeVariables(
+                    method.getTypeParameters().stream()
+                        .map(TypeVariableName::get)
+                        .collect(toImmutableList()))
+                .returns(annotatedType(method.getReturnType()))
+                .addExceptions(
+                    method.getThrownTypes().stream().map(TypeName::get).collect(toList()))
+                .varargs(method.isVarArgs());
+        for (VariableElement parameter : method.getParameters()) {
+          compute.addParameter(
+              annotatedType(parameter.asType()), parameter.getSimpleName().toString());
+        }
+        String arguments =
+            method.getParameters().stream()
+                .map(p -> p.getSimpleName().toString())
+                .collect(joining(", "));
+        return compute
+            .beginControlFlow("if (!$N)", STATS_ENABLED_NAME)
+            .addStatement("return super.$L($L)", method.getSimpleName(), arguments)
             .endControlFlow()
+            .addStatement("long start$$ = $T.nanoTime()", System.class)
+            .beginControlFlow("try")
+            .addStatement("return super.$L($L)", method.getSimpleName(), arguments)
+            .nextControlFlow("finally")
+            .addStatement("$L[$L].increment()", STATS_NAME, 3 * statsIndex + 1)
+            .addStatement(
+                "$L[$L].add($T.nanoTime() - start$$)", STATS_NAME, 3 * statsIndex + 2, System.class)
             .endControlFlow()
-            .addStatement("return $N", cacheField);
+            .build();
       }
 
-      private String lockObject() {
-        return "this";
+      /** The name of this method in {@code memoizedStats()}, like {@code name(int,String)}. */
+      private String statsMethodName() {
+        return method.getSimpleName()
+            + method.getParameters().stream()
+                .map(p -> types.erasure(p.asType()).toString())
+                .collect(joining(",", "(", ")"));
+      }
+
+      private CodeBlock nullCheck(String variable) {
+        return CodeBlock.builder()
+            .beginControlFlow("if ($L == null)", variable)
+            .addStatement(
+                "throw new NullPointerException($S)",
+                method.getSimpleName() + "() cannot return null")
+            .endControlFlow()
+            .build();
       }
 
       /** The fields that should be added to the subclass. */
@@ -329,20 +1152,90 @@ public final class MemoizeExtension extends AutoValueExtension {
         return override.build();
       }
 
+      /** The method that computes and counts the value, if {@link #MEMOIZED_STATS_OPTION} is on. */
+      Optional<MethodSpec> computeMethod() {
+        return computeMethod;
+      }
+
       private void validate() {
         if (method.getReturnType().getKind().equals(VOID)) {
           printMessage(ERROR, "@Memoized methods cannot be void");
         }
-        if (!method.getParameters().isEmpty()) {
-          printMessage(ERROR, "@Memoized methods cannot have parameters");
+        if (method.getParameters().isEmpty()) {
+          if (memoizedValue(method, "maxSize").isPresent()) {
+            printMessage(ERROR, "@Memoized(maxSize) only applies to methods with parameters");
+          }
+        } else {
+          if (memoizedValue(method, "strategy").isPresent()) {
+            printMessage(ERROR, "@Memoized methods with parameters cannot specify a strategy");
+          }
+          if (memoizedValue(method, "reference").isPresent()) {
+            printMessage(ERROR, "@Memoized methods with parameters cannot specify a reference");
+          }
+          if (maxSize(method) < 1) {
+            printMessage(ERROR, "@Memoized(maxSize) must be at least 1");
+          }
+          if (method.getParameters().stream()
+              .anyMatch(p -> p.asType().getKind().equals(TypeKind.ARRAY))) {
+            // Arrays are compared by identity, and can be changed after they have been cached.
+            printMessage(ERROR, "@Memoized methods cannot have array parameters");
+          }
         }
         checkIllegalModifier(PRIVATE);
         checkIllegalModifier(FINAL);
         checkIllegalModifier(STATIC);
 
-        if (!overridesObjectMethod("hashCode") && !overridesObjectMethod("toString")) {
+        if (!overridesObjectMethod(method, "hashCode")
+            && !overridesObjectMethod(method, "toString")) {
           checkIllegalModifier(ABSTRACT);
         }
+        if (strategy.equals(Strategy.COMPARE_AND_SET) && isPrimitiveOrNullable(method)) {
+          printMessage(
+              ERROR,
+              "@Memoized(strategy = COMPARE_AND_SET) requires a return type that is not primitive"
+                  + " or @Nullable");
+        }
+        if (!reference.equals(Reference.STRONG)) {
+          if (isPrimitiveOrNullable(method)) {
+            printMessage(
+                ERROR,
+                "@Memoized(reference = %s) requires a return type that is not primitive or"
+                    + " @Nullable",
+                reference.name());
+          }
+          if (strategy.equals(Strategy.COMPARE_AND_SET) || strategy.equals(Strategy.EAGER)) {
+            printMessage(
+                ERROR,
+                "@Memoized(reference = %s) cannot be used with strategy = %s",
+                reference.name(),
+                strategy.name());
+          }
+          if (isGwtCompatible()) {
+            printMessage(
+                ERROR,
+                "@Memoized(reference = %s) cannot be used in a @GwtCompatible class",
+                reference.name());
+          }
+        }
+        if (strategy.equals(Strategy.EAGER) && throwsCheckedException()) {
+          printMessage(
+              ERROR, "@Memoized(strategy = EAGER) methods cannot throw checked exceptions");
+        }
+        if ((strategy.equals(Strategy.COMPARE_AND_SET) || strategy.equals(Strategy.LOCK))
+            && isGwtCompatible()) {
+          printMessage(
+              ERROR,
+              "@Memoized(strategy = %s) cannot be used in a @GwtCompatible class",
+              strategy.name());
+        }
+      }
+
+      private boolean throwsCheckedException() {
+        TypeMirror runtimeException =
+            elements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = elements.getTypeElement(Error.class.getName()).asType();
+        return method.getThrownTypes().stream()
+            .anyMatch(t -> !types.isSubtype(t, runtimeException) && !types.isSubtype(t, error));
       }
 
       private void checkIllegalModifier(Modifier modifier) {
@@ -359,21 +1252,6 @@ public final class MemoizeExtension extends AutoValueExtension {
         messager.printMessage(kind, String.format(format, args), method);
       }
 
-      private boolean overridesObjectMethod(String methodName) {
-        return elements.overrides(method, objectMethod(methodName), context.autoValueClass());
-      }
-
-      private ExecutableElement objectMethod(String methodName) {
-        TypeElement object = elements.getTypeElement(Object.class.getName());
-        return methodsIn(object.getEnclosedElements()).stream()
-            .filter(m -> m.getSimpleName().contentEquals(methodName))
-            .findFirst()
-            .orElseThrow(
-                () ->
-                    new IllegalArgumentException(
-                        String.format("No method in Object named \"%s\"", methodName)));
-      }
-
       private boolean pullDownMethodAnnotation(AnnotationMirror annotation) {
         return !DO_NOT_PULL_DOWN_ANNOTATIONS.contains(
             MoreElements.asType(annotation.getAnnotationType().asElement())
@@ -381,65 +1259,154 @@ public final class MemoizeExtension extends AutoValueExtension {
                 .toString());
       }
 
-      /**
-       * Builds a {@link FieldSpec} for use in property caching. Field will be {@code private
-       * transient volatile} and have the given type and name. If the @LazyInit annotation is
-       * available it is added as well.
-       */
-      private FieldSpec buildCacheField(TypeName type, String name) {
-        if (nullableAnnotation.isPresent() && !type.isPrimitive()) {
-          type = type.annotated(nullableAnnotation.get());
+      InitializationStrategy initializationStrategy() {
+        if (!reference.equals(Reference.STRONG)) {
+          return new ClearableReference();
         }
-
-        FieldSpec.Builder builder = FieldSpec.builder(type, name, PRIVATE, TRANSIENT, VOLATILE);
-        if (lazyInitAnnotation.isPresent()) {
-          builder.addAnnotation(lazyInitAnnotation.get());
-          builder.addAnnotation(SUPPRESS_WARNINGS);
-        }
-        return builder.build();
-      }
-
-      InitializationStrategy strategy() {
-        if (method.getReturnType().getKind().isPrimitive()) {
-          return new CheckBooleanField();
-        }
-        if (containsNullable(method.getAnnotationMirrors())
-            || containsNullable(method.getReturnType().getAnnotationMirrors())) {
-          return new CheckBooleanField();
+        if (isPrimitiveOrNullable(method)) {
+          return stateBits.isPresent()
+              ? new CheckStateBit(stateBits.get())
+              : new CheckBooleanField();
         }
         return new NullMeansUninitialized();
       }
 
       private abstract class InitializationStrategy {
 
+        /** The type of the field that holds the memoized value. */
+        TypeName cacheFieldType() {
+          return TypeName.get(method.getReturnType());
+        }
+
         abstract Iterable<FieldSpec> additionalFields();
 
+        /** Statements to run before the first check whether the value has been memoized. */
+        CodeBlock beforeCheck() {
+          return CodeBlock.of("");
+        }
+
+        /** Statements to run before the check that is repeated while holding the lock. */
+        CodeBlock beforeRecheck() {
+          return CodeBlock.of("");
+        }
+
         abstract CodeBlock checkMemoized();
 
+        /** Calls the memoized method and stores its result. */
+        CodeBlock compute() {
+          return CodeBlock.builder()
+              .addStatement("$N = $L", cacheField, superCall(""))
+              .build();
+        }
+
         abstract CodeBlock setMemoized();
+
+        /** The expression that the overriding method returns. */
+        CodeBlock result() {
+          return CodeBlock.of("$N", cacheField);
+        }
       }
 
-      private final class NullMeansUninitialized extends InitializationStrategy {
+      /**
+       * Stores the memoized value behind a {@link SoftReference} or {@link WeakReference}. The
+       * value is read into a local variable, so it can't be cleared between the check and the
+       * {@code return}. If the reference has been cleared then the value is computed again, and a
+       * new reference replaces the old one.
+       */
+      private final class ClearableReference extends InitializationStrategy {
+        private final TypeName valueType = TypeName.get(method.getReturnType());
+        private final ClassName referenceClass =
+            ClassName.get(
+                reference.equals(Reference.SOFT) ? SoftReference.class : WeakReference.class);
+
+        @Override
+        TypeName cacheFieldType() {
+          return ParameterizedTypeName.get(referenceClass, valueType.box());
+        }
+
         @Override
         Iterable<FieldSpec> additionalFields() {
           return ImmutableList.of();
         }
 
+        @Override
+        CodeBlock beforeCheck() {
+          return CodeBlock.builder().addStatement("$T value$$ = $L", valueType, load()).build();
+        }
+
+        @Override
+        CodeBlock beforeRecheck() {
+          return CodeBlock.builder().addStatement("value$$ = $L", load()).build();
+        }
+
+        private CodeBlock load() {
+          return CodeBlock.of("$1N == null ? null : $1N.get()", cacheField);
+        }
+
         @Override
         CodeBlock checkMemoized() {
-          return CodeBlock.of("$N == null", cacheField);
+          return CodeBlock.of("value$$ == null");
+        }
+
+        @Override
+        CodeBlock compute() {
+          return CodeBlock.builder()
+              .addStatement("value$$ = $L", superCall(""))
+              .build();
         }
 
         @Override
         CodeBlock setMemoized() {
           return CodeBlock.builder()
-              .beginControlFlow("if ($N == null)", cacheField)
-              .addStatement(
-                  "throw new NullPointerException($S)",
-                  method.getSimpleName() + "() cannot return null")
-              .endControlFlow()
+              .add(nullCheck("value$"))
+              .addStatement("$N = new $T<>(value$$)", cacheField, referenceClass)
               .build();
         }
+
+        @Override
+        CodeBlock result() {
+          return CodeBlock.of("value$$");
+        }
+      }
+
+      private final class NullMeansUninitialized extends InitializationStrategy {
+        @Override
+        Iterable<FieldSpec> additionalFields() {
+          return ImmutableList.of();
+        }
+
+        @Override
+        CodeBlock checkMemoized() {
+          return CodeBlock.of("$N == null", cacheField);
+        }
+
+        @Override
+        CodeBlock setMemoized() {
+          return nullCheck(cacheField.name);
+        }
+      }
+
+      private final class CheckStateBit extends InitializationStrategy {
+        private final StateBits stateBits;
+
+        CheckStateBit(StateBits stateBits) {
+          this.stateBits = stateBits;
+        }
+
+        @Override
+        Iterable<FieldSpec> additionalFields() {
+          return ImmutableList.of();
+        }
+
+        @Override
+        CodeBlock checkMemoized() {
+          return stateBits.isUnset(method);
+        }
+
+        @Override
+        CodeBlock setMemoized() {
+          return stateBits.set(method);
+        }
       }
 
       private final class CheckBooleanField extends InitializationStrategy {
@@ -27,4 +27,18 @@ import java.lang.annotation.Target;
  */
 @Retention(RetentionPolicy.SOURCE)
 @Target(ElementType.TYPE)
-public @interface SerializableAutoValue {}
+public @interface SerializableAutoValue {
+
+  /**
+   * If true, the generated serialization proxy is {@link java.io.Externalizable}. Its serial form
+   * has no field descriptors, only a hash of the property names and types that is checked when
+   * reading. Primitive properties are written directly rather than boxed, and the proxy that is
+   * allocated when writing holds a reference to the original object instead of a copy of each of
+   * its properties.
+   *
+   * <p>The serial form is different from the default one, so changing this value means that
+   * objects serialized before the change can no longer be read. The same is true of adding,
+   * removing, renaming, or changing the type of a property.
+   */
+  boolean compact() default false;
+}
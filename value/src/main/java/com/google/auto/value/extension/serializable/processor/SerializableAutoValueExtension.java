@@ -20,6 +20,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static java.util.stream.Collectors.joining;
 
+import com.google.auto.common.AnnotationMirrors;
 import com.google.auto.common.GeneratedAnnotationSpecs;
 import com.google.auto.common.MoreTypes;
 import com.google.auto.service.AutoService;
@@ -27,6 +28,7 @@ import com.google.auto.value.extension.AutoValueExtension;
 import com.google.auto.value.extension.serializable.serializer.SerializerFactoryLoader;
 import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
 import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.google.common.base.Ascii;
 import com.google.common.base.Equivalence;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -40,6 +42,11 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Optional;
@@ -48,7 +55,13 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.SimpleTypeVisitor8;
 
 /**
  * An AutoValue extension that enables classes with unserializable fields to be serializable.
@@ -87,6 +100,7 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
     private final boolean isFinal;
     private final ImmutableList<PropertyMirror> propertyMirrors;
     private final ImmutableList<TypeVariableName> typeVariableNames;
+    private final boolean compact;
     private final ProxyGenerator proxyGenerator;
 
     Generator(Context context, String className, String classToExtend, boolean isFinal) {
@@ -117,9 +131,15 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
           getClassTypeName(
               ClassName.get(context.packageName(), context.finalAutoValueClassName()),
               typeVariableNames);
+      this.compact = isCompact(context);
       this.proxyGenerator =
           new ProxyGenerator(
-              classTypeName, typeVariableNames, propertyMirrors, buildSerializersMap());
+              classTypeName,
+              getClassTypeName(ClassName.get(context.autoValueClass()), typeVariableNames),
+              typeVariableNames,
+              propertyMirrors,
+              buildSerializersMap(),
+              compact);
     }
 
     private String generate() {
@@ -160,13 +180,16 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
 
     /**
      * Creates an implementation of writeReplace that delegates serialization to its inner Proxy
-     * class.
+     * class. A compact Proxy is given this object, and reads the properties itself as it writes
+     * them.
      */
     private MethodSpec writeReplace() {
       ImmutableList<CodeBlock> properties =
-          propertyMirrors.stream()
-              .map(propertyMirror -> CodeBlock.of("$L()", propertyMirror.getMethod()))
-              .collect(toImmutableList());
+          compact
+              ? ImmutableList.of(CodeBlock.of("this"))
+              : propertyMirrors.stream()
+                  .map(propertyMirror -> CodeBlock.of("$L()", propertyMirror.getMethod()))
+                  .collect(toImmutableList());
 
       return MethodSpec.methodBuilder("writeReplace")
           .returns(Object.class)
@@ -182,16 +205,27 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
           .build();
     }
 
+    /**
+     * Returns a serializer for the type of each property. A compact Proxy uses a streaming
+     * serializer where there is one.
+     */
     private ImmutableMap<Equivalence.Wrapper<TypeMirror>, Serializer> buildSerializersMap() {
       SerializerFactory factory =
           SerializerFactoryLoader.getFactory(context.processingEnvironment());
+      Function<TypeMirror, Serializer> getSerializer =
+          compact
+              ? type ->
+                  factory
+                      .getStreamingSerializer(type)
+                      .orElseGet(() -> factory.getSerializer(type))
+              : factory::getSerializer;
       return propertyMirrors.stream()
           .map(PropertyMirror::getType)
           .map(MoreTypes.equivalence()::wrap)
           .distinct()
           .collect(
               toImmutableMap(
-                  Function.identity(), equivalence -> factory.getSerializer(equivalence.get())));
+                  Function.identity(), equivalence -> getSerializer.apply(equivalence.get())));
     }
 
     /** Adds type parameters to the given {@link ClassName}, if available. */
@@ -203,24 +237,38 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
     }
   }
 
-  /** A generator of nested serializable Proxy classes. */
+  /**
+   * A generator of nested serializable Proxy classes. If {@code compact} is true, the Proxy is
+   * {@link Externalizable} and writes the properties of the AutoValue object that it references,
+   * instead of copying them into its own fields. Its own fields are only set when reading. A
+   * property with a {@linkplain Serializer#isStreaming streaming} serializer is written and read
+   * directly, and its field has the original type of the property.
+   */
   private static final class ProxyGenerator {
     private static final String PROXY_CLASS_NAME = "Proxy$";
+    private static final String SCHEMA_HASH_NAME = "SCHEMA_HASH";
+    private static final String VALUE_NAME = "value$";
 
     private final TypeName outerClassTypeName;
+    private final TypeName autoValueClassTypeName;
     private final ImmutableList<TypeVariableName> typeVariableNames;
     private final ImmutableList<PropertyMirror> propertyMirrors;
     private final ImmutableMap<Equivalence.Wrapper<TypeMirror>, Serializer> serializersMap;
+    private final boolean compact;
 
     ProxyGenerator(
         TypeName outerClassTypeName,
+        TypeName autoValueClassTypeName,
         ImmutableList<TypeVariableName> typeVariableNames,
         ImmutableList<PropertyMirror> propertyMirrors,
-        ImmutableMap<Equivalence.Wrapper<TypeMirror>, Serializer> serializersMap) {
+        ImmutableMap<Equivalence.Wrapper<TypeMirror>, Serializer> serializersMap,
+        boolean compact) {
       this.outerClassTypeName = outerClassTypeName;
+      this.autoValueClassTypeName = autoValueClassTypeName;
       this.typeVariableNames = typeVariableNames;
       this.propertyMirrors = propertyMirrors;
       this.serializersMap = serializersMap;
+      this.compact = compact;
     }
 
     private TypeSpec generate() {
@@ -228,15 +276,148 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
           TypeSpec.classBuilder(PROXY_CLASS_NAME)
               .addModifiers(Modifier.STATIC)
               .addTypeVariables(typeVariableNames)
-              .addSuperinterface(Serializable.class)
-              .addField(serialVersionUid())
-              .addFields(properties())
-              .addMethod(constructor())
-              .addMethod(readResolve());
+              .addField(serialVersionUid());
+      if (compact) {
+        proxy
+            .addSuperinterface(Externalizable.class)
+            .addField(schemaHash())
+            .addField(autoValueClassTypeName, VALUE_NAME, Modifier.PRIVATE)
+            .addFields(properties())
+            .addMethod(
+                MethodSpec.constructorBuilder()
+                    .addJavadoc("Called by serialization before {@link #readExternal}.\n")
+                    .addModifiers(Modifier.PUBLIC)
+                    .build())
+            .addMethod(
+                MethodSpec.constructorBuilder()
+                    .addParameter(autoValueClassTypeName, VALUE_NAME)
+                    .addStatement("this.$1L = $1L", VALUE_NAME)
+                    .build())
+            .addMethod(writeExternal())
+            .addMethod(readExternal());
+      } else {
+        proxy
+            .addSuperinterface(Serializable.class)
+            .addFields(properties())
+            .addMethod(constructor());
+      }
+      proxy.addMethod(readResolve());
 
       return proxy.build();
     }
 
+    /**
+     * A hash of the names and types of the properties, which a compact Proxy writes in place of the
+     * field descriptors that default serialization would write. The types are spelled by {@link
+     * #schemaType}, since {@link TypeMirror#toString()} includes type annotations and differs
+     * between compilers.
+     */
+    private FieldSpec schemaHash() {
+      int hash =
+          propertyMirrors.stream()
+              .map(p -> p.getName() + ":" + schemaType(p.getType()))
+              .collect(joining(";"))
+              .hashCode();
+      return FieldSpec.builder(
+              int.class, SCHEMA_HASH_NAME, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .initializer("$L", hash)
+          .build();
+    }
+
+    /**
+     * Creates an implementation of {@code writeExternal} that writes the schema hash and then each
+     * property. Primitive properties are written with the corresponding {@link ObjectOutput}
+     * method, and other properties are converted to their serializable types and written as
+     * objects.
+     */
+    private MethodSpec writeExternal() {
+      MethodSpec.Builder writeExternal =
+          MethodSpec.methodBuilder("writeExternal")
+              .addAnnotation(Override.class)
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(ObjectOutput.class, "out")
+              .addException(IOException.class)
+              .addStatement("out.writeInt($L)", SCHEMA_HASH_NAME);
+      for (PropertyMirror propertyMirror : propertyMirrors) {
+        CodeBlock value = CodeBlock.of("$L.$L()", VALUE_NAME, propertyMirror.getMethod());
+        TypeMirror type = propertyMirror.getType();
+        Serializer serializer = serializersMap.get(wrap(type));
+        if (type.getKind().isPrimitive()) {
+          writeExternal.addStatement("out.write$L($L)", primitiveMethodSuffix(type), value);
+        } else if (serializer.isStreaming()) {
+          writeExternal.addCode(serializer.writeTo(CodeBlock.of("out"), value));
+        } else {
+          writeExternal.addStatement("out.writeObject($L)", serializer.toProxy(value));
+        }
+      }
+      return writeExternal.build();
+    }
+
+    /**
+     * Creates an implementation of {@code readExternal} that checks the schema hash and then reads
+     * each property into the field of the same name, in the same way that {@link #writeExternal}
+     * wrote it.
+     */
+    private MethodSpec readExternal() {
+      MethodSpec.Builder readExternal =
+          MethodSpec.methodBuilder("readExternal")
+              .addAnnotation(Override.class)
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(ObjectInput.class, "in")
+              .addException(IOException.class)
+              .addException(ClassNotFoundException.class)
+              .beginControlFlow("if (in.readInt() != $L)", SCHEMA_HASH_NAME)
+              .addStatement(
+                  "throw new $T($S)",
+                  InvalidObjectException.class,
+                  "Serialized form has different properties from " + autoValueClassName())
+              .endControlFlow();
+      boolean unchecked = false;
+      for (PropertyMirror propertyMirror : propertyMirrors) {
+        TypeMirror type = propertyMirror.getType();
+        Serializer serializer = serializersMap.get(wrap(type));
+        if (type.getKind().isPrimitive()) {
+          readExternal.addStatement(
+              "this.$L = in.read$L()", propertyMirror.getName(), primitiveMethodSuffix(type));
+        } else if (serializer.isStreaming()) {
+          // The elements may be read with casts to type variables or parameterized types.
+          unchecked = true;
+          readExternal.addCode(
+              serializer.readFrom(
+                  CodeBlock.of("in"), CodeBlock.of("this.$L", propertyMirror.getName())));
+        } else {
+          TypeName proxyType = TypeName.get(serializer.proxyFieldType());
+          unchecked |= !(proxyType instanceof ClassName);
+          readExternal.addStatement(
+              "this.$L = ($T) in.readObject()", propertyMirror.getName(), proxyType);
+        }
+      }
+      if (unchecked) {
+        readExternal.addAnnotation(
+            AnnotationSpec.builder(SuppressWarnings.class)
+                .addMember("value", "$S", "unchecked")
+                .build());
+      }
+      return readExternal.build();
+    }
+
+    private String autoValueClassName() {
+      TypeName type = autoValueClassTypeName;
+      return (type instanceof ParameterizedTypeName)
+          ? ((ParameterizedTypeName) type).rawType.canonicalName()
+          : ((ClassName) type).canonicalName();
+    }
+
+    /** Returns {@code Int} for {@code int}, and so on, for the methods of {@link ObjectOutput}. */
+    private static String primitiveMethodSuffix(TypeMirror type) {
+      String name = type.getKind().name();
+      return name.charAt(0) + Ascii.toLowerCase(name.substring(1));
+    }
+
+    private static Equivalence.Wrapper<TypeMirror> wrap(TypeMirror type) {
+      return MoreTypes.equivalence().wrap(type);
+    }
+
     private static FieldSpec serialVersionUid() {
       return FieldSpec.builder(
               long.class, "serialVersionUID", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
@@ -250,16 +431,18 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
           .map(
               propertyMirror ->
                   FieldSpec.builder(
-                          TypeName.get(
-                              serializersMap
-                                  .get(MoreTypes.equivalence().wrap(propertyMirror.getType()))
-                                  .proxyFieldType()),
+                          TypeName.get(fieldType(propertyMirror)),
                           propertyMirror.getName(),
                           Modifier.PRIVATE)
                       .build())
           .collect(toImmutableList());
     }
 
+    private TypeMirror fieldType(PropertyMirror propertyMirror) {
+      Serializer serializer = serializersMap.get(wrap(propertyMirror.getType()));
+      return serializer.isStreaming() ? propertyMirror.getType() : serializer.proxyFieldType();
+    }
+
     /** Creates a constructor that converts the AutoValue's properties to serializable values. */
     private MethodSpec constructor() {
       MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
@@ -295,12 +478,64 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
 
     /** Maps a serializable type back to its original AutoValue property. */
     private CodeBlock resolve(PropertyMirror propertyMirror) {
-      return serializersMap
-          .get(MoreTypes.equivalence().wrap(propertyMirror.getType()))
-          .fromProxy(CodeBlock.of(propertyMirror.getName()));
+      Serializer serializer = serializersMap.get(wrap(propertyMirror.getType()));
+      CodeBlock field = CodeBlock.of(propertyMirror.getName());
+      return serializer.isStreaming() ? field : serializer.fromProxy(field);
     }
   }
 
+  /**
+   * Returns {@code type} spelled with canonical class names and without type annotations, so that
+   * the schema hash doesn't change when an annotation is added or with a different compiler.
+   */
+  private static String schemaType(TypeMirror type) {
+    return type.accept(
+        new SimpleTypeVisitor8<String, Void>() {
+          @Override
+          public String visitPrimitive(PrimitiveType t, Void p) {
+            return Ascii.toLowerCase(t.getKind().name());
+          }
+
+          @Override
+          public String visitArray(ArrayType t, Void p) {
+            return t.getComponentType().accept(this, null) + "[]";
+          }
+
+          @Override
+          public String visitDeclared(DeclaredType t, Void p) {
+            String name = MoreTypes.asTypeElement(t).getQualifiedName().toString();
+            if (t.getTypeArguments().isEmpty()) {
+              return name;
+            }
+            return t.getTypeArguments().stream()
+                .map(a -> a.accept(this, null))
+                .collect(joining(",", name + "<", ">"));
+          }
+
+          @Override
+          public String visitTypeVariable(TypeVariable t, Void p) {
+            return t.asElement().getSimpleName().toString();
+          }
+
+          @Override
+          public String visitWildcard(WildcardType t, Void p) {
+            if (t.getExtendsBound() != null) {
+              return "? extends " + t.getExtendsBound().accept(this, null);
+            }
+            if (t.getSuperBound() != null) {
+              return "? super " + t.getSuperBound().accept(this, null);
+            }
+            return "?";
+          }
+
+          @Override
+          protected String defaultAction(TypeMirror t, Void p) {
+            return t.toString();
+          }
+        },
+        null);
+  }
+
   private static boolean hasSerializableInterface(Context context) {
     final TypeMirror serializableTypeMirror =
         context
@@ -315,6 +550,17 @@ public final class SerializableAutoValueExtension extends AutoValueExtension {
         .isAssignable(context.autoValueClass().asType(), serializableTypeMirror);
   }
 
+  private static boolean isCompact(Context context) {
+    return context.autoValueClass().getAnnotationMirrors().stream()
+        .filter(
+            a ->
+                MoreTypes.asTypeElement(a.getAnnotationType())
+                    .getQualifiedName()
+                    .contentEquals(SERIALIZABLE_AUTO_VALUE_NAME))
+        .map(a -> AnnotationMirrors.getAnnotationValue(a, "compact").getValue())
+        .anyMatch(Boolean.TRUE::equals);
+  }
+
   private static boolean hasSerializableAutoValueAnnotation(Context context) {
     return context.autoValueClass().getAnnotationMirrors().stream()
         .map(AnnotationMirror::getAnnotationType)
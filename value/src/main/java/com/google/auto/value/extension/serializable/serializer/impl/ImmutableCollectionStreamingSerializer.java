@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A streaming {@link Serializer} for an {@code ImmutableList} or {@code ImmutableSet}. It writes
+ * the size and then each element, and reads them back into a builder. The builder
+ * is presized from the size that was written, but to at most {@link #MAX_PREALLOCATED}.
+ */
+final class ImmutableCollectionStreamingSerializer extends StreamingSerializer {
+
+  private final TypeMirror elementType;
+  private final Serializer elementSerializer;
+
+  ImmutableCollectionStreamingSerializer(
+      TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    super(type, factory, processingEnv);
+    this.elementType = elementType(MoreTypes.asDeclared(type).getTypeArguments().get(0));
+    this.elementSerializer = elementSerializer(elementType);
+  }
+
+  @Override
+  public CodeBlock writeTo(CodeBlock out, CodeBlock expression) {
+    CodeBlock collection = factory.newIdentifier("collection");
+    CodeBlock element = factory.newIdentifier("element");
+    return CodeBlock.builder()
+        .addStatement("$T $L = $L", type, collection, expression)
+        .beginControlFlow("if ($L == null)", collection)
+        .addStatement("$L.writeInt(-1)", out)
+        .nextControlFlow("else")
+        .addStatement("$L.writeInt($L.size())", out, collection)
+        .beginControlFlow("for ($T $L : $L)", elementType, element, collection)
+        .add(elementSerializer.writeTo(out, element))
+        .endControlFlow()
+        .endControlFlow()
+        .build();
+  }
+
+  @Override
+  public CodeBlock readFrom(CodeBlock in, CodeBlock variable) {
+    CodeBlock size = factory.newIdentifier("size");
+    CodeBlock builder = factory.newIdentifier("builder");
+    CodeBlock index = factory.newIdentifier("i");
+    CodeBlock element = factory.newIdentifier("element");
+    return CodeBlock.builder()
+        .addStatement("int $L = $L.readInt()", size, in)
+        .beginControlFlow("if ($L < 0)", size)
+        .addStatement("$L = null", variable)
+        .nextControlFlow("else")
+        .addStatement(
+            "$T $L = $T.builderWithExpectedSize($L)",
+            builderType(TypeName.get(elementType)),
+            builder,
+            ClassName.get(MoreTypes.asTypeElement(type)),
+            expectedSize(size))
+        .beginControlFlow("for (int $1L = 0; $1L < $2L; $1L++)", index, size)
+        .addStatement("$T $L", elementType, element)
+        .add(elementSerializer.readFrom(in, element))
+        .addStatement("$L.add($L)", builder, element)
+        .endControlFlow()
+        .addStatement("$L = $L.build()", variable, builder)
+        .endControlFlow()
+        .build();
+  }
+}
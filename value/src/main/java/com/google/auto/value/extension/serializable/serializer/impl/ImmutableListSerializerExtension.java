@@ -32,7 +32,9 @@ import javax.lang.model.type.TypeMirror;
 /**
  * A {@link SerializerExtension} that deserializes objects inside an {@link ImmutableList}.
  *
- * <p>Enables unserializable objects inside an ImmutableList to be serializable.
+ * <p>Enables unserializable objects inside an ImmutableList to be serializable. Also provides a
+ * {@link Serializer#isStreaming streaming} serializer that writes the size of the list and then its
+ * elements, without copying the list.
  */
 @AutoService(SerializerExtension.class)
 public final class ImmutableListSerializerExtension implements SerializerExtension {
@@ -59,6 +61,16 @@ public final class ImmutableListSerializerExtension implements SerializerExtensi
         new ImmutableListSerializer(containedTypeSerializer, factory, processingEnv));
   }
 
+  @Override
+  public Optional<Serializer> getStreamingSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    if (!isImmutableList(typeMirror)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new ImmutableCollectionStreamingSerializer(typeMirror, factory, processingEnv));
+  }
+
   private static class ImmutableListSerializer implements Serializer {
 
     private final Serializer containedTypeSerializer;
@@ -33,7 +33,9 @@ import javax.lang.model.type.TypeMirror;
 /**
  * A {@link SerializerExtension} that deserializes objects inside an {@link ImmutableMap}.
  *
- * <p>Enables unserializable objects inside an ImmutableMap to be serializable.
+ * <p>Enables unserializable objects inside an ImmutableMap to be serializable. Also provides a
+ * {@link Serializer#isStreaming streaming} serializer that writes the size of the map and then its
+ * entries, without copying the map.
  */
 @AutoService(SerializerExtension.class)
 public final class ImmutableMapSerializerExtension implements SerializerExtension {
@@ -63,6 +65,15 @@ public final class ImmutableMapSerializerExtension implements SerializerExtensio
             keyType, valueType, keyTypeSerializer, valueTypeSerializer, factory, processingEnv));
   }
 
+  @Override
+  public Optional<Serializer> getStreamingSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    if (!isImmutableMap(typeMirror)) {
+      return Optional.empty();
+    }
+    return Optional.of(new ImmutableMapStreamingSerializer(typeMirror, factory, processingEnv));
+  }
+
   private static class ImmutableMapSerializer implements Serializer {
 
     private final TypeMirror keyType;
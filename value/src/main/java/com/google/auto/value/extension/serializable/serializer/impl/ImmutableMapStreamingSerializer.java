@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A streaming {@link Serializer} for an {@code ImmutableMap}. It writes the size and then each key
+ * followed by its value, and reads them back into a builder. The builder
+ * is presized from the size that was written, but to at most {@link #MAX_PREALLOCATED}.
+ */
+final class ImmutableMapStreamingSerializer extends StreamingSerializer {
+
+  private final TypeMirror keyType;
+  private final TypeMirror valueType;
+  private final Serializer keySerializer;
+  private final Serializer valueSerializer;
+
+  ImmutableMapStreamingSerializer(
+      TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    super(type, factory, processingEnv);
+    List<? extends TypeMirror> typeArguments = MoreTypes.asDeclared(type).getTypeArguments();
+    this.keyType = elementType(typeArguments.get(0));
+    this.valueType = elementType(typeArguments.get(1));
+    this.keySerializer = elementSerializer(keyType);
+    this.valueSerializer = elementSerializer(valueType);
+  }
+
+  @Override
+  public CodeBlock writeTo(CodeBlock out, CodeBlock expression) {
+    CodeBlock map = factory.newIdentifier("map");
+    CodeBlock entry = factory.newIdentifier("entry");
+    TypeName entryType =
+        ParameterizedTypeName.get(
+            ClassName.get(Map.Entry.class),
+            WildcardTypeName.subtypeOf(TypeName.get(keyType)),
+            WildcardTypeName.subtypeOf(TypeName.get(valueType)));
+    return CodeBlock.builder()
+        .addStatement("$T $L = $L", type, map, expression)
+        .beginControlFlow("if ($L == null)", map)
+        .addStatement("$L.writeInt(-1)", out)
+        .nextControlFlow("else")
+        .addStatement("$L.writeInt($L.size())", out, map)
+        .beginControlFlow("for ($T $L : $L.entrySet())", entryType, entry, map)
+        .add(keySerializer.writeTo(out, CodeBlock.of("$L.getKey()", entry)))
+        .add(valueSerializer.writeTo(out, CodeBlock.of("$L.getValue()", entry)))
+        .endControlFlow()
+        .endControlFlow()
+        .build();
+  }
+
+  @Override
+  public CodeBlock readFrom(CodeBlock in, CodeBlock variable) {
+    CodeBlock size = factory.newIdentifier("size");
+    CodeBlock builder = factory.newIdentifier("builder");
+    CodeBlock index = factory.newIdentifier("i");
+    CodeBlock key = factory.newIdentifier("key");
+    CodeBlock value = factory.newIdentifier("value");
+    return CodeBlock.builder()
+        .addStatement("int $L = $L.readInt()", size, in)
+        .beginControlFlow("if ($L < 0)", size)
+        .addStatement("$L = null", variable)
+        .nextControlFlow("else")
+        .addStatement(
+            "$T $L = $T.builderWithExpectedSize($L)",
+            builderType(TypeName.get(keyType), TypeName.get(valueType)),
+            builder,
+            ClassName.get(MoreTypes.asTypeElement(type)),
+            expectedSize(size))
+        .beginControlFlow("for (int $1L = 0; $1L < $2L; $1L++)", index, size)
+        .addStatement("$T $L", keyType, key)
+        .add(keySerializer.readFrom(in, key))
+        .addStatement("$T $L", valueType, value)
+        .add(valueSerializer.readFrom(in, value))
+        .addStatement("$L.put($L, $L)", builder, key, value)
+        .endControlFlow()
+        .addStatement("$L = $L.build()", variable, builder)
+        .endControlFlow()
+        .build();
+  }
+}
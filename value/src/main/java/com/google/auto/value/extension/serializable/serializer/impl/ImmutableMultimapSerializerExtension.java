@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.service.AutoService;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerExtension;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.google.common.collect.ImmutableSet;
+import java.util.Optional;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A {@link SerializerExtension} that streams the keys and values of an {@code ImmutableMultimap},
+ * {@code ImmutableListMultimap}, or {@code ImmutableSetMultimap}.
+ *
+ * <p>This extension only provides a {@link Serializer#isStreaming streaming} serializer, so a
+ * multimap of unserializable objects is only serializable in a compact {@code
+ * SerializableAutoValue}.
+ */
+@AutoService(SerializerExtension.class)
+public final class ImmutableMultimapSerializerExtension implements SerializerExtension {
+
+  private static final ImmutableSet<String> MULTIMAP_CLASSES =
+      ImmutableSet.of(
+          "com.google.common.collect.ImmutableMultimap",
+          "com.google.common.collect.ImmutableListMultimap",
+          "com.google.common.collect.ImmutableSetMultimap");
+
+  public ImmutableMultimapSerializerExtension() {}
+
+  @Override
+  public Optional<Serializer> getSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    return Optional.empty();
+  }
+
+  @Override
+  public Optional<Serializer> getStreamingSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    if (!isImmutableMultimap(typeMirror)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new ImmutableMultimapStreamingSerializer(typeMirror, factory, processingEnv));
+  }
+
+  private static boolean isImmutableMultimap(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+
+    return MULTIMAP_CLASSES.contains(
+        MoreTypes.asTypeElement(type).getQualifiedName().toString());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A streaming {@link Serializer} for an {@code ImmutableMultimap}, {@code ImmutableListMultimap},
+ * or {@code ImmutableSetMultimap}. It writes the number of distinct keys, and then each key
+ * followed by the number of its values and the values themselves.
+ */
+final class ImmutableMultimapStreamingSerializer extends StreamingSerializer {
+
+  private final TypeMirror keyType;
+  private final TypeMirror valueType;
+  private final Serializer keySerializer;
+  private final Serializer valueSerializer;
+
+  ImmutableMultimapStreamingSerializer(
+      TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    super(type, factory, processingEnv);
+    List<? extends TypeMirror> typeArguments = MoreTypes.asDeclared(type).getTypeArguments();
+    this.keyType = elementType(typeArguments.get(0));
+    this.valueType = elementType(typeArguments.get(1));
+    this.keySerializer = elementSerializer(keyType);
+    this.valueSerializer = elementSerializer(valueType);
+  }
+
+  @Override
+  public CodeBlock writeTo(CodeBlock out, CodeBlock expression) {
+    CodeBlock multimap = factory.newIdentifier("multimap");
+    CodeBlock entry = factory.newIdentifier("entry");
+    CodeBlock value = factory.newIdentifier("value");
+    TypeName entryType =
+        ParameterizedTypeName.get(
+            ClassName.get(Map.Entry.class),
+            WildcardTypeName.subtypeOf(TypeName.get(keyType)),
+            WildcardTypeName.subtypeOf(
+                ParameterizedTypeName.get(
+                    ClassName.get(Collection.class),
+                    WildcardTypeName.subtypeOf(TypeName.get(valueType)))));
+    return CodeBlock.builder()
+        .addStatement("$T $L = $L", type, multimap, expression)
+        .beginControlFlow("if ($L == null)", multimap)
+        .addStatement("$L.writeInt(-1)", out)
+        .nextControlFlow("else")
+        .addStatement("$L.writeInt($L.keySet().size())", out, multimap)
+        .beginControlFlow("for ($T $L : $L.asMap().entrySet())", entryType, entry, multimap)
+        .add(keySerializer.writeTo(out, CodeBlock.of("$L.getKey()", entry)))
+        .addStatement("$L.writeInt($L.getValue().size())", out, entry)
+        .beginControlFlow("for ($T $L : $L.getValue())", valueType, value, entry)
+        .add(valueSerializer.writeTo(out, value))
+        .endControlFlow()
+        .endControlFlow()
+        .endControlFlow()
+        .build();
+  }
+
+  @Override
+  public CodeBlock readFrom(CodeBlock in, CodeBlock variable) {
+    CodeBlock keys = factory.newIdentifier("keys");
+    CodeBlock builder = factory.newIdentifier("builder");
+    CodeBlock keyIndex = factory.newIdentifier("i");
+    CodeBlock key = factory.newIdentifier("key");
+    CodeBlock values = factory.newIdentifier("values");
+    CodeBlock valueIndex = factory.newIdentifier("j");
+    CodeBlock value = factory.newIdentifier("value");
+    return CodeBlock.builder()
+        .addStatement("int $L = $L.readInt()", keys, in)
+        .beginControlFlow("if ($L < 0)", keys)
+        .addStatement("$L = null", variable)
+        .nextControlFlow("else")
+        .addStatement(
+            "$T $L = $T.builder()",
+            builderType(TypeName.get(keyType), TypeName.get(valueType)),
+            builder,
+            ClassName.get(MoreTypes.asTypeElement(type)))
+        .beginControlFlow("for (int $1L = 0; $1L < $2L; $1L++)", keyIndex, keys)
+        .addStatement("$T $L", keyType, key)
+        .add(keySerializer.readFrom(in, key))
+        .addStatement("int $L = $L.readInt()", values, in)
+        .beginControlFlow("for (int $1L = 0; $1L < $2L; $1L++)", valueIndex, values)
+        .addStatement("$T $L", valueType, value)
+        .add(valueSerializer.readFrom(in, value))
+        .addStatement("$L.put($L, $L)", builder, key, value)
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("$L = $L.build()", variable, builder)
+        .endControlFlow()
+        .build();
+  }
+}
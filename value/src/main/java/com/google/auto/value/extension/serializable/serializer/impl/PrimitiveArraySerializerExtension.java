@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.service.AutoService;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerExtension;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.google.common.base.Ascii;
+import com.squareup.javapoet.CodeBlock;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A {@link SerializerExtension} that streams primitive arrays.
+ *
+ * <p>Primitive arrays are already serializable, so this extension only provides a {@link
+ * Serializer#isStreaming streaming} serializer. That writes the length of the array followed by its
+ * elements, without the class descriptor that {@code writeObject} would write. Reading back
+ * allocates the array in steps as its elements are read, rather than trusting the length up front.
+ */
+@AutoService(SerializerExtension.class)
+public final class PrimitiveArraySerializerExtension implements SerializerExtension {
+
+  public PrimitiveArraySerializerExtension() {}
+
+  @Override
+  public Optional<Serializer> getSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    return Optional.empty();
+  }
+
+  @Override
+  public Optional<Serializer> getStreamingSerializer(
+      TypeMirror typeMirror, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    if (typeMirror.getKind() != TypeKind.ARRAY
+        || !MoreTypes.asArray(typeMirror).getComponentType().getKind().isPrimitive()) {
+      return Optional.empty();
+    }
+    return Optional.of(new PrimitiveArraySerializer(typeMirror, factory, processingEnv));
+  }
+
+  private static final class PrimitiveArraySerializer extends StreamingSerializer {
+
+    private final TypeMirror componentType;
+    private final String methodSuffix;
+
+    PrimitiveArraySerializer(
+        TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+      super(type, factory, processingEnv);
+      this.componentType = MoreTypes.asArray(type).getComponentType();
+      // Int for int, and so on, for the methods of ObjectOutput and ObjectInput.
+      String kind = componentType.getKind().name();
+      this.methodSuffix = kind.charAt(0) + Ascii.toLowerCase(kind.substring(1));
+    }
+
+    @Override
+    public CodeBlock writeTo(CodeBlock out, CodeBlock expression) {
+      CodeBlock array = factory.newIdentifier("array");
+      CodeBlock.Builder writeTo =
+          CodeBlock.builder()
+              .addStatement("$T $L = $L", type, array, expression)
+              .beginControlFlow("if ($L == null)", array)
+              .addStatement("$L.writeInt(-1)", out)
+              .nextControlFlow("else")
+              .addStatement("$L.writeInt($L.length)", out, array);
+      if (componentType.getKind() == TypeKind.BYTE) {
+        writeTo.addStatement("$L.write($L)", out, array);
+      } else {
+        CodeBlock element = factory.newIdentifier("element");
+        writeTo
+            .beginControlFlow("for ($T $L : $L)", componentType, element, array)
+            .addStatement("$L.write$L($L)", out, methodSuffix, element)
+            .endControlFlow();
+      }
+      return writeTo.endControlFlow().build();
+    }
+
+    @Override
+    public CodeBlock readFrom(CodeBlock in, CodeBlock variable) {
+      CodeBlock length = factory.newIdentifier("length");
+      CodeBlock array = factory.newIdentifier("array");
+      CodeBlock.Builder readFrom =
+          CodeBlock.builder()
+              .addStatement("int $L = $L.readInt()", length, in)
+              .beginControlFlow("if ($L < 0)", length)
+              .addStatement("$L = null", variable)
+              .nextControlFlow("else")
+              .addStatement(
+                  "$T $L = new $T[$L]",
+                  type,
+                  array,
+                  componentType,
+                  expectedSize(length));
+      // The array starts out no bigger than MAX_PREALLOCATED and doubles as elements arrive, so a
+      // stream that claims a huge length without the data to back it can't make us allocate much.
+      if (componentType.getKind() == TypeKind.BYTE) {
+        CodeBlock read = factory.newIdentifier("read");
+        readFrom
+            .addStatement("$L.readFully($L)", in, array)
+            .beginControlFlow("while ($L.length < $L)", array, length)
+            .addStatement("int $L = $L.length", read, array)
+            .addStatement(
+                "$1L = $2T.copyOf($1L, (int) $3T.min($4L, 2L * $5L))",
+                array,
+                Arrays.class,
+                Math.class,
+                length,
+                read)
+            .addStatement("$1L.readFully($2L, $3L, $2L.length - $3L)", in, array, read)
+            .endControlFlow();
+      } else {
+        CodeBlock index = factory.newIdentifier("i");
+        readFrom
+            .beginControlFlow("for (int $1L = 0; $1L < $2L; $1L++)", index, length)
+            .beginControlFlow("if ($L == $L.length)", index, array)
+            .addStatement(
+                "$1L = $2T.copyOf($1L, (int) $3T.min($4L, 2L * $5L))",
+                array,
+                Arrays.class,
+                Math.class,
+                length,
+                index)
+            .endControlFlow()
+            .addStatement("$L[$L] = $L.read$L()", array, index, in, methodSuffix)
+            .endControlFlow();
+      }
+      return readFrom.addStatement("$L = $L", variable, array).endControlFlow().build();
+    }
+  }
+}
@@ -49,6 +49,17 @@ public final class SerializerFactoryImpl implements SerializerFactory {
     return IdentitySerializerFactory.getSerializer(typeMirror);
   }
 
+  @Override
+  public Optional<Serializer> getStreamingSerializer(TypeMirror typeMirror) {
+    for (SerializerExtension extension : extensions) {
+      Optional<Serializer> serializer = extension.getStreamingSerializer(typeMirror, this, env);
+      if (serializer.isPresent()) {
+        return serializer;
+      }
+    }
+    return Optional.empty();
+  }
+
   @Override
   public CodeBlock newIdentifier(String prefix) {
     return CodeBlock.of("$L$$$L", prefix, idCount.incrementAndGet());
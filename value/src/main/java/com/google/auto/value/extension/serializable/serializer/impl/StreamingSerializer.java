@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import com.google.auto.common.MoreTypes;
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.interfaces.SerializerFactory;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+
+/**
+ * A base class for {@link Serializer#isStreaming streaming} serializers. The conversion to and from
+ * a proxy type, which is still used when the {@code @SerializableAutoValue} class is not compact,
+ * is delegated to the serializer that the factory returns for the same type.
+ *
+ * <p>Every streaming serializer writes a null value as a size of -1, so that it doesn't need to
+ * know whether the property is {@code @Nullable}.
+ *
+ * <p>A size that is read back comes from the stream, which may have been crafted. So generated code
+ * never allocates more than {@link #MAX_PREALLOCATED} elements because of a size alone. Beyond that,
+ * storage only grows as elements are actually read, and a stream that is too short ends with an
+ * {@code EOFException}.
+ */
+abstract class StreamingSerializer implements Serializer {
+
+  /** The largest number of elements that generated code allocates before reading any of them. */
+  static final int MAX_PREALLOCATED = 1024;
+
+  final TypeMirror type;
+  final SerializerFactory factory;
+  final ProcessingEnvironment processingEnv;
+  private final Serializer proxySerializer;
+
+  StreamingSerializer(
+      TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    this.type = type;
+    this.factory = factory;
+    this.processingEnv = processingEnv;
+    this.proxySerializer = factory.getSerializer(type);
+  }
+
+  @Override
+  public TypeMirror proxyFieldType() {
+    return proxySerializer.proxyFieldType();
+  }
+
+  @Override
+  public CodeBlock toProxy(CodeBlock expression) {
+    return proxySerializer.toProxy(expression);
+  }
+
+  @Override
+  public CodeBlock fromProxy(CodeBlock expression) {
+    return proxySerializer.fromProxy(expression);
+  }
+
+  @Override
+  public boolean isIdentity() {
+    return proxySerializer.isIdentity();
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return true;
+  }
+
+  /**
+   * Returns the type of the elements of a container, given its type argument. A wildcard is
+   * replaced by its upper bound, so that the result can be the type of a local variable.
+   */
+  final TypeMirror elementType(TypeMirror typeArgument) {
+    if (typeArgument.getKind() != TypeKind.WILDCARD) {
+      return typeArgument;
+    }
+    TypeMirror extendsBound = ((WildcardType) typeArgument).getExtendsBound();
+    return (extendsBound != null)
+        ? extendsBound
+        : processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType();
+  }
+
+  /** Returns a serializer for the elements of a container, preferring a streaming one. */
+  final Serializer elementSerializer(TypeMirror elementType) {
+    return factory
+        .getStreamingSerializer(elementType)
+        .orElseGet(() -> factory.getSerializer(elementType));
+  }
+
+  /**
+   * Returns an expression for the expected size to give a builder, given an expression for the size
+   * that was read from the stream.
+   */
+  static CodeBlock expectedSize(CodeBlock size) {
+    return CodeBlock.of("$T.min($L, $L)", Math.class, size, MAX_PREALLOCATED);
+  }
+
+  /** Returns the {@code Builder} class nested in the class of {@link #type}, parameterized. */
+  final TypeName builderType(TypeName... typeArguments) {
+    return ParameterizedTypeName.get(
+        ClassName.get(MoreTypes.asTypeElement(type)).nestedClass("Builder"), typeArguments);
+  }
+}
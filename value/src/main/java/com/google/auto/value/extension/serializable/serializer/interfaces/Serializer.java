@@ -15,12 +15,19 @@
  */
 package com.google.auto.value.extension.serializable.serializer.interfaces;
 
+import com.google.auto.value.extension.serializable.serializer.runtime.FunctionWithExceptions;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
 import javax.lang.model.type.TypeMirror;
 
 /**
  * A Serializer, at compile time, generates code to map an unserializable type to a serializable
  * type. It also generates the reverse code to re-create the original type.
+ *
+ * <p>A <i>streaming</i> Serializer can also generate code that writes a value directly to an
+ * {@link java.io.ObjectOutput}, and reads it back from an {@link java.io.ObjectInput}, without
+ * first converting it to the proxy type. A {@code @SerializableAutoValue(compact = true)} class
+ * uses that code when it is available.
  */
 public interface Serializer {
 
@@ -37,4 +44,49 @@ public interface Serializer {
   default boolean isIdentity() {
     return false;
   }
+
+  /**
+   * Returns true if {@link #writeTo} and {@link #readFrom} write and read values directly, rather
+   * than going through {@link #proxyFieldType}.
+   */
+  default boolean isStreaming() {
+    return false;
+  }
+
+  /**
+   * Creates statements that write the value of {@code expression}, which may be null, to the
+   * {@code ObjectOutput} called {@code out}. The default implementation converts the value with
+   * {@link #toProxy} and writes the result with {@code writeObject}.
+   */
+  default CodeBlock writeTo(CodeBlock out, CodeBlock expression) {
+    return CodeBlock.builder().addStatement("$L.writeObject($L)", out, toProxy(expression)).build();
+  }
+
+  /**
+   * Creates statements that read a value written by {@link #writeTo} from the {@code ObjectInput}
+   * called {@code in}, and assign it to {@code variable}. The variable has the original type, and
+   * the statements may throw {@code IOException} or {@code ClassNotFoundException}. The default
+   * implementation reads an object with {@code readObject} and converts it with {@link
+   * #fromProxy}.
+   */
+  default CodeBlock readFrom(CodeBlock in, CodeBlock variable) {
+    TypeName proxyType = TypeName.get(proxyFieldType());
+    CodeBlock readProxy = CodeBlock.of("($T) $L.readObject()", proxyType, in);
+    if (isIdentity()) {
+      return CodeBlock.builder().addStatement("$L = $L", variable, readProxy).build();
+    }
+    // fromProxy can throw any exception, so it goes through the same wrapper as in the built-in
+    // serializers.
+    CodeBlock proxy = CodeBlock.of("proxy$$");
+    return CodeBlock.builder()
+        .addStatement(
+            "$L = $T.wrapper(($T $L) -> $L).apply($L)",
+            variable,
+            FunctionWithExceptions.class,
+            proxyType,
+            proxy,
+            fromProxy(proxy),
+            readProxy)
+        .build();
+  }
 }
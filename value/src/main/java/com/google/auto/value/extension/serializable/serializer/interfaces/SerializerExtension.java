@@ -48,4 +48,22 @@ public interface SerializerExtension {
    */
   Optional<Serializer> getSerializer(
       TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv);
+
+  /**
+   * Returns a {@link Serializer#isStreaming streaming} {@link Serializer} if this {@link
+   * SerializerExtension} can write the given {@code type} directly to an {@code ObjectOutput}.
+   * Otherwise, {@code Optional.empty} is returned, which is what the default implementation does.
+   *
+   * <p>This is called even if {@link #getSerializer} returns {@code Optional.empty} for the type,
+   * since a type that is already serializable might still be written more efficiently by a
+   * streaming serializer.
+   *
+   * @param type the type being serialized
+   * @param factory a {@link SerializerFactory} that can be used to serialize nested types
+   * @param processingEnv the processing environment provided by the annotation processing framework
+   */
+  default Optional<Serializer> getStreamingSerializer(
+      TypeMirror type, SerializerFactory factory, ProcessingEnvironment processingEnv) {
+    return Optional.empty();
+  }
 }
@@ -16,6 +16,7 @@
 package com.google.auto.value.extension.serializable.serializer.interfaces;
 
 import com.squareup.javapoet.CodeBlock;
+import java.util.Optional;
 import javax.lang.model.type.TypeMirror;
 
 /**
@@ -28,6 +29,17 @@ public interface SerializerFactory {
   /** Returns a {@link Serializer} for the given {@link TypeMirror}. */
   Serializer getSerializer(TypeMirror type);
 
+  /**
+   * Returns a {@link Serializer#isStreaming streaming} {@link Serializer} for the given {@link
+   * TypeMirror}, if there is one.
+   *
+   * <p>The default implementation of this method returns {@code Optional.empty} for compatibility
+   * reasons.
+   */
+  default Optional<Serializer> getStreamingSerializer(TypeMirror type) {
+    return Optional.empty();
+  }
+
   /**
    * Returns an identifier beginning with the given prefix and that is distinct from any identifier
    * returned by another call to this method. The returned identifier will contain a {@code $},
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.auto.value.extension.toprettystring;
+
+/**
+ * The limits of a pretty string that is being generated, and how far it has got. Generated code
+ * creates one of these from the attributes of a {@link ToPrettyString} annotation that sets any of
+ * {@link ToPrettyString#maxElements maxElements}, {@link ToPrettyString#maxDepth maxDepth}, or
+ * {@link ToPrettyString#maxChars maxChars}, and passes it to every method that helps to print that
+ * pretty string.
+ *
+ * <p>A type can declare a {@code void} method with the same name as its {@code @ToPrettyString}
+ * method that takes a {@link StringBuilder}, an {@code int} indentation level, and a budget. The
+ * generated code for an enclosing type calls that method with its own budget, so that the limits of
+ * the enclosing pretty string also apply inside the nested value.
+ *
+ * <p>A budget is not thread-safe, and belongs to a single pretty string while it is generated.
+ */
+public final class PrettyStringBudget {
+  private final int maxElements;
+  private final int maxDepth;
+  private final int maxChars;
+  private final int start;
+  private int depth;
+
+  private PrettyStringBudget(int maxElements, int maxDepth, int maxChars, int start) {
+    this.maxElements = maxElements;
+    this.maxDepth = maxDepth;
+    this.maxChars = maxChars;
+    this.start = start;
+  }
+
+  /**
+   * Returns a budget for a pretty string that will be appended to {@code builder}, starting at its
+   * current length. A limit of {@link Integer#MAX_VALUE} means that there is no limit.
+   */
+  public static PrettyStringBudget of(
+      StringBuilder builder, int maxElements, int maxDepth, int maxChars) {
+    return new PrettyStringBudget(maxElements, maxDepth, maxChars, builder.length());
+  }
+
+  /**
+   * Returns true if the elements of a collection, array, map, or multimap that starts now would be
+   * nested too deeply to be printed.
+   */
+  public boolean atMaxDepth() {
+    return depth >= maxDepth;
+  }
+
+  /** Records that the elements of a collection, array, map, or multimap are being printed. */
+  public void enterCollection() {
+    depth++;
+  }
+
+  /** Records that the elements of the innermost collection have all been printed. */
+  public void exitCollection() {
+    depth--;
+  }
+
+  /**
+   * Returns true if no more elements should be printed, given the {@code builder} that the pretty
+   * string is being appended to and the number of elements of the current collection that have
+   * already been printed.
+   */
+  public boolean isSpent(StringBuilder builder, int count) {
+    return count >= maxElements || builder.length() - start >= maxChars;
+  }
+}
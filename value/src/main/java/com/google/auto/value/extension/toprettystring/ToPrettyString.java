@@ -41,6 +41,39 @@ import java.util.Collection;
  *
  * <p>{@code @ToPrettyString} is valid on overridden {@code toString()} and other methods alike.
  *
+ * <p>The {@link #maxElements}, {@link #maxDepth}, and {@link #maxChars} attributes bound the work
+ * done by a generated implementation, so that a value holding very large collections can still be
+ * logged cheaply. They have no effect on a method that is not generated.
+ *
+ * <p>Those limits only reach inside a nested value whose type declares a second appending method,
+ * described below, that also takes a {@link PrettyStringBudget}:
+ *
+ * <pre>{@code
+ * abstract void toPrettyString(
+ *     StringBuilder builder, int indentLevel, PrettyStringBudget budget);
+ * }</pre>
+ *
+ * <p>The generated code for an enclosing type calls this method with its own budget, and the nested
+ * value is printed within it, instead of within the limits of its own annotation. Such a method that
+ * is abstract in an {@code @AutoValue} class is generated too.
+ *
+ * <p>A type can also declare a {@code void} method with the same name that takes a {@link
+ * StringBuilder} and an {@code int} indentation level, and appends the pretty string to the
+ * builder, indenting every line after the first by that many levels. When such a method is
+ * abstract in an {@code @AutoValue} class, it is generated too. The generated code for an enclosing
+ * type calls it directly, so that the pretty string of the nested value is not built as a separate
+ * string and then re-indented.
+ *
+ * <pre>{@code
+ * @AutoValue
+ * abstract class Nested {
+ *   @ToPrettyString
+ *   abstract String toPrettyString();
+ *
+ *   abstract void toPrettyString(StringBuilder builder, int indentLevel);
+ * }
+ * }</pre>
+ *
  * <h2>Example</h2>
  *
  * <pre>{@code
@@ -65,4 +98,29 @@ import java.util.Collection;
  */
 @Documented
 @Target(METHOD)
-public @interface ToPrettyString {}
+public @interface ToPrettyString {
+  /**
+   * The maximum number of elements of each collection, array, map, or multimap that are printed
+   * in a generated pretty string. The remaining elements are summarized as {@code ... (N more)},
+   * and are not visited at all. By default there is no limit.
+   */
+  int maxElements() default Integer.MAX_VALUE;
+
+  /**
+   * The maximum nesting depth of collections, arrays, maps, and multimaps whose elements are
+   * printed in a generated pretty string. A collection that is the value of a property has depth
+   * 1, a collection inside that collection has depth 2, and so on. Only collections count, so a
+   * collection in a nested value that is the element of a list has depth 2, as does a map value
+   * that is itself a map. A deeper collection is printed as, for example, {@code [... (3 more)]}.
+   * By default there is no limit.
+   */
+  int maxDepth() default Integer.MAX_VALUE;
+
+  /**
+   * The number of characters after which a generated pretty string stops printing further elements
+   * of collections, arrays, maps, and multimaps. The limit is checked before each element, so the
+   * result can be somewhat longer than this, for example when a single element has a long string
+   * representation. By default there is no limit.
+   */
+  int maxChars() default Integer.MAX_VALUE;
+}
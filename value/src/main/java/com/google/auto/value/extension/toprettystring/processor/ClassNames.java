@@ -20,6 +20,8 @@ package com.google.auto.value.extension.toprettystring.processor;
 final class ClassNames {
   static final String TO_PRETTY_STRING_NAME =
       "com.google.auto.value.extension.toprettystring.ToPrettyString";
+  static final String PRETTY_STRING_BUDGET_NAME =
+      "com.google.auto.value.extension.toprettystring.PrettyStringBudget";
 
   private ClassNames() {}
 }
@@ -16,9 +16,14 @@
 
 package com.google.auto.value.extension.toprettystring.processor;
 
+import static com.google.auto.common.AnnotationMirrors.getAnnotationValue;
 import static com.google.auto.common.MoreElements.getLocalAndInheritedMethods;
 import static com.google.auto.common.MoreTypes.asTypeElement;
+import static com.google.auto.value.extension.toprettystring.processor.Annotations.toPrettyStringAnnotation;
+import static com.google.auto.value.extension.toprettystring.processor.ClassNames.PRETTY_STRING_BUDGET_NAME;
 import static com.google.auto.value.extension.toprettystring.processor.ExtensionClassTypeSpecBuilder.extensionClassTypeSpecBuilder;
+import static com.google.auto.value.extension.toprettystring.processor.ToPrettyStringMethods.appendingToPrettyStringMethod;
+import static com.google.auto.value.extension.toprettystring.processor.ToPrettyStringMethods.budgetedToPrettyStringMethod;
 import static com.google.auto.value.extension.toprettystring.processor.ToPrettyStringMethods.toPrettyStringMethod;
 import static com.google.auto.value.extension.toprettystring.processor.ToPrettyStringMethods.toPrettyStringMethods;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -55,6 +60,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -76,8 +82,12 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
   private static final ImmutableSet<Modifier> INHERITED_VISIBILITY_MODIFIERS =
       ImmutableSet.of(PUBLIC, PROTECTED);
   private static final String INDENT = "  ";
-  private static final String INDENT_METHOD_NAME = "$indent";
-  private static final CodeBlock KEY_VALUE_SEPARATOR = CodeBlock.of("$S", ": ");
+  private static final String NEWLINE_METHOD_NAME = "$newline";
+  private static final String APPEND_INDENTED_METHOD_NAME = "$appendIndented";
+  private static final ClassName PRETTY_STRING_BUDGET =
+      ClassName.bestGuess(PRETTY_STRING_BUDGET_NAME);
+  private static final CodeBlock KEY_VALUE_SEPARATOR =
+      CodeBlock.builder().addStatement("builder.append($S)", ": ").build();
 
   @Override
   public String generateClass(
@@ -94,43 +104,194 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
 
   private ImmutableList<MethodSpec> toPrettyStringMethodSpecs(Context context) {
     ExecutableElement toPrettyStringMethod = getOnlyElement(toPrettyStringMethods(context));
+    String methodName = toPrettyStringMethod.getSimpleName().toString();
+    Optional<ExecutableElement> appendingMethod =
+        appendingToPrettyStringMethod(context, toPrettyStringMethod);
+    Optional<ExecutableElement> budgetedMethod =
+        budgetedToPrettyStringMethod(context, toPrettyStringMethod);
     MethodSpec.Builder method =
-        methodBuilder(toPrettyStringMethod.getSimpleName().toString())
+        methodBuilder(methodName)
             .addAnnotation(Override.class)
             .returns(ClassName.get(String.class))
             .addModifiers(FINAL)
             .addModifiers(
-                intersection(toPrettyStringMethod.getModifiers(), INHERITED_VISIBILITY_MODIFIERS));
-
-    method.addCode("return $S", context.autoValueClass().getSimpleName() + " {");
-    ToPrettyStringImplementation implementation = ToPrettyStringImplementation.create(context);
-    method.addCode(implementation.toStringCodeBlock.build());
+                intersection(toPrettyStringMethod.getModifiers(), INHERITED_VISIBILITY_MODIFIERS))
+            .addStatement("$1T builder = new $1T()", StringBuilder.class);
+
+    Budget budget = Budget.of(toPrettyStringMethod, budgetedMethod.isPresent());
+    ImmutableList.Builder<MethodSpec> methods = ImmutableList.builder();
+    ToPrettyStringImplementation implementation;
+    if (budgetedMethod.isPresent()) {
+      // The body goes in the budgeted overload, whose limits are parameters, so that an enclosing
+      // type can pass down what remains of its own budget. The other overloads pass the limits
+      // from this type's annotation.
+      implementation =
+          ToPrettyStringImplementation.create(
+              context, budget, CodeBlock.of("indentLevel"), CodeBlock.of("indentLevel + 1"));
+      method.addStatement("$N(builder, 0, $L)", methodName, budget.newBudget());
+      methods.add(method.addStatement("return builder.toString()").build());
+      if (appendingMethod.isPresent()) {
+        methods.add(
+            appendingMethod(appendingMethod.get())
+                .addStatement("$N(builder, indentLevel, $L)", methodName, budget.newBudget())
+                .build());
+      }
+      MethodSpec.Builder budgeted = appendingMethod(budgetedMethod.get());
+      budget.addParameter(budgeted);
+      methods.add(budgeted.addCode(implementation.toStringCodeBlock.build()).build());
+    } else if (appendingMethod.isPresent()) {
+      // The body goes in the appending overload, so that the pretty string of this type can be
+      // appended directly to that of an enclosing type, at the right indentation level.
+      implementation =
+          ToPrettyStringImplementation.create(
+              context, budget, CodeBlock.of("indentLevel"), CodeBlock.of("indentLevel + 1"));
+      method.addStatement("$N(builder, 0)", methodName);
+      methods
+          .add(method.addStatement("return builder.toString()").build())
+          .add(
+              appendingMethod(appendingMethod.get())
+                  .addCode(implementation.toStringCodeBlock.build())
+                  .build());
+    } else {
+      implementation =
+          ToPrettyStringImplementation.create(
+              context, budget, CodeBlock.of("0"), CodeBlock.of("1"));
+      method.addCode(implementation.toStringCodeBlock.build());
+      methods.add(method.addStatement("return builder.toString()").build());
+    }
 
-    if (!context.properties().isEmpty()) {
-      method.addCode(" + $S", "\n");
+    methods.addAll(implementation.delegateMethods.values()).add(newlineMethod());
+    if (implementation.usesAppendIndented) {
+      methods.add(appendIndentedMethod());
     }
-    method.addCode(" + $S;\n", "}");
+    return methods.build();
+  }
 
-    return ImmutableList.<MethodSpec>builder()
-        .add(method.build())
-        .addAll(implementation.delegateMethods.values())
-        .add(indentMethod())
-        .build();
+  /**
+   * Returns the start of an implementation of {@code appendingMethod}, with the {@link
+   * StringBuilder} and indentation level parameters.
+   */
+  private static MethodSpec.Builder appendingMethod(ExecutableElement appendingMethod) {
+    return methodBuilder(appendingMethod.getSimpleName().toString())
+        .addAnnotation(Override.class)
+        .addModifiers(FINAL)
+        .addModifiers(intersection(appendingMethod.getModifiers(), INHERITED_VISIBILITY_MODIFIERS))
+        .addParameter(StringBuilder.class, "builder")
+        .addParameter(TypeName.INT, "indentLevel");
   }
 
-  private static MethodSpec indentMethod() {
-    return methodBuilder(INDENT_METHOD_NAME)
+  /** Returns a method that appends a newline and then {@code level} indents to a builder. */
+  private static MethodSpec newlineMethod() {
+    return methodBuilder(NEWLINE_METHOD_NAME)
         .addModifiers(PRIVATE, STATIC)
-        .returns(ClassName.get(String.class))
+        .addParameter(StringBuilder.class, "builder")
         .addParameter(TypeName.INT, "level")
-        .addStatement("$1T builder = new $1T()", StringBuilder.class)
+        .addStatement("builder.append('\\n')")
         .beginControlFlow("for (int i = 0; i < level; i++)")
         .addStatement("builder.append($S)", INDENT)
         .endControlFlow()
-        .addStatement("return builder.toString()")
         .build();
   }
 
+  /**
+   * Returns a method that appends a string to a builder, indenting every line after the first by
+   * {@code level} indents. The string is copied once, instead of being re-indented into a new
+   * string at each level of nesting.
+   */
+  private static MethodSpec appendIndentedMethod() {
+    return methodBuilder(APPEND_INDENTED_METHOD_NAME)
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(StringBuilder.class, "builder")
+        .addParameter(String.class, "string")
+        .addParameter(TypeName.INT, "level")
+        .addStatement("int start = 0")
+        .beginControlFlow(
+            "for (int end; (end = string.indexOf('\\n', start)) >= 0; start = end + 1)")
+        .addStatement("builder.append(string, start, end)")
+        .addStatement("$N(builder, level)", NEWLINE_METHOD_NAME)
+        .endControlFlow()
+        .addStatement("builder.append(string, start, string.length())")
+        .build();
+  }
+
+  /**
+   * The limits on the output of a generated pretty string, from the attributes of its {@link
+   * com.google.auto.value.extension.toprettystring.ToPrettyString} annotation. A limit of {@link
+   * Integer#MAX_VALUE} means that there is no limit.
+   *
+   * <p>If anything is limited, then every delegate method has a {@code PrettyStringBudget}
+   * parameter called {@code budget}, which the generated code checks before it prints each element
+   * of a collection. If the type declares a budgeted appending method, then the budget is a
+   * parameter of that method too, since an enclosing type can pass its own. Otherwise the
+   * top-level code creates the budget from the annotation. If nothing is limited, no budget code
+   * is generated.
+   */
+  private static final class Budget {
+    private final int maxElements;
+    private final int maxDepth;
+    private final int maxChars;
+    private final boolean parameter;
+
+    private Budget(int maxElements, int maxDepth, int maxChars, boolean parameter) {
+      this.maxElements = maxElements;
+      this.maxDepth = maxDepth;
+      this.maxChars = maxChars;
+      this.parameter = parameter;
+    }
+
+    static Budget of(ExecutableElement toPrettyStringMethod, boolean parameter) {
+      AnnotationMirror annotation = toPrettyStringAnnotation(toPrettyStringMethod).get();
+      return new Budget(
+          (int) getAnnotationValue(annotation, "maxElements").getValue(),
+          (int) getAnnotationValue(annotation, "maxDepth").getValue(),
+          (int) getAnnotationValue(annotation, "maxChars").getValue(),
+          parameter);
+    }
+
+    boolean isLimited() {
+      return parameter
+          || maxElements != Integer.MAX_VALUE
+          || maxDepth != Integer.MAX_VALUE
+          || maxChars != Integer.MAX_VALUE;
+    }
+
+    /** Whether the top-level code must create the budget, because it is not a parameter. */
+    boolean createsBudget() {
+      return !parameter && isLimited();
+    }
+
+    /**
+     * An expression for a new budget with the limits from the annotation, for a pretty string that
+     * starts at the current length of {@code builder}.
+     */
+    CodeBlock newBudget() {
+      return CodeBlock.of(
+          "$T.of(builder, $L, $L, $L)",
+          PRETTY_STRING_BUDGET,
+          limit(maxElements),
+          limit(maxDepth),
+          limit(maxChars));
+    }
+
+    private static CodeBlock limit(int value) {
+      return value == Integer.MAX_VALUE
+          ? CodeBlock.of("$T.MAX_VALUE", Integer.class)
+          : CodeBlock.of("$L", value);
+    }
+
+    /** Adds the parameter that carries this budget to a generated method, if there is one. */
+    void addParameter(MethodSpec.Builder method) {
+      if (isLimited()) {
+        method.addParameter(PRETTY_STRING_BUDGET, "budget");
+      }
+    }
+
+    /** The argument for the parameter from {@link #addParameter}, after a comma, if any. */
+    CodeBlock argument() {
+      return CodeBlock.of(isLimited() ? ", budget" : "");
+    }
+  }
+
   private static class ToPrettyStringImplementation {
     private final Types types;
     private final Elements elements;
@@ -139,35 +300,63 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
     private final Map<Equivalence.Wrapper<TypeMirror>, MethodSpec> delegateMethods =
         new LinkedHashMap<>();
     private final Set<String> methodNames = new HashSet<>();
+    private final String packageName;
+    private final Budget budget;
+    private boolean usesAppendIndented;
 
-    private ToPrettyStringImplementation(Context context) {
+    private ToPrettyStringImplementation(Context context, Budget budget) {
       this.types = context.processingEnvironment().getTypeUtils();
       this.elements = context.processingEnvironment().getElementUtils();
+      this.packageName = context.packageName();
+      this.budget = budget;
       // do not submit: what about "inherited" static methods?
       getLocalAndInheritedMethods(context.autoValueClass(), types, elements)
           .forEach(method -> methodNames.add(method.getSimpleName().toString()));
     }
 
-    static ToPrettyStringImplementation create(Context context) {
-      ToPrettyStringImplementation implemention = new ToPrettyStringImplementation(context);
+    /**
+     * Creates the implementation, whose {@link #toStringCodeBlock} appends the pretty string to a
+     * local {@code builder}.
+     *
+     * @param indentLevel how many indent levels are used for the closing brace.
+     * @param propertyIndentLevel how many indent levels are used for each property.
+     */
+    static ToPrettyStringImplementation create(
+        Context context, Budget budget, CodeBlock indentLevel, CodeBlock propertyIndentLevel) {
+      ToPrettyStringImplementation implemention = new ToPrettyStringImplementation(context, budget);
+      if (budget.createsBudget()) {
+        implemention.toStringCodeBlock.addStatement(
+            "$T budget = $L", PRETTY_STRING_BUDGET, budget.newBudget());
+      }
+      implemention.toStringCodeBlock.addStatement(
+          "builder.append($S)", context.autoValueClass().getSimpleName() + " {");
       context
           .propertyTypes()
           .forEach(
               (propertyName, type) -> {
                 String methodName =
                     context.properties().get(propertyName).getSimpleName().toString();
-                implemention.toStringCodeBlock.add(
-                    "\n + $S + $L + $S",
-                    String.format("\n%s%s = ", INDENT, propertyName),
-                    implemention.format(CodeBlock.of("$N()", methodName), CodeBlock.of("1"), type),
-                    ",");
+                implemention
+                    .toStringCodeBlock
+                    .addStatement("$N(builder, $L)", NEWLINE_METHOD_NAME, propertyIndentLevel)
+                    .addStatement("builder.append($S)", propertyName + " = ")
+                    .add(
+                        implemention.format(
+                            CodeBlock.of("$N()", methodName), propertyIndentLevel, type))
+                    .addStatement("builder.append($S)", ",");
               });
+      if (!context.properties().isEmpty()) {
+        implemention.toStringCodeBlock.addStatement(
+            "$N(builder, $L)", NEWLINE_METHOD_NAME, indentLevel);
+      }
+      implemention.toStringCodeBlock.addStatement("builder.append($S)", "}");
       return implemention;
     }
 
     /**
-     * Returns {@code propertyAccess} formatted for use within the {@link
-     * com.google.auto.value.extension.toprettystring.ToPrettyString} implementation.
+     * Returns statements that append {@code propertyAccess}, formatted for use within the {@link
+     * com.google.auto.value.extension.toprettystring.ToPrettyString} implementation, to a local
+     * {@code builder}.
      *
      * <p>If a helper method is necessary for formatting, a {@link MethodSpec} will be added to
      * {@link #delegateMethods}.
@@ -182,24 +371,25 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
       DelegateMethod delegateMethod = new DelegateMethod(propertyAccess, indentAccess);
       switch (printableKind) {
         case PRIMITIVE:
-          return propertyAccess;
+          return CodeBlock.builder().addStatement("builder.append($L)", propertyAccess).build();
         case REGULAR_OBJECT:
           return delegateMethod
               .methodName("format")
               .invocation(
-                  elements.getTypeElement("java.lang.Object").asType(), () -> reindent("toString"));
+                  elements.getTypeElement("java.lang.Object").asType(),
+                  () -> appendIndented(CodeBlock.of("value.toString()")));
         case HAS_TO_PRETTY_STRING_METHOD:
-          ExecutableElement method =
-              toPrettyStringMethod(asTypeElement(type), types, elements).get();
-          return delegateMethod.invocation(type, () -> reindent(method.getSimpleName()));
+          return delegateMethod.invocation(type, () -> toPrettyStringMethodBody(type));
         case ARRAY:
           TypeMirror componentType = MoreTypes.asArray(type).getComponentType();
-          return delegateMethod.invocation(type, () -> forEachLoopMethodBody(componentType));
+          return delegateMethod.invocation(
+              type, () -> forEachLoopMethodBody(componentType, CodeBlock.of("value.length")));
         case COLLECTION:
           TypeMirror elementType =
               getOnlyElement(resolvedTypeParameters(type, "java.util.Collection"));
           return delegateMethod.invocation(
-              collectionOf(elementType), () -> forEachLoopMethodBody(elementType));
+              collectionOf(elementType),
+              () -> forEachLoopMethodBody(elementType, CodeBlock.of("value.size()")));
         case IMMUTABLE_PRIMITIVE_ARRAY:
           return delegateMethod.invocation(type, this::forLoopMethodBody);
         case OPTIONAL:
@@ -265,8 +455,14 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
                   parameterType,
                   methodBody));
         }
-        return CodeBlock.of(
-            "$N($L, $L)", delegateMethods.get(key).name, propertyAccess, indentAccess);
+        return CodeBlock.builder()
+            .addStatement(
+                "$N(builder, $L, $L$L)",
+                delegateMethods.get(key).name,
+                propertyAccess,
+                indentAccess,
+                budget.argument())
+            .build();
       }
 
       private String newDelegateMethodName(TypeMirror type) {
@@ -280,33 +476,64 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
 
       private MethodSpec createMethod(
           String methodName, TypeMirror type, Supplier<CodeBlock> methodBody) {
-        return methodBuilder(methodName)
-            .addModifiers(PRIVATE, STATIC)
-            .returns(ClassName.get(String.class))
-            .addParameter(TypeName.get(type), "value")
-            .addParameter(TypeName.INT, "indentLevel")
+        MethodSpec.Builder method =
+            methodBuilder(methodName)
+                .addModifiers(PRIVATE, STATIC)
+                .addParameter(StringBuilder.class, "builder")
+                .addParameter(TypeName.get(type), "value")
+                .addParameter(TypeName.INT, "indentLevel");
+        budget.addParameter(method);
+        return method
             .beginControlFlow("if (value == null)")
-            .addStatement("return $S", "null")
+            .addStatement("builder.append($S)", "null")
+            .addStatement("return")
             .endControlFlow()
             .addCode(methodBody.get())
             .build();
       }
     }
 
-    private CodeBlock reindent(CharSequence methodName) {
+    /**
+     * Returns the body of a delegate method for a type with a {@code @ToPrettyString} method. If
+     * the type also has a visible method that appends its pretty string to a {@link StringBuilder},
+     * that method is called directly. If it has one that takes a budget, that one is preferred when
+     * the output is limited, so that the limits apply inside the nested value too, and collections
+     * inside it count towards the same depth. Otherwise the pretty string is copied into the
+     * builder.
+     */
+    private CodeBlock toPrettyStringMethodBody(TypeMirror type) {
+      TypeElement typeElement = asTypeElement(type);
+      ExecutableElement method = toPrettyStringMethod(typeElement, types, elements).get();
+      Optional<ExecutableElement> appendingMethod =
+          appendingToPrettyStringMethod(typeElement, method, packageName, types, elements);
+      Optional<ExecutableElement> budgetedMethod =
+          budgetedToPrettyStringMethod(typeElement, method, packageName, types, elements);
+      if (budgetedMethod.isPresent() && budget.isLimited()) {
+        return CodeBlock.builder()
+            .addStatement(
+                "value.$N(builder, indentLevel, budget)", budgetedMethod.get().getSimpleName())
+            .build();
+      }
+      if (appendingMethod.isPresent()) {
+        return CodeBlock.builder()
+            .addStatement("value.$N(builder, indentLevel)", appendingMethod.get().getSimpleName())
+            .build();
+      }
+      return appendIndented(CodeBlock.of("value.$N()", method.getSimpleName()));
+    }
+
+    private CodeBlock appendIndented(CodeBlock string) {
+      usesAppendIndented = true;
       return CodeBlock.builder()
-          .addStatement(
-              "return value.$1N().replace($2S, $2S + $3N(indentLevel))",
-              methodName,
-              "\n",
-              INDENT_METHOD_NAME)
+          .addStatement("$N(builder, $L, indentLevel)", APPEND_INDENTED_METHOD_NAME, string)
           .build();
     }
 
-    private CodeBlock forEachLoopMethodBody(TypeMirror elementType) {
+    private CodeBlock forEachLoopMethodBody(TypeMirror elementType, CodeBlock size) {
       return loopMethodBody(
           "[",
           "]",
+          size,
           CodeBlock.of("for ($T element : value)", elementType),
           format(CodeBlock.of("element"), CodeBlock.of("indentLevel + 1"), elementType));
     }
@@ -315,8 +542,9 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
       return loopMethodBody(
           "[",
           "]",
+          CodeBlock.of("value.length()"),
           CodeBlock.of("for (int i = 0; i < value.length(); i++)"),
-          CodeBlock.of("value.get(i)"));
+          CodeBlock.builder().addStatement("builder.append(value.get(i))").build());
     }
 
     private CodeBlock mapMethodBody(TypeMirror keyType, TypeMirror valueType) {
@@ -333,49 +561,78 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
       return loopMethodBody(
           "{",
           "}",
+          CodeBlock.of("$L.size()", propertyAccess),
           CodeBlock.of("for ($L entry : $L.entrySet())", entryType, propertyAccess),
           format(CodeBlock.of("entry.getKey()"), CodeBlock.of("indentLevel + 1"), keyType),
           KEY_VALUE_SEPARATOR,
           format(CodeBlock.of("entry.getValue()"), CodeBlock.of("indentLevel + 1"), valueType));
     }
 
+    /**
+     * Returns the body of a delegate method that appends each element of a container, one per line.
+     * If the {@link Budget} limits the output, the loop stops early and the elements that were not
+     * visited are summarized as {@code ... (N more)}.
+     *
+     * @param size an expression for the number of iterations of {@code loopDeclaration}.
+     */
     private CodeBlock loopMethodBody(
         String openSymbol,
         String closeSymbol,
+        CodeBlock size,
         CodeBlock loopDeclaration,
-        CodeBlock... appendedValues) {
-      ImmutableList<CodeBlock> allAppendedValues =
-          ImmutableList.<CodeBlock>builder()
-              .add(CodeBlock.of("$S", "\n"))
-              .add(CodeBlock.of("$N(indentLevel + 1)", INDENT_METHOD_NAME))
-              .add(appendedValues)
-              .add(CodeBlock.of("$S", ","))
-              .build();
-      return CodeBlock.builder()
-          .addStatement("$1T builder = new $1T().append($2S)", StringBuilder.class, openSymbol)
-          .addStatement("boolean hasElements = false")
-          .beginControlFlow("$L", loopDeclaration)
-          .addStatement(
-              "builder$L",
-              allAppendedValues.stream()
-                  .map(value -> CodeBlock.of(".append($L)", value))
-                  .collect(CodeBlock.joining("")))
-          .addStatement("hasElements = true")
-          .endControlFlow()
-          .beginControlFlow("if (hasElements)")
-          .addStatement("builder.append($S).append($N(indentLevel))", "\n", INDENT_METHOD_NAME)
+        CodeBlock... appendStatements) {
+      CodeBlock.Builder body = CodeBlock.builder().addStatement("builder.append($S)", openSymbol);
+      boolean limited = budget.isLimited();
+      if (limited) {
+        body.beginControlFlow("if ($L > 0 && budget.atMaxDepth())", size)
+            .addStatement(
+                "builder.append($S).append($L).append($S)", "... (", size, " more)" + closeSymbol)
+            .addStatement("return")
+            .endControlFlow();
+      }
+      body.addStatement("boolean hasElements = false");
+      if (limited) {
+        body.addStatement("int count = 0").addStatement("budget.enterCollection()");
+      }
+      body.beginControlFlow("$L", loopDeclaration);
+      if (limited) {
+        body.beginControlFlow("if (budget.isSpent(builder, count))")
+            .addStatement("$N(builder, indentLevel + 1)", NEWLINE_METHOD_NAME)
+            .addStatement(
+                "builder.append($S).append($L - count).append($S)", "... (", size, " more)")
+            .addStatement("hasElements = true")
+            .addStatement("break")
+            .endControlFlow();
+      }
+      body.addStatement("$N(builder, indentLevel + 1)", NEWLINE_METHOD_NAME);
+      for (CodeBlock appendStatement : appendStatements) {
+        body.add(appendStatement);
+      }
+      body.addStatement("builder.append($S)", ",").addStatement("hasElements = true");
+      if (limited) {
+        body.addStatement("count++");
+      }
+      body.endControlFlow();
+      if (limited) {
+        body.addStatement("budget.exitCollection()");
+      }
+      return body.beginControlFlow("if (hasElements)")
+          .addStatement("$N(builder, indentLevel)", NEWLINE_METHOD_NAME)
           .endControlFlow()
-          .addStatement("return builder.append($S).toString()", closeSymbol)
+          .addStatement("builder.append($S)", closeSymbol)
           .build();
     }
 
     private CodeBlock optionalMethodBody(
         TypeMirror optionalType, PrettyPrintableKind printableKind) {
       return CodeBlock.builder()
+          .beginControlFlow("if (value.isPresent())")
+          .add(format(CodeBlock.of("value.get()"), CodeBlock.of("indentLevel"), optionalType))
+          .nextControlFlow("else")
           .addStatement(
-              "return (value.isPresent() ? $L : $S)",
-              format(CodeBlock.of("value.get()"), CodeBlock.of("indentLevel"), optionalType),
+              "builder.append($S)",
               printableKind.equals(PrettyPrintableKind.OPTIONAL) ? "<empty>" : "<absent>")
+          .endControlFlow()
           .build();
     }
 
@@ -553,7 +810,18 @@ public final class ToPrettyStringExtension extends AutoValueExtension {
 
   @Override
   public ImmutableSet<ExecutableElement> consumeMethods(Context context) {
-    return toPrettyStringMethods(context);
+    ImmutableSet<ExecutableElement> toPrettyStringMethods = toPrettyStringMethods(context);
+    return ImmutableSet.<ExecutableElement>builder()
+        .addAll(toPrettyStringMethods)
+        .addAll(
+            appendingToPrettyStringMethod(context, getOnlyElement(toPrettyStringMethods))
+                .map(ImmutableSet::of)
+                .orElse(ImmutableSet.of()))
+        .addAll(
+            budgetedToPrettyStringMethod(context, getOnlyElement(toPrettyStringMethods))
+                .map(ImmutableSet::of)
+                .orElse(ImmutableSet.of()))
+        .build();
   }
 
   @Override
@@ -18,16 +18,26 @@ package com.google.auto.value.extension.toprettystring.processor;
 
 import static com.google.auto.common.MoreElements.getLocalAndInheritedMethods;
 import static com.google.auto.value.extension.toprettystring.processor.Annotations.toPrettyStringAnnotation;
+import static com.google.auto.value.extension.toprettystring.processor.ClassNames.PRETTY_STRING_BUDGET_NAME;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.MoreCollectors.toOptional;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
 
+import com.google.auto.common.MoreElements;
+import com.google.auto.common.MoreTypes;
 import com.google.auto.value.extension.AutoValueExtension.Context;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
@@ -62,5 +72,111 @@ final class ToPrettyStringMethods {
     return toPrettyStringMethods(element, types, elements).stream().collect(toOptional());
   }
 
+  /**
+   * Returns the abstract method of an {@code @AutoValue} type that appends its pretty string to a
+   * {@link StringBuilder}, if it declares one. See {@link
+   * #appendingToPrettyStringMethod(TypeElement, ExecutableElement, String, Types, Elements)}.
+   */
+  static Optional<ExecutableElement> appendingToPrettyStringMethod(
+      Context context, ExecutableElement toPrettyStringMethod) {
+    Elements elements = context.processingEnvironment().getElementUtils();
+    return appendingToPrettyStringMethod(
+        context.abstractMethods(), toPrettyStringMethod, /* budgeted= */ false, elements);
+  }
+
+  /**
+   * Returns the method of a type that appends its pretty string to a {@link StringBuilder}, if it
+   * has one that is visible from {@code packageName}. That method has the same name as the {@link
+   * com.google.auto.value.extension.toprettystring.ToPrettyString} annotated method {@code
+   * toPrettyStringMethod}, returns {@code void}, and takes a {@link StringBuilder} and the {@code
+   * int} indentation level of every line after the first.
+   */
+  static Optional<ExecutableElement> appendingToPrettyStringMethod(
+      TypeElement element,
+      ExecutableElement toPrettyStringMethod,
+      String packageName,
+      Types types,
+      Elements elements) {
+    return appendingToPrettyStringMethod(
+            getLocalAndInheritedMethods(element, types, elements),
+            toPrettyStringMethod,
+            /* budgeted= */ false,
+            elements)
+        .filter(method -> isVisibleFrom(method, packageName, elements));
+  }
+
+  /**
+   * Returns the abstract method of an {@code @AutoValue} type that appends its pretty string to a
+   * {@link StringBuilder} within a budget, if it declares one. See {@link
+   * #budgetedToPrettyStringMethod(TypeElement, ExecutableElement, String, Types, Elements)}.
+   */
+  static Optional<ExecutableElement> budgetedToPrettyStringMethod(
+      Context context, ExecutableElement toPrettyStringMethod) {
+    Elements elements = context.processingEnvironment().getElementUtils();
+    return appendingToPrettyStringMethod(
+        context.abstractMethods(), toPrettyStringMethod, /* budgeted= */ true, elements);
+  }
+
+  /**
+   * Returns the method of a type that appends its pretty string to a {@link StringBuilder} within
+   * the budget of an enclosing pretty string, if it has one that is visible from {@code
+   * packageName}. That method is like the one found by {@link
+   * #appendingToPrettyStringMethod(TypeElement, ExecutableElement, String, Types, Elements)}, but
+   * after the indentation level it takes a {@code PrettyStringBudget}.
+   */
+  static Optional<ExecutableElement> budgetedToPrettyStringMethod(
+      TypeElement element,
+      ExecutableElement toPrettyStringMethod,
+      String packageName,
+      Types types,
+      Elements elements) {
+    return appendingToPrettyStringMethod(
+            getLocalAndInheritedMethods(element, types, elements),
+            toPrettyStringMethod,
+            /* budgeted= */ true,
+            elements)
+        .filter(method -> isVisibleFrom(method, packageName, elements));
+  }
+
+  private static Optional<ExecutableElement> appendingToPrettyStringMethod(
+      Collection<ExecutableElement> methods,
+      ExecutableElement toPrettyStringMethod,
+      boolean budgeted,
+      Elements elements) {
+    TypeElement stringBuilder = elements.getTypeElement("java.lang.StringBuilder");
+    TypeElement budget = elements.getTypeElement(PRETTY_STRING_BUDGET_NAME);
+    if (budgeted && budget == null) {
+      return Optional.empty();
+    }
+    return methods.stream()
+        .filter(method -> method.getSimpleName().equals(toPrettyStringMethod.getSimpleName()))
+        .filter(method -> !method.getModifiers().contains(STATIC))
+        .filter(method -> method.getReturnType().getKind().equals(TypeKind.VOID))
+        .filter(
+            method -> {
+              List<? extends VariableElement> parameters = method.getParameters();
+              return parameters.size() == (budgeted ? 3 : 2)
+                  && MoreTypes.equivalence()
+                      .equivalent(parameters.get(0).asType(), stringBuilder.asType())
+                  && parameters.get(1).asType().getKind().equals(TypeKind.INT)
+                  && (!budgeted
+                      || MoreTypes.equivalence()
+                          .equivalent(parameters.get(2).asType(), budget.asType()));
+            })
+        .collect(toOptional());
+  }
+
+  private static boolean isVisibleFrom(
+      ExecutableElement method, String packageName, Elements elements) {
+    if (method.getModifiers().contains(PUBLIC)) {
+      return true;
+    }
+    return !method.getModifiers().contains(PRIVATE)
+        && elements
+            .getPackageOf(MoreElements.asType(method.getEnclosingElement()))
+            .getQualifiedName()
+            .contentEquals(packageName);
+  }
+
   private ToPrettyStringMethods() {}
 }
@@ -16,6 +16,8 @@
 
 package com.google.auto.value.extension.toprettystring.processor;
 
+import static com.google.auto.common.AnnotationMirrors.getAnnotationValue;
+import static com.google.auto.value.extension.toprettystring.processor.Annotations.toPrettyStringAnnotation;
 import static com.google.auto.value.extension.toprettystring.processor.ClassNames.TO_PRETTY_STRING_NAME;
 import static com.google.auto.value.extension.toprettystring.processor.ToPrettyStringMethods.toPrettyStringMethods;
 import static java.util.stream.Collectors.joining;
@@ -36,6 +38,7 @@ import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
@@ -85,6 +88,13 @@ public final class ToPrettyStringValidator extends AbstractProcessor {
     if (!method.getParameters().isEmpty()) {
       errorReporter.reportError("@ToPrettyString methods cannot have parameters");
     }
+
+    AnnotationMirror annotation = toPrettyStringAnnotation(method).get();
+    for (String limit : ImmutableList.of("maxElements", "maxDepth", "maxChars")) {
+      if ((int) getAnnotationValue(annotation, limit).getValue() < 0) {
+        errorReporter.reportError("@ToPrettyString " + limit + " cannot be negative");
+      }
+    }
   }
 
   private void validateSingleToPrettyStringMethod(
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.processor;
+
+import com.google.auto.common.MoreTypes;
+import com.google.common.base.Equivalence;
+import java.util.HashMap;
+import java.util.Map;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Remembers the results of {@link Types#isAssignable} and {@link Types#isSubtype}. A class with
+ * hundreds of properties usually has only a handful of distinct property types, so when we check
+ * each setter or property builder against its property we end up asking the same question about
+ * the same pair of types over and over. Types are compared using {@link MoreTypes#equivalence()},
+ * so two {@code TypeMirror} instances for {@code List<String>} share a cache entry.
+ *
+ * <p>An instance should only be used while processing a single type, since {@code TypeMirror}
+ * instances from one round of annotation processing should not be compared with those from another.
+ */
+final class AssignabilityCache {
+  private static final Equivalence<TypeMirror> TYPE_EQUIVALENCE = MoreTypes.equivalence();
+
+  private final Types typeUtils;
+  private final Map<Equivalence.Wrapper<TypeMirror>, Map<Equivalence.Wrapper<TypeMirror>, Boolean>>
+      assignable = new HashMap<>();
+  private final Map<Equivalence.Wrapper<TypeMirror>, Map<Equivalence.Wrapper<TypeMirror>, Boolean>>
+      subtype = new HashMap<>();
+
+  AssignabilityCache(Types typeUtils) {
+    this.typeUtils = typeUtils;
+  }
+
+  /** Returns the same result as {@code typeUtils.isAssignable(from, to)}. */
+  boolean isAssignable(TypeMirror from, TypeMirror to) {
+    return assignable
+        .computeIfAbsent(TYPE_EQUIVALENCE.wrap(from), k -> new HashMap<>())
+        .computeIfAbsent(TYPE_EQUIVALENCE.wrap(to), k -> typeUtils.isAssignable(from, to));
+  }
+
+  /** Returns the same result as {@code typeUtils.isSubtype(sub, sup)}. */
+  boolean isSubtype(TypeMirror sub, TypeMirror sup) {
+    return subtype
+        .computeIfAbsent(TYPE_EQUIVALENCE.wrap(sub), k -> new HashMap<>())
+        .computeIfAbsent(TYPE_EQUIVALENCE.wrap(sup), k -> typeUtils.isSubtype(sub, sup));
+  }
+}
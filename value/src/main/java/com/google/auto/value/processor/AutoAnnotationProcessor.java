@@ -21,6 +21,7 @@ import static com.google.common.collect.Maps.immutableEntry;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.joining;
 
+import com.google.auto.common.AnnotationMirrors;
 import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
 import com.google.auto.common.SuperficialValidation;
@@ -176,6 +177,12 @@ public class AutoAnnotationProcessor extends AbstractProcessor {
     vars.wrapperTypesUsedInCollections = wrapperTypesUsedInCollections;
     vars.gwtCompatible = isGwtCompatible(annotationElement);
     vars.serialVersionUID = computeSerialVersionUid(members, parameters);
+    vars.intern = isIntern(method);
+    if (vars.intern && vars.gwtCompatible && !parameters.isEmpty()) {
+      // The intern table holds weak references, which GWT does not support.
+      throw abortWithError(
+          method, "@AutoAnnotation(intern = true) cannot be used with a @GwtCompatible annotation");
+    }
     ImmutableMap<String, Integer> invariableHashes = invariableHashes(members, parameters.keySet());
     vars.invariableHashSum = 0;
     for (int h : invariableHashes.values()) {
@@ -189,6 +196,12 @@ public class AutoAnnotationProcessor extends AbstractProcessor {
     writeSourceFile(fullName, text, methodClass);
   }
 
+  private static boolean isIntern(ExecutableElement method) {
+    AnnotationMirror autoAnnotation =
+        MoreElements.getAnnotationMirror(method, AUTO_ANNOTATION_NAME).get();
+    return (boolean) AnnotationMirrors.getAnnotationValue(autoAnnotation, "intern").getValue();
+  }
+
   private String getGeneratedTypeName() {
     return generatedAnnotation(elementUtils, processingEnv.getSourceVersion())
         .map(generatedAnnotation -> TypeEncoder.encode(generatedAnnotation.asType()))
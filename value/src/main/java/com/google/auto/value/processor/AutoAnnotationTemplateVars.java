@@ -80,6 +80,13 @@ class AutoAnnotationTemplateVars extends TemplateVars {
   /** The sum of the hash code contributions from the members in {@link #invariableHashes}. */
   Integer invariableHashSum;
 
+  /**
+   * True if the {@code @AutoAnnotation} method has {@code intern = true}. Then the generated class
+   * has a static {@code intern} method that returns a shared instance for equal arguments, and
+   * each instance stores its hash code in a field.
+   */
+  Boolean intern;
+
   /**
    * A computed {@code serialVersionUID} based on the names and types of the {@code @AutoAnnotation}
    * method parameters.
@@ -17,6 +17,7 @@ package com.google.auto.value.processor;
 
 import static com.google.auto.common.MoreElements.getLocalAndInheritedMethods;
 import static com.google.auto.value.processor.ClassNames.AUTO_ONE_OF_NAME;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
@@ -26,11 +27,13 @@ import com.google.auto.common.MoreTypes;
 import com.google.auto.service.AutoService;
 import com.google.auto.value.processor.MissingTypes.MissingTypeException;
 import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -44,6 +47,8 @@ import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import net.ltgt.gradle.incap.IncrementalAnnotationProcessor;
 import net.ltgt.gradle.incap.IncrementalAnnotationProcessorType;
@@ -59,8 +64,14 @@ import net.ltgt.gradle.incap.IncrementalAnnotationProcessorType;
 @SupportedAnnotationTypes(AUTO_ONE_OF_NAME)
 @IncrementalAnnotationProcessor(IncrementalAnnotationProcessorType.ISOLATING)
 public class AutoOneOfProcessor extends AutoValueishProcessor {
+  /**
+   * The option that selects compact code generation, where each {@code @AutoOneOf} type has a
+   * single implementation class instead of one per kind.
+   */
+  static final String COMPACT_OPTION = "com.google.auto.value.AutoOneOfCompact";
+
   public AutoOneOfProcessor() {
-    super(AUTO_ONE_OF_NAME, /* appliesToInterfaces= */ false);
+    super(AUTO_ONE_OF_NAME, /* appliesToInterfaces= */ true);
   }
 
   @Override
@@ -70,7 +81,7 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
 
   @Override
   public ImmutableSet<String> getSupportedOptions() {
-    return ImmutableSet.of(Nullables.NULLABLE_OPTION);
+    return ImmutableSet.of(Nullables.NULLABLE_OPTION, COMPACT_OPTION);
   }
 
   @Override
@@ -87,6 +98,8 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
     // (2) A kind getter, which is a method that returns the enum in @AutoOneOf. For
     //     example if we have @AutoOneOf(PetKind.class), this would be a method that returns
     //     PetKind.
+    // (3) A match method, which has a single parameter whose type is an interface with one method
+    //     per property, like "abstract <R> R match(Cases<R> cases)".
     // If there are abstract methods that don't fit any of the categories above, that is an error
     // which we signal explicitly to avoid confusion.
 
@@ -103,7 +116,14 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
         propertyMethodsIn(otherMethods, autoOneOfType);
     ImmutableBiMap<String, ExecutableElement> properties =
         propertyNameToMethodMap(propertyMethodsAndTypes.keySet());
-    validateMethods(autoOneOfType, abstractMethods, propertyMethodsAndTypes.keySet(), kindGetter);
+    ImmutableList<MatchMethod> matchMethods =
+        matchMethods(autoOneOfType, otherMethods, properties, propertyMethodsAndTypes);
+    validateMethods(
+        autoOneOfType,
+        abstractMethods,
+        propertyMethodsAndTypes.keySet(),
+        matchMethods.stream().map(m -> m.method).collect(toImmutableSet()),
+        kindGetter);
     ImmutableMap<String, String> propertyToKind =
         propertyToKindMap(kindMirror, properties.keySet());
 
@@ -111,9 +131,15 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
     AutoOneOfTemplateVars vars = new AutoOneOfTemplateVars();
     vars.generatedClass = TypeSimplifier.simpleNameOf(subclass);
     vars.propertyToKind = propertyToKind;
+    vars.matchMethods = matchMethods;
     Nullables nullables = Nullables.fromMethods(processingEnv, methods);
     defineSharedVarsForType(autoOneOfType, methods, nullables, vars);
     defineVarsForType(autoOneOfType, vars, propertyMethodsAndTypes, kindGetter, nullables);
+    vars.isInterface = autoOneOfType.getKind() == ElementKind.INTERFACE;
+    vars.compact =
+        processingEnv.getOptions().containsKey(COMPACT_OPTION)
+            && !"false".equals(processingEnv.getOptions().get(COMPACT_OPTION));
+    vars.record = vars.isInterface && !vars.compact && canUseRecords(properties.keySet());
 
     String text = vars.toText();
     text = TypeEncoder.decode(text, processingEnv, vars.pkg, autoOneOfType.asType());
@@ -121,6 +147,22 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
     writeSourceFile(subclass, text, autoOneOfType);
   }
 
+  /**
+   * Returns true if the implementation of an {@code @AutoOneOf} interface can be a sealed
+   * interface with a record for each kind. That requires a source version that has sealed types,
+   * at least one property, and property names that can be record component names. Otherwise we
+   * generate classes that implement the interface, as we would for an abstract class.
+   */
+  private boolean canUseRecords(ImmutableSet<String> propertyNames) {
+    // We can't mention SourceVersion.RELEASE_17 because the processor may be running on Java 8.
+    // A sealed interface must permit at least one subtype.
+    if (processingEnv.getSourceVersion().ordinal() < 17 || propertyNames.isEmpty()) {
+      return false;
+    }
+    return propertyNames.stream()
+        .noneMatch(AutoValueProcessor.FORBIDDEN_RECORD_COMPONENT_NAMES::contains);
+  }
+
   private DeclaredType mirrorForKindType(TypeElement autoOneOfType) {
     // The annotation is guaranteed to be present by the contract of Processor#process
     AnnotationMirror oneOfAnnotation = getAnnotationMirror(autoOneOfType, AUTO_ONE_OF_NAME).get();
@@ -229,15 +271,178 @@ public class AutoOneOfProcessor extends AutoValueishProcessor {
     throw new AbortProcessingException();
   }
 
+  /**
+   * A method like {@code abstract <R> R match(Cases<R> cases)}, where {@code Cases} is an interface
+   * that has one method per property. Each generated implementation class implements the method by
+   * calling the {@code Cases} method for its own property. This class is public so that the
+   * template can access its getters.
+   */
+  public static final class MatchMethod {
+    private final ExecutableElement method;
+    private final String typeParameters;
+    private final String returnType;
+    private final String parameterType;
+    private final String parameterName;
+
+    MatchMethod(ExecutableElement method, MethodSignature signature) {
+      this.method = method;
+      this.typeParameters = TypeEncoder.typeParametersString(method.getTypeParameters());
+      this.returnType = TypeEncoder.encode(signature.returnType().getType());
+      this.parameterType = TypeEncoder.encode(signature.parameterTypes().get(0).getType());
+      this.parameterName = method.getParameters().get(0).getSimpleName().toString();
+    }
+
+    public String getAccess() {
+      return SimpleMethod.access(method);
+    }
+
+    public String getName() {
+      return method.getSimpleName().toString();
+    }
+
+    public String getTypeParameters() {
+      return typeParameters;
+    }
+
+    public String getReturnType() {
+      return returnType;
+    }
+
+    public boolean getReturnsVoid() {
+      return method.getReturnType().getKind() == TypeKind.VOID;
+    }
+
+    public String getParameterType() {
+      return parameterType;
+    }
+
+    public String getParameterName() {
+      return parameterName;
+    }
+
+    public String getThrows() {
+      return new SimpleMethod(method).getThrows();
+    }
+  }
+
+  /**
+   * Returns the match methods among the given abstract methods. An abstract method is a match
+   * method if it has a single parameter whose type is an interface. We check that the interface has
+   * exactly one abstract method per property, with the same name as the property, that accepts the
+   * property value (or has no parameters for a {@code void} property), and that returns something
+   * the match method can return.
+   */
+  private ImmutableList<MatchMethod> matchMethods(
+      TypeElement type,
+      Set<ExecutableElement> abstractMethods,
+      ImmutableBiMap<String, ExecutableElement> properties,
+      ImmutableMap<ExecutableElement, AnnotatedTypeMirror> propertyMethodsAndTypes) {
+    ImmutableList.Builder<MatchMethod> matchMethods = ImmutableList.builder();
+    for (ExecutableElement method : abstractMethods) {
+      if (method.getParameters().size() != 1) {
+        continue;
+      }
+      MethodSignature signature = MethodSignature.asMemberOf(typeUtils(), type, method);
+      TypeMirror parameterType = signature.parameterTypes().get(0).getType();
+      if (parameterType.getKind() != TypeKind.DECLARED
+          || !MoreTypes.asElement(parameterType).getKind().equals(ElementKind.INTERFACE)) {
+        continue;
+      }
+      DeclaredType casesType = MoreTypes.asDeclared(parameterType);
+      TypeElement casesElement = MoreElements.asType(casesType.asElement());
+      // Capture any wildcards, so that for Cases<? extends R> a case method returns a type that
+      // can be assigned to R.
+      DeclaredType capturedCasesType = MoreTypes.asDeclared(typeUtils().capture(casesType));
+      ImmutableSet<ExecutableElement> caseMethods =
+          abstractMethodsIn(
+              getLocalAndInheritedMethods(casesElement, typeUtils(), elementUtils()));
+      Set<String> unmatched = new LinkedHashSet<>(properties.keySet());
+      for (ExecutableElement caseMethod : caseMethods) {
+        String name = caseMethod.getSimpleName().toString();
+        ExecutableElement property = properties.get(name);
+        if (property == null || !unmatched.remove(name)) {
+          errorReporter()
+              .reportError(
+                  method,
+                  "[AutoOneOfCasesExtra] Method %s in %s does not correspond to a property",
+                  name,
+                  casesElement);
+          continue;
+        }
+        checkCaseMethod(
+            method,
+            caseMethod,
+            MoreTypes.asExecutable(typeUtils().asMemberOf(capturedCasesType, caseMethod)),
+            propertyMethodsAndTypes.get(property).getType(),
+            signature.returnType().getType());
+      }
+      for (String name : unmatched) {
+        errorReporter()
+            .reportError(
+                method,
+                "[AutoOneOfCasesMissing] %s has no method %s for the property of that name",
+                casesElement,
+                name);
+      }
+      matchMethods.add(new MatchMethod(method, signature));
+    }
+    return matchMethods.build();
+  }
+
+  private void checkCaseMethod(
+      ExecutableElement matchMethod,
+      ExecutableElement caseMethod,
+      ExecutableType caseType,
+      TypeMirror propertyType,
+      TypeMirror matchReturnType) {
+    List<? extends TypeMirror> caseParameterTypes = caseType.getParameterTypes();
+    boolean parametersOk =
+        (propertyType.getKind() == TypeKind.VOID)
+            ? caseParameterTypes.isEmpty()
+            : caseParameterTypes.size() == 1
+                && typeUtils().isAssignable(propertyType, caseParameterTypes.get(0));
+    if (!parametersOk) {
+      if (propertyType.getKind() == TypeKind.VOID) {
+        errorReporter()
+            .reportError(
+                matchMethod,
+                "[AutoOneOfCasesParameter] Method %s in %s must have no parameters",
+                caseMethod.getSimpleName(),
+                caseMethod.getEnclosingElement());
+      } else {
+        errorReporter()
+            .reportError(
+                matchMethod,
+                "[AutoOneOfCasesParameter] Method %s in %s must have one parameter that accepts %s",
+                caseMethod.getSimpleName(),
+                caseMethod.getEnclosingElement(),
+                propertyType);
+      }
+    }
+    if (matchReturnType.getKind() != TypeKind.VOID
+        && !typeUtils().isAssignable(caseType.getReturnType(), matchReturnType)) {
+      errorReporter()
+          .reportError(
+              matchMethod,
+              "[AutoOneOfCasesReturn] Method %s in %s returns %s, which %s cannot return",
+              caseMethod.getSimpleName(),
+              caseMethod.getEnclosingElement(),
+              caseType.getReturnType(),
+              matchMethod.getSimpleName());
+    }
+  }
+
   private void validateMethods(
       TypeElement type,
       ImmutableSet<ExecutableElement> abstractMethods,
       ImmutableSet<ExecutableElement> propertyMethods,
+      ImmutableSet<ExecutableElement> matchMethods,
       ExecutableElement kindGetter) {
     for (ExecutableElement method : abstractMethods) {
       if (propertyMethods.contains(method)) {
         checkReturnType(type, method);
       } else if (!method.equals(kindGetter)
+          && !matchMethods.contains(method)
           && objectMethodToOverride(method) == ObjectMethod.NONE) {
         // This could reasonably be an error, were it not for an Eclipse bug in
         // ElementUtils.override that sometimes fails to recognize that one method overrides
@@ -15,6 +15,7 @@
  */
 package com.google.auto.value.processor;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.escapevelocity.Template;
 import java.util.Map;
@@ -44,13 +45,40 @@ class AutoOneOfTemplateVars extends AutoValueishTemplateVars {
   /** Maps property names like {@code dog} to enum constants like {@code DOG}. */
   Map<String, String> propertyToKind;
 
+  /**
+   * The abstract methods like {@code <R> R match(Cases<R> cases)} that each implementation class
+   * implements by calling the {@code Cases} method for its property.
+   */
+  ImmutableList<AutoOneOfProcessor.MatchMethod> matchMethods;
+
   /** True if this {@code @AutoOneOf} class is Serializable. */
   Boolean serializable;
 
+  /** True if the {@code @AutoOneOf} type is an interface rather than an abstract class. */
+  Boolean isInterface = false;
+
+  /**
+   * True if the generated code should be a sealed interface with a {@code record} for each kind.
+   * In that case we use a different template.
+   */
+  Boolean record = false;
+
+  /**
+   * True if the generated code should have a single implementation class, which records the kind
+   * in a field, rather than a class for each kind. In that case we use a different template.
+   */
+  Boolean compact = false;
+
   private static final Template TEMPLATE = parsedTemplateForResource("autooneof.vm");
+  private static final Template RECORD_TEMPLATE = parsedTemplateForResource("autooneofrecord.vm");
+  private static final Template COMPACT_TEMPLATE =
+      parsedTemplateForResource("autooneofcompact.vm");
 
   @Override
   Template parsedTemplate() {
-    return TEMPLATE;
+    if (record) {
+      return RECORD_TEMPLATE;
+    }
+    return compact ? COMPACT_TEMPLATE : TEMPLATE;
   }
 }
@@ -85,6 +85,15 @@ abstract class AutoValueOrBuilderTemplateVars extends AutoValueishTemplateVars {
    */
   String build;
 
+  /**
+   * True if {@link #build} should be given the builder itself, rather than the value of each
+   * property. AutoValue does this for a class with so many properties that a constructor with one
+   * parameter per property would exceed the JVM limit of 255 parameter slots. AutoBuilder does not
+   * need this, since it calls a constructor or method that already exists, but it's included in
+   * these shared variables to simplify the template.
+   */
+  Boolean constructFromBuilder = false;
+
   /**
    * A multimap from property names (like foo) to the corresponding setters. The same property may
    * be set by more than one setter. For example, an ImmutableList might be set by {@code
@@ -114,6 +123,14 @@ abstract class AutoValueOrBuilderTemplateVars extends AutoValueishTemplateVars {
    */
   BuilderRequiredProperties builderRequiredProperties = BuilderRequiredProperties.EMPTY;
 
+  /**
+   * Tracks which properties of a copy-on-write {@code toBuilder()} builder have been changed from
+   * the source instance. This is {@link BuilderChangedProperties#DISABLED} unless the {@code
+   * com.google.auto.value.CopyOnWriteToBuilder} option is set and there is a {@code toBuilder()}
+   * method. AutoBuilder does not support this.
+   */
+  BuilderChangedProperties builderChangedProperties = BuilderChangedProperties.DISABLED;
+
   /**
    * A map from property names to information about the associated property getter. A property
    * called foo (defined by a method foo() or getFoo()) can have a property getter method with the
@@ -122,6 +139,12 @@ abstract class AutoValueOrBuilderTemplateVars extends AutoValueishTemplateVars {
    */
   ImmutableMap<String, BuilderSpec.PropertyGetter> builderGetters = ImmutableMap.of();
 
+  /**
+   * Builder methods like {@code clear()} or {@code reset()} that put the builder back to its
+   * initial state.
+   */
+  ImmutableList<BuilderSpec.ResetMethod> builderResetMethods = ImmutableList.of();
+
   /**
    * True if the generated builder should have a second constructor with a parameter of the built
    * type. The constructor produces a new builder that starts off with the values from the
@@ -135,6 +158,13 @@ abstract class AutoValueOrBuilderTemplateVars extends AutoValueishTemplateVars {
    */
   ImmutableList<SimpleMethod> toBuilderMethods;
 
+  /**
+   * True if the {@code build()} method of the builder should return a canonical instance, obtained
+   * from the static {@code intern} method of the generated class. AutoBuilder does not support
+   * this, but it's included in these shared variables to simplify the template.
+   */
+  Boolean intern = false;
+
   /**
    * Whether to include identifiers in strings in the generated code. If false, exception messages
    * will not mention properties by name, and {@code toString()} will include neither property names
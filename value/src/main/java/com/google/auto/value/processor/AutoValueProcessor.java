@@ -17,15 +17,22 @@ package com.google.auto.value.processor;
 
 import static com.google.auto.common.MoreElements.getLocalAndInheritedMethods;
 import static com.google.auto.value.processor.ClassNames.AUTO_VALUE_NAME;
+import static com.google.auto.value.processor.ClassNames.CACHE_HASH_CODE_NAME;
+import static com.google.auto.value.processor.ClassNames.GUAVA_MULTIMAP_NAME;
+import static com.google.auto.value.processor.ClassNames.INTERN_NAME;
+import static com.google.auto.value.processor.ClassNames.LAZY_INIT_NAME;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Sets.difference;
 import static com.google.common.collect.Sets.intersection;
+import static java.util.Comparator.comparing;
 import static java.util.Comparator.naturalOrder;
 import static java.util.stream.Collectors.joining;
 
 import com.google.auto.service.AutoService;
 import com.google.auto.value.extension.AutoValueExtension;
+import com.google.auto.value.processor.AutoValueishProcessor.GetterProperty;
+import com.google.auto.value.processor.AutoValueishProcessor.Property;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
@@ -34,18 +41,25 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.stream.Stream;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
@@ -66,6 +80,28 @@ import net.ltgt.gradle.incap.IncrementalAnnotationProcessorType;
 public class AutoValueProcessor extends AutoValueishProcessor {
   static final String OMIT_IDENTIFIERS_OPTION = "com.google.auto.value.OmitIdentifiers";
 
+  /**
+   * Option to generate {@code toBuilder()} builders that only copy a property out of the source
+   * instance when the property is changed. See {@link BuilderChangedProperties}.
+   */
+  static final String COPY_ON_WRITE_TO_BUILDER_OPTION =
+      "com.google.auto.value.CopyOnWriteToBuilder";
+
+  /**
+   * The largest number of parameter slots that a constructor can have, not counting {@code this}.
+   * Each {@code long} or {@code double} parameter takes two slots. If the properties of a class
+   * need more slots than this, the generated constructor takes the builder as its only parameter.
+   */
+  static final int MAX_CONSTRUCTOR_PARAMETER_SLOTS = 254;
+
+  /**
+   * The largest number of properties that the generated {@code equals}, {@code hashCode}, or
+   * {@code toString} handles in a single method. A class with more properties than this gets a
+   * helper method for each group of this many properties. That keeps each method well under the
+   * 8000 bytes of bytecode above which HotSpot will not JIT-compile it.
+   */
+  static final int PROPERTIES_PER_METHOD = 64;
+
   // We moved MemoizeExtension to a different package, which had an unexpected effect:
   // now if an old version of AutoValue is in the class path, ServiceLoader can pick up both the
   // old and the new versions of MemoizeExtension. So we exclude the old version if we see it.
@@ -89,7 +125,7 @@ public class AutoValueProcessor extends AutoValueishProcessor {
 
   private AutoValueProcessor(
       Iterable<? extends AutoValueExtension> testExtensions, ClassLoader loaderForExtensions) {
-    super(AUTO_VALUE_NAME, /* appliesToInterfaces= */ false);
+    super(AUTO_VALUE_NAME, /* appliesToInterfaces= */ true);
     this.extensions = ImmutableList.copyOf(testExtensions);
     this.loaderForExtensions = loaderForExtensions;
   }
@@ -142,6 +178,7 @@ public class AutoValueProcessor extends AutoValueishProcessor {
             .orElse(AutoValueExtension.IncrementalExtensionType.ISOLATING);
     builder
         .add(OMIT_IDENTIFIERS_OPTION)
+        .add(COPY_ON_WRITE_TO_BUILDER_OPTION)
         .add(Nullables.NULLABLE_OPTION)
         .addAll(optionsFor(incrementalType));
     for (AutoValueExtension extension : extensions) {
@@ -192,6 +229,8 @@ public class AutoValueProcessor extends AutoValueishProcessor {
     //     this @AutoValue class.
     // (3) An abstract method that will be consumed by an extension, such as
     //     Parcelable.describeContents() or Parcelable.writeToParcel(Parcel, int).
+    // (4) A wither, like "abstract Foo withBar(String bar)", which returns a copy of this instance
+    //     with a different value for the property bar.
     // The describeContents() example shows a quirk here: initially we will identify it as a
     // property, which means that we need to reconstruct the list of properties after allowing
     // extensions to consume abstract methods.
@@ -256,8 +295,16 @@ public class AutoValueProcessor extends AutoValueishProcessor {
     }
 
     ImmutableSet<ExecutableElement> propertyMethods = propertyMethodsAndTypes.keySet();
+    ImmutableMap<ExecutableElement, String> witherMethods =
+        witherMethods(type, abstractMethods, properties, propertyMethodsAndTypes);
     boolean extensionsPresent = !applicableExtensions.isEmpty();
-    validateMethods(type, abstractMethods, toBuilderMethods, propertyMethods, extensionsPresent);
+    validateMethods(
+        type,
+        abstractMethods,
+        toBuilderMethods,
+        propertyMethods,
+        witherMethods.keySet(),
+        extensionsPresent);
 
     String finalSubclass = TypeSimplifier.simpleNameOf(generatedSubclassName(type, 0));
     AutoValueTemplateVars vars = new AutoValueTemplateVars();
@@ -274,26 +321,69 @@ public class AutoValueProcessor extends AutoValueishProcessor {
         consumedBuilderMethods);
     vars.builtType = vars.origClass + vars.actualTypes;
     vars.build = "new " + finalSubclass + vars.actualTypes;
+    if (vars.toBuilderConstructor
+        && processingEnv.getOptions().containsKey(COPY_ON_WRITE_TO_BUILDER_OPTION)
+        && !"false".equals(processingEnv.getOptions().get(COPY_ON_WRITE_TO_BUILDER_OPTION))) {
+      vars.builderChangedProperties = BuilderChangedProperties.of(vars.props, vars.builtType);
+    }
+    vars.withers =
+        witherMethods.entrySet().stream()
+            .map(
+                e ->
+                    new Wither(
+                        e.getKey(),
+                        MethodSignature.asMemberOf(typeUtils(), type, e.getKey()),
+                        vars.props.stream()
+                            .filter(p -> p.getName().equals(e.getValue()))
+                            .findFirst()
+                            .get()))
+            .collect(toImmutableList());
+    builder.ifPresent(b -> checkWithersDoNotBypassBuild(b, witherMethods.keySet()));
+    vars.cacheHashCode = cacheHashCode(type, vars);
+    GwtCompatibility gwtCompatibility = new GwtCompatibility(type);
+    vars.gwtCompatibleAnnotation = gwtCompatibility.gwtCompatibleAnnotationString();
+    defineInternVars(type, methods, vars);
+    if (vars.cacheHashCode || vars.intern) {
+      TypeElement lazyInit = elementUtils().getTypeElement(LAZY_INIT_NAME);
+      if (lazyInit != null) {
+        vars.lazyInitAnnotation = "@" + TypeEncoder.encode(lazyInit.asType()) + " ";
+      }
+    }
 
     // If we've encountered problems then we might end up invoking extensions with inconsistent
     // state. Anyway we probably don't want to generate code which is likely to provoke further
     // compile errors to add to the ones we've already seen.
     errorReporter().abortIfAnyError();
 
-    GwtCompatibility gwtCompatibility = new GwtCompatibility(type);
-    vars.gwtCompatibleAnnotation = gwtCompatibility.gwtCompatibleAnnotationString();
-
     builder.ifPresent(context::setBuilderContext);
     int subclassDepth = writeExtensions(type, context, applicableExtensions);
     String subclass = generatedSubclassName(type, subclassDepth);
     vars.subclass = TypeSimplifier.simpleNameOf(subclass);
     vars.finalSubclass = finalSubclass;
     vars.isFinal = (subclassDepth == 0);
+    int parameterSlots = constructorParameterSlots(vars.props);
+    if (parameterSlots > MAX_CONSTRUCTOR_PARAMETER_SLOTS) {
+      if (!builder.isPresent() || !vars.isFinal) {
+        throw errorReporter()
+            .abortWithError(
+                type,
+                "[AutoValueTooManyProperties] The properties of this class need %d constructor"
+                    + " parameter slots, but the limit is %d. Properties of type long or double"
+                    + " need two slots each. AutoValue can instead construct the class from its"
+                    + " builder, but only if it has an @AutoValue.Builder and no extension"
+                    + " generates a subclass",
+                parameterSlots,
+                MAX_CONSTRUCTOR_PARAMETER_SLOTS);
+      }
+      vars.constructFromBuilder = true;
+    }
     vars.modifiers = vars.isFinal ? "final " : "abstract ";
     vars.builderClassModifiers =
         consumedBuilderMethods.isEmpty()
             ? vars.isFinal ? "static final " : "static "
             : "abstract static ";
+    vars.isInterface = type.getKind() == ElementKind.INTERFACE;
+    vars.record = vars.isInterface && vars.isFinal && canUseRecord(vars);
 
     String text = vars.toText();
     text = TypeEncoder.decode(text, processingEnv, vars.pkg, type.asType());
@@ -303,6 +393,44 @@ public class AutoValueProcessor extends AutoValueishProcessor {
     gwtSerialization.maybeWriteGwtSerializer(vars, finalSubclass);
   }
 
+  /**
+   * Component names that a record may not have, because the implicit accessor would clash with a
+   * method of {@link Object}.
+   */
+  static final ImmutableSet<String> FORBIDDEN_RECORD_COMPONENT_NAMES =
+      ImmutableSet.of(
+          "clone", "finalize", "getClass", "hashCode", "notify", "notifyAll", "toString", "wait");
+
+  /**
+   * Returns true if the implementation of an {@code @AutoValue} interface can be a record rather
+   * than a final class. That requires a source version that has records. It also requires that the
+   * generated class not need anything a record can't have, such as instance fields other than the
+   * properties, or a field whose name is not the same as its getter. Otherwise we generate a class
+   * that implements the interface, as we would for an abstract class.
+   */
+  private boolean canUseRecord(AutoValueTemplateVars vars) {
+    // We can't mention SourceVersion.RELEASE_16 because the processor may be running on Java 8.
+    if (processingEnv.getSourceVersion().ordinal() < 16) {
+      return false;
+    }
+    if (vars.cacheHashCode
+        || vars.intern
+        || vars.constructFromBuilder
+        || !vars.gwtCompatibleAnnotation.isEmpty()) {
+      return false;
+    }
+    // A @Nullable annotation that would have been copied to the field is also on the record
+    // component, so it reaches the field anyway. Other field annotations need a real field.
+    return vars.props.stream()
+        .allMatch(
+            p ->
+                p.getGetter().equals(p.toString())
+                    && !FORBIDDEN_RECORD_COMPONENT_NAMES.contains(p.getGetter())
+                    && ((GetterProperty) p)
+                        .getFieldAnnotations().stream()
+                            .allMatch(a -> a.equals(p.getNullableAnnotation().trim())));
+  }
+
   // Invokes each of the given extensions to generate its subclass, and returns the number of
   // hierarchy classes that extensions generated. This number is then the number of $ characters
   // that should precede the name of the AutoValue implementation class.
@@ -451,16 +579,136 @@ public class AutoValueProcessor extends AutoValueishProcessor {
     return ImmutableSet.copyOf(consumed);
   }
 
+  /**
+   * An abstract method like {@code abstract Foo withBar(String bar)}, which returns an instance
+   * that has the given value for the property {@code bar} and the same values as this instance for
+   * every other property. This class is public so that the template can access its getters.
+   */
+  public static final class Wither {
+    private final ExecutableElement method;
+    private final String returnType;
+    private final String parameterType;
+    private final Property property;
+
+    Wither(ExecutableElement method, MethodSignature signature, Property property) {
+      this.method = method;
+      this.returnType = TypeEncoder.encode(signature.returnType().getType());
+      this.parameterType = TypeEncoder.encode(signature.parameterTypes().get(0).getType());
+      this.property = property;
+    }
+
+    public String getAccess() {
+      return SimpleMethod.access(method);
+    }
+
+    public String getName() {
+      return method.getSimpleName().toString();
+    }
+
+    public String getReturnType() {
+      return returnType;
+    }
+
+    public String getParameterType() {
+      return parameterType;
+    }
+
+    public Property getProperty() {
+      return property;
+    }
+  }
+
+  /**
+   * Returns the withers among the given abstract methods, mapped to the names of their properties.
+   * A wither has a single parameter and a name that is {@code with} followed by the name of a
+   * property. Its parameter must be assignable to the property, and it must be able to return the
+   * {@code @AutoValue} type.
+   */
+  private ImmutableMap<ExecutableElement, String> witherMethods(
+      TypeElement type,
+      ImmutableSet<ExecutableElement> abstractMethods,
+      ImmutableMap<String, ExecutableElement> properties,
+      ImmutableMap<ExecutableElement, AnnotatedTypeMirror> propertyMethodsAndTypes) {
+    ImmutableMap.Builder<ExecutableElement, String> withers = ImmutableMap.builder();
+    for (ExecutableElement method : abstractMethods) {
+      String methodName = method.getSimpleName().toString();
+      if (method.getParameters().size() != 1
+          || !methodName.startsWith("with")
+          || methodName.length() == 4) {
+        continue;
+      }
+      // As for builder setters, withOAuth(x) can be the wither for a property called either OAuth
+      // or oAuth.
+      String propertyName = PropertyNames.decapitalizeLikeJavaBeans(methodName.substring(4));
+      if (!properties.containsKey(propertyName)) {
+        propertyName = PropertyNames.decapitalizeNormally(methodName.substring(4));
+        if (!properties.containsKey(propertyName)) {
+          continue;
+        }
+      }
+      MethodSignature signature = MethodSignature.asMemberOf(typeUtils(), type, method);
+      TypeMirror parameterType = signature.parameterTypes().get(0).getType();
+      TypeMirror propertyType =
+          propertyMethodsAndTypes.get(properties.get(propertyName)).getType();
+      if (!typeUtils().isAssignable(parameterType, propertyType)) {
+        errorReporter()
+            .reportError(
+                method,
+                "[AutoValueWitherType] Parameter type %s of %s is not assignable to %s, the type of"
+                    + " property %s",
+                parameterType,
+                methodName,
+                propertyType,
+                propertyName);
+      }
+      if (!typeUtils().isAssignable(type.asType(), signature.returnType().getType())) {
+        errorReporter()
+            .reportError(
+                method,
+                "[AutoValueWitherReturn] Method %s must return %s",
+                methodName,
+                type.asType());
+      }
+      withers.put(method, propertyName);
+    }
+    return withers.build();
+  }
+
+  /**
+   * Reports an error for each wither if the builder has a {@code build()} method that AutoValue
+   * does not implement, typically one that checks the result of an abstract {@code autoBuild()}.
+   * A generated wither calls the constructor directly, so it would bypass those checks.
+   */
+  private void checkWithersDoNotBypassBuild(
+      BuilderSpec.Builder builder, ImmutableSet<ExecutableElement> witherMethods) {
+    Optional<ExecutableElement> buildMethod = builder.buildMethod();
+    if (!buildMethod.isPresent() || buildMethod.get().equals(builder.autoBuildMethod())) {
+      return;
+    }
+    for (ExecutableElement wither : witherMethods) {
+      errorReporter()
+          .reportError(
+              wither,
+              "[AutoValueWitherBuild] Method %s cannot be implemented because the builder has a"
+                  + " build() method that AutoValue does not implement, and the implementation"
+                  + " would not call it. Implement %s by hand, for example using toBuilder()",
+              wither.getSimpleName(),
+              wither.getSimpleName());
+    }
+  }
+
   private void validateMethods(
       TypeElement type,
       ImmutableSet<ExecutableElement> abstractMethods,
       ImmutableSet<ExecutableElement> toBuilderMethods,
       ImmutableSet<ExecutableElement> propertyMethods,
+      ImmutableSet<ExecutableElement> witherMethods,
       boolean extensionsPresent) {
     for (ExecutableElement method : abstractMethods) {
       if (propertyMethods.contains(method)) {
         checkReturnType(type, method);
       } else if (!toBuilderMethods.contains(method)
+          && !witherMethods.contains(method)
           && objectMethodToOverride(method) == ObjectMethod.NONE) {
         // This could reasonably be an error, were it not for an Eclipse bug in
         // ElementUtils.override that sometimes fails to recognize that one method overrides
@@ -501,6 +749,9 @@ public class AutoValueProcessor extends AutoValueishProcessor {
     vars.props =
         propertySet(
             propertyMethodsAndTypes, annotatedPropertyFields, annotatedPropertyMethods, nullables);
+    vars.equalsProps = propertiesInEqualsOrder(vars.props);
+    vars.propertyChunks = chunks(vars.props.asList());
+    vars.equalsPropertyChunks = chunks(vars.equalsProps);
     // Check for @AutoValue.Builder and add appropriate variables if it is present.
     maybeBuilder.ifPresent(
         builder -> {
@@ -513,6 +764,108 @@ public class AutoValueProcessor extends AutoValueishProcessor {
         });
   }
 
+  /**
+   * Returns true if the generated {@code hashCode()} should cache its result. That is the case if
+   * the class has {@code @AutoValue.CacheHashCode}, and we are generating {@code hashCode()}, and
+   * there is at least one property to hash.
+   */
+  private boolean cacheHashCode(TypeElement type, AutoValueTemplateVars vars) {
+    if (!hasAnnotationMirror(type, CACHE_HASH_CODE_NAME)) {
+      return false;
+    }
+    if (!vars.hashCode) {
+      errorReporter()
+          .reportWarning(
+              type,
+              "[AutoValueCacheHashCodeUnused] @AutoValue.CacheHashCode has no effect because this"
+                  + " class defines its own hashCode() method");
+      return false;
+    }
+    return !vars.props.isEmpty();
+  }
+
+  /**
+   * Defines the template variables for {@code @AutoValue.Intern}. We generate a {@code
+   * readResolve()} method that interns deserialized instances, unless the class is not
+   * serializable or already has a {@code readResolve()} method that we must not override.
+   */
+  private void defineInternVars(
+      TypeElement type, ImmutableSet<ExecutableElement> methods, AutoValueTemplateVars vars) {
+    if (!hasAnnotationMirror(type, INTERN_NAME)) {
+      return;
+    }
+    if (!vars.gwtCompatibleAnnotation.isEmpty()) {
+      errorReporter()
+          .reportError(
+              type,
+              "[AutoValueInternGwt] @AutoValue.Intern cannot be used in a @GwtCompatible class,"
+                  + " because GWT does not support weak references");
+      return;
+    }
+    vars.intern = true;
+    boolean hasReadResolve =
+        methods.stream()
+            .anyMatch(
+                m -> m.getSimpleName().contentEquals("readResolve") && m.getParameters().isEmpty());
+    vars.internReadResolve =
+        !hasReadResolve && typeUtils().isAssignable(type.asType(), getTypeMirror(Serializable.class));
+  }
+
+  /**
+   * Returns the given properties in the order in which the generated {@code equals(Object)} should
+   * compare them. Comparisons that are likely to be cheap come first, so that unequal objects are
+   * usually told apart quickly: primitives and enums, then other objects, then arrays, collections,
+   * and maps, which take time proportional to their size. Otherwise the original order is kept.
+   */
+  private ImmutableList<Property> propertiesInEqualsOrder(ImmutableSet<Property> props) {
+    ImmutableList<TypeMirror> containerTypes =
+        Stream.of(Iterable.class.getName(), Map.class.getName(), GUAVA_MULTIMAP_NAME)
+            .map(elementUtils()::getTypeElement)
+            .filter(Objects::nonNull)
+            .map(t -> typeUtils().erasure(t.asType()))
+            .collect(toImmutableList());
+    // Compute each cost once rather than in the comparator, and share the isAssignable results
+    // between the many properties that typically have the same type.
+    AssignabilityCache assignabilityCache = new AssignabilityCache(typeUtils());
+    ImmutableMap<Property, Integer> costs =
+        Maps.toMap(props, p -> equalsCost(p, containerTypes, assignabilityCache));
+    return props.stream().sorted(comparing(costs::get)).collect(toImmutableList());
+  }
+
+  /**
+   * Returns the given properties in groups of at most {@link #PROPERTIES_PER_METHOD}, or an empty
+   * list if there are no more properties than that.
+   */
+  private static ImmutableList<ImmutableList<Property>> chunks(ImmutableList<Property> props) {
+    if (props.size() <= PROPERTIES_PER_METHOD) {
+      return ImmutableList.of();
+    }
+    return Lists.partition(props, PROPERTIES_PER_METHOD).stream()
+        .map(ImmutableList::copyOf)
+        .collect(toImmutableList());
+  }
+
+  /** Returns the number of parameter slots that a constructor with these properties would need. */
+  private static int constructorParameterSlots(ImmutableSet<Property> props) {
+    return props.stream()
+        .mapToInt(
+            p -> (p.getKind() == TypeKind.LONG || p.getKind() == TypeKind.DOUBLE) ? 2 : 1)
+        .sum();
+  }
+
+  private int equalsCost(
+      Property p, ImmutableList<TypeMirror> containerTypes, AssignabilityCache assignabilityCache) {
+    TypeMirror type = p.getTypeMirror();
+    if (type.getKind().isPrimitive() || p.isEnumType()) {
+      return 0;
+    }
+    if (type.getKind() == TypeKind.ARRAY) {
+      return 2;
+    }
+    TypeMirror erased = typeUtils().erasure(type);
+    return containerTypes.stream().anyMatch(t -> assignabilityCache.isAssignable(erased, t)) ? 2 : 1;
+  }
+
   @Override
   Optional<String> nullableAnnotationForMethod(ExecutableElement propertyMethod) {
     return nullableAnnotationFor(propertyMethod, propertyMethod.getReturnType());
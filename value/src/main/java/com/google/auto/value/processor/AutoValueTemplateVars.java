@@ -15,6 +15,8 @@
  */
 package com.google.auto.value.processor;
 
+import com.google.auto.value.processor.AutoValueishProcessor.Property;
+import com.google.common.collect.ImmutableList;
 import com.google.escapevelocity.Template;
 
 /**
@@ -49,10 +51,63 @@ class AutoValueTemplateVars extends AutoValueOrBuilderTemplateVars {
    */
   String modifiers;
 
+  /**
+   * The same properties as {@link #props}, in the order in which the generated {@code equals}
+   * method should compare them. Comparisons that are likely to be cheap come first.
+   */
+  ImmutableList<Property> equalsProps;
+
+  /**
+   * The properties of {@link #props}, in groups of at most {@link
+   * AutoValueProcessor#PROPERTIES_PER_METHOD}, or an empty list if there are no more properties
+   * than that. When the list is not empty, {@code equals}, {@code hashCode}, and {@code toString}
+   * call a separate method for each group, so that none of them is too big to be compiled by the
+   * JIT.
+   */
+  ImmutableList<ImmutableList<Property>> propertyChunks = ImmutableList.of();
+
+  /** Like {@link #propertyChunks}, but with the properties of {@link #equalsProps}. */
+  ImmutableList<ImmutableList<Property>> equalsPropertyChunks = ImmutableList.of();
+
+  /**
+   * True if the generated {@code hashCode()} should remember its result in a field, because the
+   * class has {@code @AutoValue.CacheHashCode}.
+   */
+  Boolean cacheHashCode = false;
+
+  /**
+   * True if the generated class should have a {@code readResolve()} method that replaces
+   * deserialized instances with canonical ones. This is only the case if {@link #intern} is true,
+   * the class is serializable, and it does not already have a {@code readResolve()} method.
+   */
+  Boolean internReadResolve = false;
+
+  /**
+   * The encoding of the {@code @LazyInit} annotation to put on the cached hash code field and the
+   * interned flag, followed by a space, or an empty string if that annotation is not available.
+   */
+  String lazyInitAnnotation = "";
+
+  /**
+   * The methods like {@code withBar(String bar)} that return a copy of this instance with a
+   * different value for one property.
+   */
+  ImmutableList<AutoValueProcessor.Wither> withers = ImmutableList.of();
+
+  /** True if the {@code @AutoValue} type is an interface rather than an abstract class. */
+  Boolean isInterface = false;
+
+  /**
+   * True if the generated class should be a {@code record} implementing the {@code @AutoValue}
+   * interface. In that case we use a different template.
+   */
+  Boolean record = false;
+
   private static final Template TEMPLATE = parsedTemplateForResource("autovalue.vm");
+  private static final Template RECORD_TEMPLATE = parsedTemplateForResource("autovaluerecord.vm");
 
   @Override
   Template parsedTemplate() {
-    return TEMPLATE;
+    return record ? RECORD_TEMPLATE : TEMPLATE;
   }
 }
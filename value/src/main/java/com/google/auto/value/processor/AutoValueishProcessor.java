@@ -31,6 +31,7 @@ import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toSet;
 import static javax.lang.model.util.ElementFilter.constructorsIn;
+import static javax.lang.model.util.ElementFilter.methodsIn;
 
 import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
@@ -286,6 +287,16 @@ abstract class AutoValueishProcessor extends AbstractProcessor {
       return annotatedType.getType().getKind();
     }
 
+    /**
+     * Returns true if the type of this property is an enum. Enum values can be compared with
+     * {@code ==}, since {@link Enum#equals} is final and uses identity.
+     */
+    public boolean isEnumType() {
+      TypeMirror type = annotatedType.getType();
+      return type.getKind() == TypeKind.DECLARED
+          && MoreTypes.asElement(type).getKind() == ElementKind.ENUM;
+    }
+
     /**
      * Returns an {@link Optionalish} representing the kind of Optional that this property's type
      * is, or null if the type is not an Optional of any kind.
@@ -615,6 +626,18 @@ abstract class AutoValueishProcessor extends AbstractProcessor {
     vars.annotations = copiedClassAnnotations(type);
     Map<ObjectMethod, ExecutableElement> methodsToGenerate =
         determineObjectMethodsToGenerate(methods);
+    if (type.getKind().isInterface()) {
+      // The methods of an interface don't include the ones it inherits from Object, but an
+      // interface can't implement toString(), equals(Object), or hashCode() either, so we always
+      // generate the ones that it doesn't redeclare.
+      TypeElement object = elementUtils().getTypeElement(Object.class.getName());
+      for (ExecutableElement method : methodsIn(object.getEnclosedElements())) {
+        ObjectMethod objectMethod = objectMethodToOverride(method);
+        if (!objectMethod.equals(ObjectMethod.NONE)) {
+          methodsToGenerate.putIfAbsent(objectMethod, method);
+        }
+      }
+    }
     vars.toString = methodsToGenerate.containsKey(ObjectMethod.TO_STRING);
     vars.equals = methodsToGenerate.containsKey(ObjectMethod.EQUALS);
     vars.hashCode = methodsToGenerate.containsKey(ObjectMethod.HASH_CODE);
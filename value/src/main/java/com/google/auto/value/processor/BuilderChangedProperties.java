@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.processor;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.math.RoundingMode.CEILING;
+import static java.util.stream.Collectors.joining;
+
+import com.google.auto.value.processor.AutoValueishProcessor.Property;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.math.IntMath;
+import java.util.stream.IntStream;
+
+/**
+ * Code generation for a copy-on-write {@code toBuilder()} constructor.
+ *
+ * <p>Normally the builder constructor that {@code toBuilder()} calls copies every property of the
+ * source instance into the builder. In copy-on-write mode, the constructor just saves a reference
+ * to the source instance in a field called {@code source$}, and each property is only copied into
+ * its builder field when something needs that field: a setter, a property-builder method, or a
+ * builder getter. We track which properties have been changed, by a setter or a property-builder
+ * method, with one bit per property. A builder getter copies the value but does not set the bit.
+ * Then {@code build()} can return the source instance itself if no bit is set, and otherwise it
+ * takes the properties whose bit is clear straight from the source instance.
+ *
+ * <p>The public methods in this class are accessed reflectively from the {@code builder.vm}
+ * template, in the same way as those of {@link BuilderRequiredProperties}. When copy-on-write mode
+ * is not enabled, {@code $builderChangedProperties} is {@link #DISABLED} and every method returns
+ * code that does nothing.
+ */
+public final class BuilderChangedProperties {
+  static final BuilderChangedProperties DISABLED =
+      new BuilderChangedProperties(ImmutableSet.of(), "", false);
+
+  private final String builtType;
+  private final boolean enabled;
+  private final ImmutableMap<Property, Integer> propertyToIndex;
+
+  /**
+   * The names of the {@code int} fields that record which properties have been changed. As in
+   * {@link BuilderRequiredProperties}, we use {@code int} rather than {@code long} so that the
+   * generated code is still reasonable when it is translated into JavaScript.
+   */
+  private final ImmutableList<String> bitmaskFields;
+
+  private BuilderChangedProperties(
+      ImmutableSet<Property> allProperties, String builtType, boolean enabled) {
+    this.builtType = builtType;
+    this.enabled = enabled;
+    ImmutableList<Property> properties = allProperties.asList();
+    this.propertyToIndex =
+        IntStream.range(0, properties.size())
+            .boxed()
+            .collect(toImmutableMap(properties::get, i -> i));
+    this.bitmaskFields =
+        IntStream.range(0, IntMath.divide(properties.size(), 32, CEILING))
+            .mapToObj(i -> "changed$" + i)
+            .collect(toImmutableList());
+  }
+
+  static BuilderChangedProperties of(ImmutableSet<Property> allProperties, String builtType) {
+    return new BuilderChangedProperties(allProperties, builtType, true);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns code to declare the {@code source$} field and the bitmask fields. Each line in the
+   * returned list should appear on a line of its own.
+   */
+  public ImmutableList<String> getFieldDeclarations() {
+    if (!enabled) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.<String>builder()
+        .add("private " + builtType + " source$;")
+        .addAll(bitmaskFields.stream().map(name -> "private int " + name + ";").iterator())
+        .build();
+  }
+
+  /**
+   * Returns code to forget the source instance, for a builder {@code clear()} or {@code reset()}
+   * method. After that the builder behaves like one made with the no-argument constructor.
+   */
+  public ImmutableList<String> getReset() {
+    if (!enabled) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.<String>builder()
+        .add("source$ = null;")
+        .addAll(bitmaskFields.stream().map(name -> name + " = 0;").iterator())
+        .build();
+  }
+
+  /**
+   * Returns code to record that the builder field for the given property now holds the value that
+   * {@code build()} should use, or an empty string if copy-on-write mode is not enabled.
+   */
+  public String markAsChanged(Property p) {
+    if (!enabled) {
+      return "";
+    }
+    int index = propertyToIndex.get(p);
+    return bitmaskFields.get(index / 32) + " |= " + bit(index) + ";";
+  }
+
+  /**
+   * Returns an expression that is true if the builder field for the given property has not been
+   * changed, meaning that the value of the property is still the one in {@code source$}.
+   */
+  public String unchanged(Property p) {
+    int index = propertyToIndex.get(p);
+    return "(" + bitmaskFields.get(index / 32) + " & " + bit(index) + ") == 0";
+  }
+
+  /** The source representation of the bit for the property with the given index. */
+  private static String bit(int index) {
+    return BuilderRequiredProperties.hex(1 << (index % 32));
+  }
+
+  /** Returns an expression that is true if no property has been changed. */
+  public String getNoneChanged() {
+    if (bitmaskFields.isEmpty()) {
+      return "true";
+    }
+    return bitmaskFields.stream().map(name -> name + " == 0").collect(joining("\n&& "));
+  }
+}
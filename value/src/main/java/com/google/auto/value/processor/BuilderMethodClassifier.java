@@ -16,6 +16,7 @@
 package com.google.auto.value.processor;
 
 import static com.google.auto.value.processor.AutoValueishProcessor.nullableAnnotationFor;
+import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
 
 import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
@@ -25,12 +26,14 @@ import com.google.auto.value.processor.PropertyBuilderClassifier.PropertyBuilder
 import com.google.common.base.Equivalence;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -81,7 +84,27 @@ abstract class BuilderMethodClassifier<E extends Element> {
    */
   private final ImmutableMap<String, AnnotatedTypeMirror> rewrittenPropertyTypes;
 
+  /**
+   * A map from {@code PropertyNames.decapitalizeNormally(p)} to {@code p}, for each property
+   * {@code p}. This lets us find the property for a method like {@code oAuth(x)} or {@code
+   * oAuthBuilder()} when the property is called {@code OAuth}, without scanning all the properties
+   * for each method.
+   */
+  private final ImmutableMap<String, String> decapitalizedPropertyNames;
+
+  private final AssignabilityCache assignabilityCache;
+  private final PropertyBuilderClassifier propertyBuilderClassifier;
+
+  /**
+   * The static one-parameter methods of types that setter parameters might be converted to, such
+   * as {@code ImmutableList.copyOf}, indexed by name. Many properties typically share a few such
+   * types.
+   */
+  private final Map<TypeElement, ImmutableListMultimap<String, ExecutableElement>>
+      staticOneArgMethodsCache = new HashMap<>();
+
   private final Set<ExecutableElement> buildMethods = new LinkedHashSet<>();
+  private final Set<ExecutableElement> resetMethods = new LinkedHashSet<>();
   private final Map<String, BuilderSpec.PropertyGetter> builderGetters = new LinkedHashMap<>();
   private final Map<String, PropertyBuilder> propertyNameToPropertyBuilder = new LinkedHashMap<>();
   private final Multimap<String, PropertySetter> propertyNameToPrefixedSetters =
@@ -108,6 +131,23 @@ abstract class BuilderMethodClassifier<E extends Element> {
     this.rewrittenPropertyTypes = rewrittenPropertyTypes;
     this.propertiesWithDefaults = propertiesWithDefaults;
     this.nullables = nullables;
+    Map<String, String> decapitalizedPropertyNames = new LinkedHashMap<>();
+    for (String property : rewrittenPropertyTypes.keySet()) {
+      decapitalizedPropertyNames.putIfAbsent(
+          PropertyNames.decapitalizeNormally(property), property);
+    }
+    this.decapitalizedPropertyNames = ImmutableMap.copyOf(decapitalizedPropertyNames);
+    this.assignabilityCache = new AssignabilityCache(typeUtils);
+    this.propertyBuilderClassifier =
+        new PropertyBuilderClassifier(
+            errorReporter,
+            typeUtils,
+            elementUtils,
+            this,
+            this::propertyIsNullable,
+            rewrittenPropertyTypes,
+            nullables,
+            assignabilityCache);
   }
 
   /**
@@ -145,6 +185,15 @@ abstract class BuilderMethodClassifier<E extends Element> {
     return ImmutableSet.copyOf(buildMethods);
   }
 
+  /**
+   * Returns the methods that were identified as reset methods. These are methods called {@code
+   * clear()} or {@code reset()} that have no parameters and return either {@code void} or the
+   * builder type, and that put the builder back in the state it had when it was created.
+   */
+  Set<ExecutableElement> resetMethods() {
+    return ImmutableSet.copyOf(resetMethods);
+  }
+
   /** Classifies the given methods and sets the state of this object based on what is found. */
   boolean classifyMethods(Iterable<ExecutableElement> methods, boolean shouldSupportCopying) {
     int startErrorCount = errorReporter.errorCount();
@@ -231,7 +280,8 @@ abstract class BuilderMethodClassifier<E extends Element> {
    * can be a getter, with the same signature as one of the property getters in the
    * {@code @AutoValue} class; or it can be a property builder, like {@code
    * ImmutableList.Builder<String> foosBuilder()} for the property defined by {@code
-   * ImmutableList<String> foos()} or {@code getFoos()}.
+   * ImmutableList<String> foos()} or {@code getFoos()}; or it can be a reset method called {@code
+   * clear()} or {@code reset()}.
    */
   private void classifyMethodNoArgs(ExecutableElement method) {
     Optional<String> getterProperty = propertyForBuilderGetter(method);
@@ -248,20 +298,8 @@ abstract class BuilderMethodClassifier<E extends Element> {
       String property =
           rewrittenPropertyTypes.containsKey(prefix)
               ? prefix
-              : rewrittenPropertyTypes.keySet().stream()
-                  .filter(p -> PropertyNames.decapitalizeNormally(p).equals(prefix))
-                  .findFirst()
-                  .orElse(null);
+              : decapitalizedPropertyNames.get(prefix);
       if (property != null) {
-        PropertyBuilderClassifier propertyBuilderClassifier =
-            new PropertyBuilderClassifier(
-                errorReporter,
-                typeUtils,
-                elementUtils,
-                this,
-                this::propertyIsNullable,
-                rewrittenPropertyTypes,
-                nullables);
         Optional<PropertyBuilder> propertyBuilder =
             propertyBuilderClassifier.makePropertyBuilder(method, property);
         if (propertyBuilder.isPresent()) {
@@ -273,6 +311,20 @@ abstract class BuilderMethodClassifier<E extends Element> {
 
     if (TYPE_EQUIVALENCE.equivalent(returnType, builtType)) {
       buildMethods.add(method);
+    } else if (methodName.equals("clear") || methodName.equals("reset")) {
+      // As for setters, we allow the return type to be a supertype (other than Object).
+      if (returnType.getKind().equals(TypeKind.VOID)
+          || (assignabilityCache.isSubtype(builderType.asType(), returnType)
+              && !MoreTypes.isTypeOf(Object.class, returnType))) {
+        resetMethods.add(method);
+      } else {
+        errorReporter.reportError(
+            method,
+            "[%sBuilderResetRet] Method %s() must return void or %s",
+            autoWhat(),
+            methodName,
+            builderType.asType());
+      }
     } else {
       errorReporter.reportError(
           method,
@@ -365,15 +417,11 @@ abstract class BuilderMethodClassifier<E extends Element> {
     } else {
       // We might also have an unprefixed setter, so the getter is called OAuth() or getOAuth() and
       // the setter is called oAuth(x), where again JavaBeans rules imply that it should be called
-      // OAuth(x). Iterating over the properties here is a bit clunky but this case should be
-      // unusual.
+      // OAuth(x).
       propertyNameToSetters = propertyNameToUnprefixedSetters;
-      for (Map.Entry<String, E> entry : propertyElements.entrySet()) {
-        if (methodName.equals(PropertyNames.decapitalizeNormally(entry.getKey()))) {
-          propertyName = entry.getKey();
-          propertyElement = entry.getValue();
-          break;
-        }
+      propertyName = decapitalizedPropertyNames.get(methodName);
+      if (propertyName != null) {
+        propertyElement = propertyElements.get(propertyName);
       }
     }
     if (propertyElement == null || propertyNameToSetters == null) {
@@ -392,7 +440,7 @@ abstract class BuilderMethodClassifier<E extends Element> {
     if (function.isPresent()) {
       MethodSignature methodSignature = MethodSignature.asMemberOf(typeUtils, builderType, method);
       TypeMirror returnType = methodSignature.returnType().getType();
-      if (typeUtils.isSubtype(builderType.asType(), returnType)
+      if (assignabilityCache.isSubtype(builderType.asType(), returnType)
           && !MoreTypes.isTypeOf(Object.class, returnType)) {
         if (nullableAnnotationFor(method, returnType).isPresent()) {
           errorReporter.
@@ -433,15 +481,6 @@ abstract class BuilderMethodClassifier<E extends Element> {
     if (!rewrittenPropertyTypes.containsKey(property)) {
       return false;
     }
-    PropertyBuilderClassifier propertyBuilderClassifier =
-        new PropertyBuilderClassifier(
-            errorReporter,
-            typeUtils,
-            elementUtils,
-            this,
-            this::propertyIsNullable,
-            rewrittenPropertyTypes,
-            nullables);
     Optional<PropertyBuilder> maybePropertyBuilder =
         propertyBuilderClassifier.makePropertyBuilder(method, property);
     maybePropertyBuilder.ifPresent(
@@ -473,8 +512,8 @@ abstract class BuilderMethodClassifier<E extends Element> {
     // Two types are assignable to each other if they are the same type, or if one is primitive and
     // the other is the corresponding boxed type. There might be other cases where this is true, but
     // we're likely to want to accept those too.
-    if (typeUtils.isAssignable(parameterType, targetType)
-        && typeUtils.isAssignable(targetType, parameterType)) {
+    if (assignabilityCache.isAssignable(parameterType, targetType)
+        && assignabilityCache.isAssignable(targetType, parameterType)) {
       if (nullableParameter) {
         if (!nullableProperty) {
           errorReporter.reportError(
@@ -502,7 +541,7 @@ abstract class BuilderMethodClassifier<E extends Element> {
     Optionalish parameterOptional = Optionalish.createIfOptional(parameterType);
     if (parameterOptional != null && nullableProperty) {
       TypeMirror containedType = parameterOptional.getContainedType(typeUtils);
-      if (typeUtils.isAssignable(containedType, targetType)) {
+      if (assignabilityCache.isAssignable(containedType, targetType)) {
         return Optional.of(Copier.notAcceptingNull(parameterOptional.orElseNullCopier()));
       }
     }
@@ -628,16 +667,21 @@ abstract class BuilderMethodClassifier<E extends Element> {
       copyOfNames = ImmutableSet.of(nullableParameter ? optionalish.ofNullable() : "of");
     }
     TypeElement targetTypeElement = MoreElements.asType(typeUtils.asElement(targetType));
+    ImmutableListMultimap<String, ExecutableElement> staticOneArgMethods =
+        staticOneArgMethodsCache.computeIfAbsent(
+            targetTypeElement,
+            t ->
+                ElementFilter.methodsIn(t.getEnclosedElements()).stream()
+                    .filter(
+                        method ->
+                            method.getParameters().size() == 1
+                                && method.getModifiers().contains(Modifier.STATIC))
+                    .collect(
+                        toImmutableListMultimap(
+                            method -> method.getSimpleName().toString(), method -> method)));
     ImmutableList.Builder<ExecutableElement> copyOfMethods = ImmutableList.builder();
     for (String copyOfName : copyOfNames) {
-      for (ExecutableElement method :
-          ElementFilter.methodsIn(targetTypeElement.getEnclosedElements())) {
-        if (method.getSimpleName().contentEquals(copyOfName)
-            && method.getParameters().size() == 1
-            && method.getModifiers().contains(Modifier.STATIC)) {
-          copyOfMethods.add(method);
-        }
-      }
+      copyOfMethods.addAll(staticOneArgMethods.get(copyOfName));
     }
     return copyOfMethods.build();
   }
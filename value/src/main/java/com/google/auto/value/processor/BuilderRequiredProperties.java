@@ -38,7 +38,9 @@ import java.util.stream.Stream;
  * Optional} properties. That means we must keep track of which ones have in fact been set. We do
  * that in two ways: for reference (non-primitive) types, we use {@code null} to indicate that the
  * value has not been set, while for primitive types we use a bitmask where each bit indicates
- * whether a certain primitive property has been set.
+ * whether a certain primitive property has been set. If there are more than 32 required properties,
+ * we use the bitmask for the reference properties too, so that {@code build()} can check whether
+ * everything has been set with one comparison for each 64 properties.
  *
  * <p>Additionally, for Kotlin constructors with default parameters, we track exactly which
  * properties have been set so we can invoke the constructor thas has a bitmask indicating the
@@ -69,6 +71,11 @@ public abstract class BuilderRequiredProperties {
   // matter. We isolate those bits with `&` operations similar to what was described for primitive
   // properties.  We also need the all-ones bitmask to implement a "copy constructor" builder, which
   // starts out with all properties set.
+  //
+  // When there are more than 32 required properties and no Kotlin defaults, there is a third way:
+  // we have one bit for every required property, primitive or not, and those bits are packed into
+  // long fields. Then the test for missing properties is just a comparison of each field against
+  // the all-ones bitmask, instead of a null check for every required reference property.
 
   /** All required properties. */
   final ImmutableSet<Property> requiredProperties;
@@ -86,17 +93,21 @@ public abstract class BuilderRequiredProperties {
    * fits the required number of bits, for example {@code byte} if there are ≤8 tracked properties.
    *
    * <p>If there are {@literal >32} tracked properties, we will pack them into as few integer fields
-   * as possible. For example if there are 75 tracked properties (this can happen) then we will put
-   * numbers 0 to 31 in an {@code int}, 32 to 63 in a second {@code int}, and 64 to 75 in a {@code
-   * short}.
-   *
-   * <p>When there are {@literal >32} tracked properties, we could potentially pack them better if
-   * we used {@code long}. But sometimes AutoValue code gets translated into JavaScript, which
-   * doesn't handle long values natively. By the time you have that many properties you are probably
-   * not going to notice the difference between 5 ints or 2 longs plus an int.
+   * as possible, each holding {@link #bitsPerField} bits, with the last one again being the
+   * smallest type that fits. Without Kotlin defaults, the fields are {@code long}. For example if
+   * there are 75 tracked properties then we will put numbers 0 to 63 in a {@code long} and 64 to 75
+   * in a {@code short}. Sometimes AutoValue code gets translated into JavaScript, which doesn't
+   * handle long values natively, but by the time you have that many properties the cost of a few
+   * emulated long operations is not going to be noticeable. With Kotlin defaults, the fields are at
+   * most {@code int}, because each one corresponds to one of the {@code int} bitmask parameters of
+   * the Kotlin constructor. Then 75 tracked properties would go into two {@code int} fields and a
+   * {@code short}.
    */
   final ImmutableList<BitmaskField> bitmaskFields;
 
+  /** The number of bits in each of the {@link #bitmaskFields} except maybe the last: 32 or 64. */
+  final int bitsPerField;
+
   /**
    * Represents a field in which we will record which tracked properties from a certain set have
    * been given a value.
@@ -134,8 +145,11 @@ public abstract class BuilderRequiredProperties {
   }
 
   private BuilderRequiredProperties(
-      ImmutableSet<Property> requiredProperties, ImmutableList<Property> trackedProperties) {
+      ImmutableSet<Property> requiredProperties,
+      ImmutableList<Property> trackedProperties,
+      int bitsPerField) {
     this.requiredProperties = requiredProperties;
+    this.bitsPerField = bitsPerField;
 
     int trackedCount = trackedProperties.size();
     this.trackedPropertyToIndex =
@@ -144,15 +158,17 @@ public abstract class BuilderRequiredProperties {
             .collect(toImmutableMap(trackedProperties::get, i -> i));
 
     this.bitmaskFields =
-        IntStream.range(0, IntMath.divide(trackedCount, 32, CEILING))
+        IntStream.range(0, IntMath.divide(trackedCount, bitsPerField, CEILING))
             .mapToObj(
                 i -> {
-                  int bitBase = i * 32;
+                  int bitBase = i * bitsPerField;
                   int remainingBits = trackedCount - bitBase;
-                  Class<?> type = classForBits(remainingBits);
+                  Class<?> type = classForBits(min(remainingBits, bitsPerField));
                   String name = "set$" + i;
                   String allSetBitmask =
-                      (remainingBits >= 32) ? "-1" : hex((1 << remainingBits) - 1);
+                      (remainingBits >= bitsPerField)
+                          ? "-1"
+                          : literal(type, (1L << remainingBits) - 1);
                   String allRequiredBitmask =
                       allRequiredBitmask(trackedProperties, bitBase, remainingBits);
                   return new BitmaskField(type, name, allSetBitmask, allRequiredBitmask);
@@ -188,6 +204,17 @@ public abstract class BuilderRequiredProperties {
         .collect(toImmutableList());
   }
 
+  /**
+   * Returns code to indicate that no tracked property has received a value. This is needed in a
+   * builder {@code clear()} or {@code reset()} method, which returns the builder to the state it
+   * had after the no-argument constructor.
+   */
+  public ImmutableList<String> getInitToNoneSet() {
+    return bitmaskFields.stream()
+        .map(field -> field.name + " = 0;")
+        .collect(toImmutableList());
+  }
+
   /**
    * Returns code to indicate that the given property has been set, if assigning to the property
    * field is not enough. For reference (non-primitive) properties, assignment <i>is</i> enough, but
@@ -198,9 +225,8 @@ public abstract class BuilderRequiredProperties {
     if (index == null) {
       return "";
     }
-    BitmaskField field = bitmaskFields.get(index / 32);
-    // This use-case is why Java reduces int shift amounts mod 32. :-)
-    return field.name + " |= " + cast(field.type, hex(1 << index)) + ";";
+    BitmaskField field = bitmaskFields.get(index / bitsPerField);
+    return field.name + " |= " + cast(field.type, bit(field, index)) + ";";
   }
 
   /**
@@ -228,8 +254,13 @@ public abstract class BuilderRequiredProperties {
     if (index == null) {
       return "this." + p + " == null";
     }
-    BitmaskField field = bitmaskFields.get(index / 32);
-    return "(" + field.name + " & " + hex(1 << index) + ") == 0";
+    BitmaskField field = bitmaskFields.get(index / bitsPerField);
+    return "(" + field.name + " & " + bit(field, index) + ") == 0";
+  }
+
+  /** The source representation of the bit for the property with the given index. */
+  private String bit(BitmaskField field, int index) {
+    return literal(field.type, 1L << (index % bitsPerField));
   }
 
   /**
@@ -244,16 +275,22 @@ public abstract class BuilderRequiredProperties {
    */
   public abstract String getDefaultedBitmaskParameters();
 
+  /** The smallest primitive integer type that has at least this many bits. */
+  private static Class<?> classForBits(int bits) {
+    return bits <= 8 ? byte.class : bits <= 16 ? short.class : bits <= 32 ? int.class : long.class;
+  }
+
   /**
-   * The smallest primitive integer type that has at least this many bits, or {@code int} if the
-   * number of bits is more than 32.
+   * The source representation of the given bits as a value of the given type. For {@code long},
+   * that is a hex literal with an {@code L} suffix. For the other types, it is an {@code int}
+   * literal using the low-order 32 bits, which might need a cast.
    */
-  private static Class<?> classForBits(int bits) {
-    return bits <= 8 ? byte.class : bits <= 16 ? short.class : int.class;
+  private static String literal(Class<?> type, long bits) {
+    return (type == long.class) ? hexLong(bits) : hex((int) bits);
   }
 
   private static String cast(Class<?> type, String number) {
-    return (type == int.class) ? number : ("(" + type + ") " + number);
+    return (type == int.class || type == long.class) ? number : ("(" + type + ") " + number);
   }
 
   @VisibleForTesting
@@ -272,10 +309,40 @@ public abstract class BuilderRequiredProperties {
     return "0x" + Integer.toHexString(number >>> 16) + "_" + pad + lowNybble;
   }
 
+  @VisibleForTesting
+  static String hexLong(long number) {
+    if (number >= 0 && number < 10) {
+      return number + "L";
+    }
+    String hex = Long.toHexString(number);
+    StringBuilder sb = new StringBuilder("0x");
+    for (int i = 0; i < hex.length(); i++) {
+      if (i > 0 && (hex.length() - i) % 4 == 0) {
+        sb.append('_');
+      }
+      sb.append(hex.charAt(i));
+    }
+    return sb.append('L').toString();
+  }
+
   /** Subclass for when there are no Kotlin default properties. */
   private static final class NoDefaults extends BuilderRequiredProperties {
     NoDefaults(ImmutableSet<Property> requiredProperties) {
-      super(requiredProperties, primitivePropertiesIn(requiredProperties));
+      super(
+          requiredProperties,
+          wide(requiredProperties)
+              ? requiredProperties.asList()
+              : primitivePropertiesIn(requiredProperties),
+          wide(requiredProperties) ? 64 : 32);
+    }
+
+    /**
+     * True if there are so many required properties that we should track all of them in {@code
+     * long} bitmasks, rather than tracking only primitive properties that way and using null checks
+     * for the others.
+     */
+    private static boolean wide(ImmutableSet<Property> requiredProperties) {
+      return requiredProperties.size() > 32;
     }
 
     private static ImmutableList<Property> primitivePropertiesIn(
@@ -289,7 +356,11 @@ public abstract class BuilderRequiredProperties {
       // We have to be a bit careful with sign-extension. If we're using a byte and
       // the mask is 0xff, then we'll write -1 instead. The comparison set$0 == 0xff
       // would always fail since the byte value gets sign-extended to 0xffff_ffff.
-      // We should also write -1 if this is not the last field.
+      // We should also write -1 if this is not the last field. A long field never needs sign
+      // extension, so then we only need -1 if the field is full.
+      if (remainingBits > 32 && remainingBits < bitsPerField) {
+        return hexLong((1L << remainingBits) - 1);
+      }
       boolean minusOne = remainingBits >= 32 || remainingBits == 16 || remainingBits == 8;
       return minusOne ? "-1" : hex((1 << remainingBits) - 1);
     }
@@ -321,7 +392,7 @@ public abstract class BuilderRequiredProperties {
     private final ImmutableList<Property> allProperties;
 
     WithDefaults(ImmutableSet<Property> allProperties, ImmutableSet<Property> requiredProperties) {
-      super(requiredProperties, allProperties.asList());
+      super(requiredProperties, allProperties.asList(), 32);
       this.allProperties = allProperties.asList();
     }
 
@@ -20,6 +20,7 @@ import static com.google.auto.value.processor.AutoValueishProcessor.hasAnnotatio
 import static com.google.auto.value.processor.AutoValueishProcessor.hasVisibleNoArgConstructor;
 import static com.google.auto.value.processor.AutoValueishProcessor.nullableAnnotationFor;
 import static com.google.auto.value.processor.ClassNames.AUTO_VALUE_BUILDER_NAME;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Sets.immutableEnumSet;
 import static java.util.stream.Collectors.toList;
@@ -354,6 +355,8 @@ class BuilderSpec {
 
       vars.builderPropertyBuilders =
           ImmutableMap.copyOf(classifier.propertyNameToPropertyBuilder());
+      vars.builderResetMethods =
+          classifier.resetMethods().stream().map(ResetMethod::new).collect(toImmutableList());
 
       ImmutableSet<Property> requiredProperties =
           vars.props.stream()
@@ -521,6 +524,35 @@ class BuilderSpec {
     }
   }
 
+  /**
+   * Information about a builder method like {@code Builder clear()} or {@code void reset()},
+   * referenced from the builder.vm template. The generated method puts every builder field back to
+   * its initial state, so the same builder can be used to build another instance.
+   */
+  public static class ResetMethod {
+    private final String access;
+    private final String name;
+    private final boolean returnsVoid;
+
+    ResetMethod(ExecutableElement method) {
+      this.access = SimpleMethod.access(method);
+      this.name = method.getSimpleName().toString();
+      this.returnsVoid = method.getReturnType().getKind().equals(TypeKind.VOID);
+    }
+
+    public String getAccess() {
+      return access;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean getReturnsVoid() {
+      return returnsVoid;
+    }
+  }
+
   /**
    * Returns a representation of the given {@code @AutoValue.Builder} class or interface. If the
    * class or interface has abstract methods that could not be part of any builder, emits error
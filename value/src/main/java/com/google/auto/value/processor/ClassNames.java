@@ -30,5 +30,11 @@ final class ClassNames {
   static final String AUTO_VALUE_BUILDER_NAME = AUTO_VALUE_NAME + ".Builder";
   static final String AUTO_BUILDER_NAME = AUTO_VALUE_PACKAGE_NAME + "AutoBuilder";
   static final String COPY_ANNOTATIONS_NAME = AUTO_VALUE_NAME + ".CopyAnnotations";
+  static final String CACHE_HASH_CODE_NAME = AUTO_VALUE_NAME + ".CacheHashCode";
+  static final String INTERN_NAME = AUTO_VALUE_NAME + ".Intern";
+  static final String LAZY_INIT_NAME =
+      "com".concat(".google.errorprone.annotations.concurrent.LazyInit"); // defeat shading
+  static final String GUAVA_MULTIMAP_NAME =
+      "com.".concat("google.common.collect.Multimap"); // defeat shading
   static final String KOTLIN_METADATA_NAME = "kot".concat("lin.Metadata"); // defeat shading
 }
@@ -15,14 +15,17 @@
  */
 package com.google.auto.value.processor;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
 
 import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -56,6 +59,17 @@ class PropertyBuilderClassifier {
   private final Predicate<String> propertyIsNullable;
   private final ImmutableMap<String, AnnotatedTypeMirror> propertyTypes;
   private final Nullables nullables;
+  private final AssignabilityCache assignabilityCache;
+
+  // Many property builders have the same type, such as ImmutableList.Builder, so we only look up
+  // the methods of each type once. Looking them up means visiting all inherited members, which is
+  // comparatively expensive.
+  private final Map<TypeElement, ImmutableMap<String, ExecutableElement>> noArgMethodsCache =
+      new HashMap<>();
+  private final Map<TypeElement, ImmutableMap<String, ExecutableElement>> oneArgMethodsCache =
+      new HashMap<>();
+  private final Map<TypeElement, ImmutableList<ExecutableElement>> addAllPutAllCache =
+      new HashMap<>();
 
   PropertyBuilderClassifier(
       ErrorReporter errorReporter,
@@ -64,7 +78,8 @@ class PropertyBuilderClassifier {
       BuilderMethodClassifier<?> builderMethodClassifier,
       Predicate<String> propertyIsNullable,
       ImmutableMap<String, AnnotatedTypeMirror> propertyTypes,
-      Nullables nullables) {
+      Nullables nullables,
+      AssignabilityCache assignabilityCache) {
     this.errorReporter = errorReporter;
     this.typeUtils = typeUtils;
     this.elementUtils = elementUtils;
@@ -72,6 +87,7 @@ class PropertyBuilderClassifier {
     this.propertyIsNullable = propertyIsNullable;
     this.propertyTypes = propertyTypes;
     this.nullables = nullables;
+    this.assignabilityCache = assignabilityCache;
   }
 
   /**
@@ -275,7 +291,7 @@ class PropertyBuilderClassifier {
     // something that can be assigned to Bar<String>.
     TypeMirror buildType =
         MethodSignature.asMemberOf(typeUtils, barBuilderDeclaredType, build).returnType().getType();
-    if (!typeUtils.isAssignable(buildType, barTypeMirror)) {
+    if (!assignabilityCache.isAssignable(buildType, barTypeMirror)) {
       errorReporter.reportError(
           method,
           "[AutoValueBuilderWrongType] Property builder for %s has type %s whose %s() method"
@@ -326,7 +342,7 @@ class PropertyBuilderClassifier {
     ExecutableElement toBuilder = barNoArgMethods.get("toBuilder");
     if (toBuilder != null
         && !toBuilder.getModifiers().contains(Modifier.STATIC)
-        && typeUtils.isAssignable(
+        && assignabilityCache.isAssignable(
             typeUtils.erasure(toBuilder.getReturnType()),
             typeUtils.erasure(barBuilderDeclaredType))) {
       builtToBuilder = toBuilder.getSimpleName().toString();
@@ -426,11 +442,11 @@ class PropertyBuilderClassifier {
   }
 
   private Map<String, ExecutableElement> noArgMethodsOf(TypeElement type) {
-    return methodsOf(type, 0);
+    return noArgMethodsCache.computeIfAbsent(type, t -> methodsOf(t, 0));
   }
 
   private ImmutableMap<String, ExecutableElement> oneArgumentMethodsOf(TypeElement type) {
-    return methodsOf(type, 1);
+    return oneArgMethodsCache.computeIfAbsent(type, t -> methodsOf(t, 1));
   }
 
   private ImmutableMap<String, ExecutableElement> methodsOf(TypeElement type, int argumentCount) {
@@ -470,12 +486,17 @@ class PropertyBuilderClassifier {
       TypeElement barBuilderTypeElement,
       DeclaredType barBuilderDeclaredType,
       TypeMirror barTypeMirror) {
-    return MoreElements.getLocalAndInheritedMethods(barBuilderTypeElement, typeUtils, elementUtils)
-        .stream()
-        .filter(
-            method ->
-                ADD_ALL_PUT_ALL.contains(method.getSimpleName().toString())
-                    && method.getParameters().size() == 1)
+    ImmutableList<ExecutableElement> candidates =
+        addAllPutAllCache.computeIfAbsent(
+            barBuilderTypeElement,
+            t ->
+                MoreElements.getLocalAndInheritedMethods(t, typeUtils, elementUtils).stream()
+                    .filter(
+                        method ->
+                            ADD_ALL_PUT_ALL.contains(method.getSimpleName().toString())
+                                && method.getParameters().size() == 1)
+                    .collect(toImmutableList()));
+    return candidates.stream()
         .filter(
             method -> {
               TypeMirror parameterType =
@@ -483,7 +504,7 @@ class PropertyBuilderClassifier {
                       .parameterTypes()
                       .get(0)
                       .getType();
-              return typeUtils.isAssignable(barTypeMirror, parameterType);
+              return assignabilityCache.isAssignable(barTypeMirror, parameterType);
             })
         .findFirst();
   }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.memoized;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import com.google.auto.value.extension.AutoValueExtension;
+import com.google.auto.value.extension.memoized.processor.MemoizeExtension;
+import com.google.auto.value.extension.toprettystring.processor.ToPrettyStringExtension;
+import com.google.auto.value.processor.AutoValueProcessor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.JavaFileObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the counters that {@code @Memoized} generates with the MemoizedStats option. */
+@RunWith(JUnit4.class)
+public class MemoizedStatsTest {
+  private static final String STATS_OPTION = "com.google.auto.value.MemoizedStats";
+
+  private static final JavaFileObject VALUE =
+      JavaFileObjects.forSourceLines(
+          "foo.bar.Value",
+          "package foo.bar;",
+          "",
+          "import com.google.auto.value.AutoValue;",
+          "import com.google.auto.value.extension.memoized.Memoized;",
+          "",
+          "@AutoValue",
+          "public abstract class Value {",
+          "  public abstract String string();",
+          "",
+          "  @Memoized",
+          "  public String upper() {",
+          "    return string().toUpperCase();",
+          "  }",
+          "",
+          "  @Memoized",
+          "  public String repeat(int times) {",
+          "    return string() + times;",
+          "  }",
+          "",
+          "  @Memoized(strategy = Memoized.Strategy.EAGER)",
+          "  public int length() {",
+          "    return string().length();",
+          "  }",
+          "}");
+
+  private static final JavaFileObject PRETTY_VALUE =
+      JavaFileObjects.forSourceLines(
+          "foo.bar.PrettyValue",
+          "package foo.bar;",
+          "",
+          "import com.google.auto.value.AutoValue;",
+          "import com.google.auto.value.extension.memoized.Memoized;",
+          "import com.google.auto.value.extension.toprettystring.ToPrettyString;",
+          "",
+          "@AutoValue",
+          "public abstract class PrettyValue {",
+          "  public abstract String string();",
+          "",
+          "  @Memoized",
+          "  public String upper() {",
+          "    return string().toUpperCase();",
+          "  }",
+          "",
+          "  @ToPrettyString",
+          "  abstract String toPrettyString();",
+          "}");
+
+  private static final JavaFileObject STATS_READER =
+      JavaFileObjects.forSourceLines(
+          "foo.bar.StatsReader",
+          "package foo.bar;",
+          "",
+          "import java.util.Map;",
+          "",
+          "public class StatsReader {",
+          "  public static Map<String, Long> stats() {",
+          "    return AutoValue_PrettyValue.memoizedStats();",
+          "  }",
+          "}");
+
+  private final Set<String> loadedClasses = new HashSet<>();
+
+  @After
+  public void clearProperty() {
+    System.clearProperty(STATS_OPTION);
+  }
+
+  @Test
+  public void countsCallsAndComputations() throws Exception {
+    System.setProperty(STATS_OPTION, "true");
+    Class<?> generated = load(compile("-A" + STATS_OPTION));
+    Object value = newValue(generated, "foo");
+    Method upper = valueMethod(generated, "upper");
+    Method repeat = valueMethod(generated, "repeat", int.class);
+    Method length = valueMethod(generated, "length");
+    for (int i = 0; i < 5; i++) {
+      assertThat(upper.invoke(value)).isEqualTo("FOO");
+      assertThat(repeat.invoke(value, i % 2)).isEqualTo("foo" + i % 2);
+    }
+    assertThat(length.invoke(value)).isEqualTo(3);
+
+    Map<String, Long> stats = stats(generated);
+    assertThat(stats).containsEntry("upper().calls", 5L);
+    assertThat(stats).containsEntry("upper().computations", 1L);
+    assertThat(stats).containsEntry("upper().hits", 4L);
+    assertThat(stats).containsEntry("repeat(int).calls", 5L);
+    assertThat(stats).containsEntry("repeat(int).computations", 2L);
+    assertThat(stats).containsEntry("repeat(int).hits", 3L);
+    assertThat(stats).containsEntry("length().calls", 1L);
+    assertThat(stats).containsEntry("length().computations", 1L);
+    assertThat(stats.get("upper().computeNanos")).isAtLeast(0L);
+    assertThat(loadedClasses).contains("foo.bar.AutoValue_Value$MemoizedStats$");
+  }
+
+  @Test
+  public void disabledAtRuntime() throws Exception {
+    Class<?> generated = load(compile("-A" + STATS_OPTION));
+    Object value = newValue(generated, "foo");
+    assertThat(valueMethod(generated, "upper").invoke(value)).isEqualTo("FOO");
+
+    assertThat(stats(generated)).isEmpty();
+    // The counters are in a holder class, which is never loaded.
+    assertThat(loadedClasses).doesNotContain("foo.bar.AutoValue_Value$MemoizedStats$");
+  }
+
+  @Test
+  public void reachableThroughFinalClass() throws Exception {
+    for (boolean memoizeFirst : new boolean[] {true, false}) {
+      System.setProperty(STATS_OPTION, "true");
+      ImmutableList<AutoValueExtension> extensions =
+          memoizeFirst
+              ? ImmutableList.of(new MemoizeExtension(), new ToPrettyStringExtension())
+              : ImmutableList.of(new ToPrettyStringExtension(), new MemoizeExtension());
+      Compilation compilation =
+          javac()
+              .withProcessors(new AutoValueProcessor(extensions))
+              .withOptions("-A" + STATS_OPTION)
+              .compile(PRETTY_VALUE, STATS_READER);
+      assertThat(compilation).succeededWithoutWarnings();
+      Class<?> reader = load(compilation, "foo.bar.StatsReader");
+
+      @SuppressWarnings("unchecked")
+      Map<String, Long> stats = (Map<String, Long>) reader.getMethod("stats").invoke(null);
+      assertThat(stats).containsEntry("upper().calls", 0L);
+    }
+  }
+
+  @Test
+  public void noOption() throws Exception {
+    Compilation compilation = compile();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Value")
+        .contentsAsUtf8String()
+        .doesNotContain("LongAdder");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.$AutoValue_Value")
+        .contentsAsUtf8String()
+        .doesNotContain("LongAdder");
+  }
+
+  @Test
+  public void optionFalse() {
+    Compilation compilation = compile("-A" + STATS_OPTION + "=false");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.$AutoValue_Value")
+        .contentsAsUtf8String()
+        .doesNotContain("LongAdder");
+  }
+
+  private static Compilation compile(String... options) {
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor(ImmutableList.of(new MemoizeExtension())))
+            .withOptions((Object[]) options)
+            .compile(VALUE);
+    assertThat(compilation).succeededWithoutWarnings();
+    return compilation;
+  }
+
+  /** Loads the compiled classes in a new class loader, and returns {@code AutoValue_Value}. */
+  private Class<?> load(Compilation compilation) throws Exception {
+    return load(compilation, "foo.bar.AutoValue_Value");
+  }
+
+  /** Loads the compiled classes in a new class loader, and returns the named one. */
+  private Class<?> load(Compilation compilation, String className) throws Exception {
+    Map<String, byte[]> classBytes = new HashMap<>();
+    for (JavaFileObject file : compilation.generatedFiles()) {
+      if (file.getKind().equals(JavaFileObject.Kind.CLASS)) {
+        String path = file.toUri().getPath();
+        String name =
+            path.substring(path.indexOf("foo/bar/"), path.length() - ".class".length())
+                .replace('/', '.');
+        try (InputStream in = file.openInputStream()) {
+          classBytes.put(name, ByteStreams.toByteArray(in));
+        } catch (IOException e) {
+          throw new AssertionError(e);
+        }
+      }
+    }
+    ClassLoader loader =
+        new ClassLoader(MemoizedStatsTest.class.getClassLoader()) {
+          @Override
+          protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classBytes.get(name);
+            if (bytes == null) {
+              throw new ClassNotFoundException(name);
+            }
+            loadedClasses.add(name);
+            return defineClass(name, bytes, 0, bytes.length);
+          }
+        };
+    return Class.forName(className, true, loader);
+  }
+
+  private static Object newValue(Class<?> generated, String string) throws Exception {
+    Constructor<?> constructor = generated.getDeclaredConstructor(String.class);
+    constructor.setAccessible(true);
+    return constructor.newInstance(string);
+  }
+
+  /** Returns a method of the public class {@code Value}, which reflection can call. */
+  private static Method valueMethod(Class<?> generated, String name, Class<?>... parameterTypes)
+      throws Exception {
+    return generated.getSuperclass().getSuperclass().getMethod(name, parameterTypes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Long> stats(Class<?> generated) throws Exception {
+    Method memoizedStats = generated.getDeclaredMethod("memoizedStats");
+    memoizedStats.setAccessible(true);
+    return (Map<String, Long>) memoizedStats.invoke(null);
+  }
+}
@@ -18,19 +18,38 @@ package com.google.auto.value.extension.memoized;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.Arrays.stream;
+import static java.util.Collections.nCopies;
+import static java.util.Collections.synchronizedList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.fail;
 
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.AutoValue.CopyAnnotations;
+import com.google.auto.value.extension.memoized.Memoized.Strategy;
 import com.google.auto.value.extension.memoized.MemoizedTest.HashCodeEqualsOptimization.EqualsCounter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.testing.SerializableTester;
 import com.google.errorprone.annotations.Immutable;
 import com.google.errorprone.annotations.ImmutableTypeParameter;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.AnnotatedType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -183,6 +202,62 @@ public class MemoizedTest {
 
   static final class SomeCheckedException extends Exception {}
 
+  @AutoValue
+  abstract static class StrategyValue<T> {
+    final AtomicInteger lockCount = new AtomicInteger();
+    final AtomicInteger compareAndSetCount = new AtomicInteger();
+    final AtomicInteger racyCount = new AtomicInteger();
+    final AtomicInteger racyNullableCount = new AtomicInteger();
+    final AtomicInteger lockPrimitiveCount = new AtomicInteger();
+
+    abstract T value();
+
+    @Memoized(strategy = Strategy.LOCK)
+    ImmutableList<T> lock() {
+      lockCount.incrementAndGet();
+      return ImmutableList.of(value());
+    }
+
+    @Memoized(strategy = Strategy.LOCK)
+    long lockPrimitive() {
+      return lockPrimitiveCount.incrementAndGet();
+    }
+
+    @Memoized(strategy = Strategy.COMPARE_AND_SET)
+    ImmutableList<T> compareAndSet() {
+      compareAndSetCount.incrementAndGet();
+      return ImmutableList.of(value());
+    }
+
+    @Memoized(strategy = Strategy.COMPARE_AND_SET)
+    String compareAndSetReturnsNull() {
+      return null;
+    }
+
+    @Memoized(strategy = Strategy.RACY)
+    String racy() {
+      return "racy " + racyCount.incrementAndGet();
+    }
+
+    @Memoized(strategy = Strategy.RACY)
+    @javax.annotation.Nullable
+    String racyNullable() {
+      racyNullableCount.incrementAndGet();
+      return null;
+    }
+
+    @Memoized
+    String defaultString() {
+      return "default " + value();
+    }
+
+    @Memoized
+    @Override
+    public String toString() {
+      return "strategy " + value();
+    }
+  }
+
   @AutoValue
   abstract static class ListValue<T extends Number, K> {
 
@@ -363,6 +438,388 @@ public class MemoizedTest {
     assertThat(value.counter().toStringCount).isEqualTo(1);
   }
 
+  @AutoValue
+  abstract static class ParameterValue {
+    final List<String> calls = synchronizedList(new ArrayList<>());
+
+    abstract String name();
+
+    @Memoized
+    String greeting(String salutation) {
+      calls.add("greeting " + salutation);
+      return salutation + " " + name();
+    }
+
+    @Memoized
+    String greeting(String salutation, int times) {
+      calls.add("greeting " + salutation + " " + times);
+      return salutation + " " + name() + " x" + times;
+    }
+
+    @Memoized(maxSize = 2)
+    ImmutableList<Integer> featuresFor(int version) {
+      calls.add("featuresFor " + version);
+      return ImmutableList.of(version, version + 1);
+    }
+
+    @Memoized
+    long square(long x) {
+      calls.add("square " + x);
+      return x * x;
+    }
+
+    @Memoized
+    @javax.annotation.Nullable
+    String nullableFor(@javax.annotation.Nullable String key) {
+      calls.add("nullableFor " + key);
+      return key == null ? null : key + "!";
+    }
+
+    @Memoized
+    String notNullableFor(String key) {
+      calls.add("notNullableFor " + key);
+      return null;
+    }
+
+    @Memoized
+    <T extends Comparable<T>> T max(T a, T b) {
+      calls.add("max " + a + " " + b);
+      return a.compareTo(b) >= 0 ? a : b;
+    }
+  }
+
+  @Test
+  public void parameters() {
+    ParameterValue value = new AutoValue_MemoizedTest_ParameterValue("Ann");
+    assertThat(value.greeting("Hello")).isEqualTo("Hello Ann");
+    assertThat(value.greeting("Hi")).isEqualTo("Hi Ann");
+    assertThat(value.greeting("Hello")).isEqualTo("Hello Ann");
+    assertThat(value.greeting("Hello", 2)).isEqualTo("Hello Ann x2");
+    assertThat(value.greeting("Hello", 2)).isEqualTo("Hello Ann x2");
+    assertThat(value.greeting("Hello", 3)).isEqualTo("Hello Ann x3");
+    assertThat(value.square(3)).isEqualTo(9);
+    assertThat(value.square(3)).isEqualTo(9);
+    assertThat(value.max("a", "b")).isEqualTo("b");
+    assertThat(value.max("a", "b")).isEqualTo("b");
+    assertThat(value.calls)
+        .containsExactly(
+            "greeting Hello",
+            "greeting Hi",
+            "greeting Hello 2",
+            "greeting Hello 3",
+            "square 3",
+            "max a b")
+        .inOrder();
+  }
+
+  @Test
+  public void parameters_evictsOldest() {
+    ParameterValue value = new AutoValue_MemoizedTest_ParameterValue("Ann");
+    ImmutableList<Integer> one = value.featuresFor(1);
+    assertThat(value.featuresFor(2)).containsExactly(2, 3).inOrder();
+    assertThat(value.featuresFor(1)).isSameInstanceAs(one);
+    assertThat(value.featuresFor(3)).containsExactly(3, 4).inOrder();
+    assertThat(value.featuresFor(2)).containsExactly(2, 3).inOrder();
+    assertThat(value.featuresFor(1)).isNotSameInstanceAs(one);
+    assertThat(value.calls)
+        .containsExactly("featuresFor 1", "featuresFor 2", "featuresFor 3", "featuresFor 1")
+        .inOrder();
+  }
+
+  @Test
+  public void parameters_nullable() {
+    ParameterValue value = new AutoValue_MemoizedTest_ParameterValue("Ann");
+    assertThat(value.nullableFor(null)).isNull();
+    assertThat(value.nullableFor(null)).isNull();
+    assertThat(value.nullableFor("x")).isEqualTo("x!");
+    assertThat(value.nullableFor("x")).isEqualTo("x!");
+    assertThat(value.calls).containsExactly("nullableFor null", "nullableFor x").inOrder();
+  }
+
+  @Test
+  public void parameters_notNullableButReturnsNull() {
+    ParameterValue value = new AutoValue_MemoizedTest_ParameterValue("Ann");
+    try {
+      value.notNullableFor("x");
+      fail();
+    } catch (NullPointerException expected) {
+      assertThat(expected).hasMessageThat().isEqualTo("notNullableFor() cannot return null");
+    }
+  }
+
+  @Test
+  public void parameters_concurrent() throws Exception {
+    ParameterValue value = new AutoValue_MemoizedTest_ParameterValue("Ann");
+    List<String> results = callConcurrently(() -> value.greeting("Hello"));
+    assertThat(results).containsExactlyElementsIn(nCopies(results.size(), "Hello Ann"));
+    assertThat(value.greeting("Hello")).isEqualTo("Hello Ann");
+  }
+
+  @AutoValue
+  abstract static class EagerValue implements Serializable {
+    static int routingKeyCount;
+    static int nullableCount;
+
+    abstract String region();
+
+    abstract int shard();
+
+    @Memoized(strategy = Strategy.EAGER)
+    String routingKey() {
+      routingKeyCount++;
+      return region() + "/" + shard();
+    }
+
+    @Memoized(strategy = Strategy.EAGER)
+    int routingKeyLength() {
+      return routingKey().length();
+    }
+
+    @Memoized(strategy = Strategy.EAGER)
+    @javax.annotation.Nullable
+    String nullable() {
+      nullableCount++;
+      return null;
+    }
+
+    @Memoized(strategy = Strategy.EAGER)
+    @Override
+    public abstract String toString();
+  }
+
+  @AutoValue
+  abstract static class EagerReturnsNull {
+    @Memoized(strategy = Strategy.EAGER)
+    String notNullable() {
+      return null;
+    }
+  }
+
+  @Test
+  public void eagerStrategy() throws ReflectiveOperationException {
+    EagerValue.routingKeyCount = 0;
+    EagerValue.nullableCount = 0;
+    EagerValue value = new AutoValue_MemoizedTest_EagerValue("eu", 3);
+    assertThat(EagerValue.routingKeyCount).isEqualTo(1);
+    assertThat(EagerValue.nullableCount).isEqualTo(1);
+    assertThat(value.routingKey()).isEqualTo("eu/3");
+    assertThat(value.routingKey()).isSameInstanceAs(value.routingKey());
+    assertThat(value.routingKeyLength()).isEqualTo(4);
+    assertThat(value.nullable()).isNull();
+    assertThat(value.toString()).isEqualTo("EagerValue{region=eu, shard=3}");
+    assertThat(EagerValue.routingKeyCount).isEqualTo(1);
+    assertThat(EagerValue.nullableCount).isEqualTo(1);
+
+    Field field = AutoValue_MemoizedTest_EagerValue.class.getDeclaredField("routingKey");
+    assertThat(Modifier.isFinal(field.getModifiers())).isTrue();
+    assertThat(Modifier.isVolatile(field.getModifiers())).isFalse();
+  }
+
+  @Test
+  public void eagerStrategy_serializable() {
+    EagerValue value = new AutoValue_MemoizedTest_EagerValue("eu", 3);
+    EagerValue copy = SerializableTester.reserializeAndAssert(value);
+    assertThat(copy.routingKey()).isEqualTo("eu/3");
+    assertThat(copy.routingKeyLength()).isEqualTo(4);
+  }
+
+  @Test
+  public void eagerStrategy_returnsNull() {
+    try {
+      new AutoValue_MemoizedTest_EagerReturnsNull();
+      fail();
+    } catch (NullPointerException expected) {
+      assertThat(expected).hasMessageThat().isEqualTo("notNullable() cannot return null");
+    }
+  }
+
+  @AutoValue
+  abstract static class ReferenceValue {
+    final AtomicInteger softCount = new AtomicInteger();
+    final AtomicInteger weakCount = new AtomicInteger();
+
+    abstract String name();
+
+    @Memoized(reference = Memoized.Reference.SOFT)
+    String soft() {
+      return "soft " + name() + " " + softCount.incrementAndGet();
+    }
+
+    @Memoized(reference = Memoized.Reference.WEAK, strategy = Strategy.LOCK)
+    Object weak() {
+      weakCount.incrementAndGet();
+      return new Object();
+    }
+
+    @Memoized(reference = Memoized.Reference.WEAK)
+    @Override
+    public abstract String toString();
+  }
+
+  @Test
+  public void softReference() throws ReflectiveOperationException {
+    ReferenceValue value = new AutoValue_MemoizedTest_ReferenceValue("x");
+    assertThat(value.soft()).isEqualTo("soft x 1");
+    assertThat(value.soft()).isSameInstanceAs(value.soft());
+    assertThat(value.softCount.get()).isEqualTo(1);
+    Field field = AutoValue_MemoizedTest_ReferenceValue.class.getDeclaredField("soft");
+    assertThat(field.getType()).isEqualTo(SoftReference.class);
+  }
+
+  @Test
+  public void weakReference_recomputedAfterClear() throws ReflectiveOperationException {
+    ReferenceValue value = new AutoValue_MemoizedTest_ReferenceValue("x");
+    Object weak = value.weak();
+    assertThat(value.weak()).isSameInstanceAs(weak);
+    assertThat(value.weakCount.get()).isEqualTo(1);
+
+    // Simulate the garbage collector clearing the reference.
+    Field field = AutoValue_MemoizedTest_ReferenceValue.class.getDeclaredField("weak");
+    field.setAccessible(true);
+    ((WeakReference<?>) field.get(value)).clear();
+    assertThat(value.weak()).isNotSameInstanceAs(weak);
+    assertThat(value.weakCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void weakReference_toString() {
+    ReferenceValue value = new AutoValue_MemoizedTest_ReferenceValue("x");
+    assertThat(value.toString()).isEqualTo("ReferenceValue{name=x}");
+    assertThat(value.toString()).isSameInstanceAs(value.toString());
+  }
+
+  @Test
+  public void lockStrategy() {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    assertThat(value.lock()).containsExactly("foo");
+    assertThat(value.lock()).isSameInstanceAs(value.lock());
+    assertThat(value.lockCount.get()).isEqualTo(1);
+    assertThat(value.lockPrimitive()).isEqualTo(1L);
+    assertThat(value.lockPrimitive()).isEqualTo(1L);
+    assertThat(value.lockPrimitiveCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void lockStrategy_concurrent() throws Exception {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    List<ImmutableList<String>> results = callConcurrently(value::lock);
+    for (ImmutableList<String> result : results) {
+      assertThat(result).isSameInstanceAs(results.get(0));
+    }
+    assertThat(value.lockCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void compareAndSetStrategy() {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    assertThat(value.compareAndSet()).containsExactly("foo");
+    assertThat(value.compareAndSet()).isSameInstanceAs(value.compareAndSet());
+    assertThat(value.compareAndSetCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void compareAndSetStrategy_concurrent() throws Exception {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    List<ImmutableList<String>> results = callConcurrently(value::compareAndSet);
+    // The method may be called more than once, but every caller sees the same stored instance.
+    for (ImmutableList<String> result : results) {
+      assertThat(result).isSameInstanceAs(results.get(0));
+    }
+    assertThat(value.compareAndSet()).isSameInstanceAs(results.get(0));
+  }
+
+  @Test
+  public void compareAndSetStrategy_returnsNull() {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    try {
+      value.compareAndSetReturnsNull();
+      fail();
+    } catch (NullPointerException expected) {
+      assertThat(expected)
+          .hasMessageThat()
+          .isEqualTo("compareAndSetReturnsNull() cannot return null");
+    }
+  }
+
+  @Test
+  public void racyStrategy() {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    assertThat(value.racy()).isEqualTo("racy 1");
+    assertThat(value.racy()).isEqualTo("racy 1");
+    assertThat(value.racyNullable()).isNull();
+    assertThat(value.racyNullable()).isNull();
+    assertThat(value.racyNullableCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void defaultStrategy() throws Exception {
+    StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> string;
+      synchronized (value) {
+        // toString() is stored without taking the monitor, but any other String result needs it.
+        assertThat(executor.submit(value::toString).get(10, SECONDS)).isEqualTo("strategy foo");
+        string = executor.submit(value::defaultString);
+        try {
+          string.get(100, MILLISECONDS);
+          fail();
+        } catch (TimeoutException expected) {
+        }
+      }
+      assertThat(string.get(10, SECONDS)).isEqualTo("default foo");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void stateBits() throws ReflectiveOperationException {
+    Field state = AutoValue_MemoizedTest_Value.class.getDeclaredField("memoizedState$");
+    assertThat(state.getType()).isEqualTo(int.class);
+    for (Field field : AutoValue_MemoizedTest_Value.class.getDeclaredFields()) {
+      assertThat(field.getType()).isNotEqualTo(boolean.class);
+    }
+  }
+
+  @Test
+  public void stateBits_mixedStrategies_concurrent() throws Exception {
+    // lockPrimitive() and racyNullable() set bits in the same word, one holding a lock and the
+    // other not, so a lost update would make lockPrimitive() compute its value again.
+    for (int i = 0; i < 20; i++) {
+      StrategyValue<String> value = new AutoValue_MemoizedTest_StrategyValue<>("foo");
+      List<Long> results =
+          callConcurrently(() -> value.racyNullable() == null ? value.lockPrimitive() : -1L);
+      assertThat(results).containsExactlyElementsIn(nCopies(results.size(), 1L));
+      assertThat(value.lockPrimitiveCount.get()).isEqualTo(1);
+    }
+  }
+
+  private static <T> List<T> callConcurrently(Callable<T> callable) throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<T>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return callable.call();
+                }));
+      }
+      start.countDown();
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void keywords() throws Exception {
     ValueWithKeywordName value =
@@ -61,9 +61,79 @@ public class MemoizedValidationTest {
   }
 
   @Test
-  public void parameters() {
-    assertThatMemoizeMethod("@Memoized String method(Object param) { return \"\"; }")
-        .hasError("@Memoized methods cannot have parameters");
+  public void parametersWithStrategy() {
+    assertThatMemoizeMethod(
+            "@Memoized(strategy = Memoized.Strategy.LOCK) String method(Object param) {"
+                + " return \"\"; }")
+        .hasError("@Memoized methods with parameters cannot specify a strategy");
+  }
+
+  @Test
+  public void parametersWithZeroMaxSize() {
+    assertThatMemoizeMethod("@Memoized(maxSize = 0) String method(int param) { return \"\"; }")
+        .hasError("@Memoized(maxSize) must be at least 1");
+  }
+
+  @Test
+  public void arrayParameter() {
+    assertThatMemoizeMethod("@Memoized String method(int[] param) { return \"\"; }")
+        .hasError("@Memoized methods cannot have array parameters");
+  }
+
+  @Test
+  public void varargsParameter() {
+    assertThatMemoizeMethod("@Memoized String method(String... param) { return \"\"; }")
+        .hasError("@Memoized methods cannot have array parameters");
+  }
+
+  @Test
+  public void maxSizeWithoutParameters() {
+    assertThatMemoizeMethod("@Memoized(maxSize = 4) String method() { return \"\"; }")
+        .hasError("@Memoized(maxSize) only applies to methods with parameters");
+  }
+
+  @Test
+  public void compareAndSetPrimitive() {
+    assertThatMemoizeMethod(
+            "@Memoized(strategy = Memoized.Strategy.COMPARE_AND_SET) int method() { return 1; }")
+        .hasError(
+            "@Memoized(strategy = COMPARE_AND_SET) requires a return type that is not primitive"
+                + " or @Nullable");
+  }
+
+  @Test
+  public void compareAndSetNullable() {
+    assertThatMemoizeMethod(
+            "@Memoized(strategy = Memoized.Strategy.COMPARE_AND_SET) @javax.annotation.Nullable"
+                + " String method() { return null; }")
+        .hasError(
+            "@Memoized(strategy = COMPARE_AND_SET) requires a return type that is not primitive"
+                + " or @Nullable");
+  }
+
+  @Test
+  public void eagerThrowsCheckedException() {
+    assertThatMemoizeMethod(
+            "@Memoized(strategy = Memoized.Strategy.EAGER) String method() throws Exception {"
+                + " return \"\"; }")
+        .hasError("@Memoized(strategy = EAGER) methods cannot throw checked exceptions");
+  }
+
+  @Test
+  public void softReferencePrimitive() {
+    assertThatMemoizeMethod(
+            "@Memoized(reference = Memoized.Reference.SOFT) int method() { return 1; }")
+        .hasError(
+            "@Memoized(reference = SOFT) requires a return type that is not primitive or"
+                + " @Nullable");
+  }
+
+  @Test
+  public void weakReferenceEager() {
+    assertThatMemoizeMethod(
+            "@Memoized(reference = Memoized.Reference.WEAK,"
+                + " strategy = Memoized.Strategy.EAGER) String method() { return \"\"; }")
+        .hasError("@Memoized(reference = WEAK) cannot be used with strategy = EAGER");
   }
 
   @Test
@@ -16,6 +16,7 @@
 package com.google.auto.value.extension.serializable.processor;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.lang.annotation.ElementType.TYPE_USE;
 import static org.junit.Assert.assertThrows;
 
 import com.google.auto.value.AutoValue;
@@ -23,12 +24,23 @@ import com.google.auto.value.extension.memoized.Memoized;
 import com.google.auto.value.extension.serializable.SerializableAutoValue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.primitives.Bytes;
 import com.google.common.testing.SerializableTester;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.annotation.Target;
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -450,6 +462,305 @@ public final class SerializableAutoValueExtensionTest {
     assertThat(reserialized).isEqualTo(complexType);
   }
 
+  @SerializableAutoValue(compact = true)
+  @AutoValue
+  abstract static class Compact<T extends Serializable> implements Serializable {
+    abstract boolean z();
+
+    abstract byte b();
+
+    abstract short s();
+
+    abstract char c();
+
+    abstract int i();
+
+    abstract long j();
+
+    abstract float f();
+
+    abstract double d();
+
+    @Nullable
+    abstract String string();
+
+    abstract Optional<T> optionalT();
+
+    abstract ImmutableList<Optional<String>> list();
+
+    static <T extends Serializable> Compact<T> create(
+        int i, @Nullable String string, Optional<T> optionalT) {
+      return new AutoValue_SerializableAutoValueExtensionTest_Compact<T>(
+          true,
+          (byte) 1,
+          (short) 2,
+          'c',
+          i,
+          4L,
+          5.0f,
+          6.0,
+          string,
+          optionalT,
+          ImmutableList.of(Optional.of("x"), Optional.of("y")));
+    }
+  }
+
+  /** The same as {@link Compact}, but with the default serial form. */
+  @SerializableAutoValue
+  @AutoValue
+  abstract static class NotCompact<T extends Serializable> implements Serializable {
+    abstract boolean z();
+
+    abstract byte b();
+
+    abstract short s();
+
+    abstract char c();
+
+    abstract int i();
+
+    abstract long j();
+
+    abstract float f();
+
+    abstract double d();
+
+    @Nullable
+    abstract String string();
+
+    abstract Optional<T> optionalT();
+
+    abstract ImmutableList<Optional<String>> list();
+
+    static <T extends Serializable> NotCompact<T> create(
+        int i, @Nullable String string, Optional<T> optionalT) {
+      return new AutoValue_SerializableAutoValueExtensionTest_NotCompact<T>(
+          true,
+          (byte) 1,
+          (short) 2,
+          'c',
+          i,
+          4L,
+          5.0f,
+          6.0,
+          string,
+          optionalT,
+          ImmutableList.of(Optional.of("x"), Optional.of("y")));
+    }
+  }
+
+  @Test
+  public void compact_allFieldsSerialized() {
+    Compact<Integer> compact = Compact.create(3, "foo", Optional.of(23));
+
+    Compact<Integer> reserialized = SerializableTester.reserialize(compact);
+
+    assertThat(reserialized).isEqualTo(compact);
+  }
+
+  @Test
+  public void compact_nullAndEmptySerialized() {
+    Compact<Integer> compact = Compact.create(3, null, Optional.empty());
+
+    Compact<Integer> reserialized = SerializableTester.reserialize(compact);
+
+    assertThat(reserialized).isEqualTo(compact);
+  }
+
+  @Test
+  public void compact_smallerThanDefault() throws Exception {
+    int compactSize = serializedSize(Compact.create(3, "foo", Optional.of(23)));
+    int defaultSize = serializedSize(NotCompact.create(3, "foo", Optional.of(23)));
+
+    assertThat(compactSize).isLessThan(defaultSize);
+  }
+
+  @SerializableAutoValue(compact = true)
+  @AutoValue
+  abstract static class CompactCollections<T extends Serializable> implements Serializable {
+    abstract ImmutableList<String> strings();
+
+    abstract ImmutableList<Optional<T>> optionals();
+
+    abstract ImmutableSet<Optional<String>> set();
+
+    abstract ImmutableMap<String, ImmutableList<Optional<Integer>>> map();
+
+    abstract ImmutableSetMultimap<String, Optional<String>> optionalMultimap();
+
+    abstract ImmutableMultimap<Integer, String> intMultimap();
+
+    @Nullable
+    abstract ImmutableList<String> nullableList();
+
+    abstract int[] ints();
+
+    abstract byte[] bytes();
+
+    @Nullable
+    abstract double[] nullableDoubles();
+
+    static <T extends Serializable> Builder<T> builder() {
+      return new AutoValue_SerializableAutoValueExtensionTest_CompactCollections.Builder<T>()
+          .setStrings(ImmutableList.of())
+          .setOptionals(ImmutableList.of())
+          .setSet(ImmutableSet.of())
+          .setMap(ImmutableMap.of())
+          .setOptionalMultimap(ImmutableSetMultimap.of())
+          .setIntMultimap(ImmutableMultimap.of())
+          .setInts(new int[0])
+          .setBytes(new byte[0]);
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder<T extends Serializable> {
+      abstract Builder<T> setStrings(ImmutableList<String> value);
+
+      abstract Builder<T> setOptionals(ImmutableList<Optional<T>> value);
+
+      abstract Builder<T> setSet(ImmutableSet<Optional<String>> value);
+
+      abstract Builder<T> setMap(ImmutableMap<String, ImmutableList<Optional<Integer>>> value);
+
+      abstract Builder<T> setOptionalMultimap(
+          ImmutableSetMultimap<String, Optional<String>> value);
+
+      abstract Builder<T> setIntMultimap(ImmutableMultimap<Integer, String> value);
+
+      abstract Builder<T> setNullableList(@Nullable ImmutableList<String> value);
+
+      abstract Builder<T> setInts(int[] value);
+
+      abstract Builder<T> setBytes(byte[] value);
+
+      abstract Builder<T> setNullableDoubles(@Nullable double[] value);
+
+      abstract CompactCollections<T> build();
+    }
+  }
+
+  @Test
+  public void compactCollections_allFieldsSerialized() {
+    CompactCollections<Integer> compact =
+        CompactCollections.<Integer>builder()
+            .setStrings(ImmutableList.of("a", "b"))
+            .setOptionals(ImmutableList.of(Optional.of(1), Optional.empty()))
+            .setSet(ImmutableSet.of(Optional.of("c"), Optional.empty()))
+            .setMap(
+                ImmutableMap.of(
+                    "d", ImmutableList.of(Optional.of(2)), "e", ImmutableList.of(Optional.empty())))
+            .setOptionalMultimap(
+                ImmutableSetMultimap.of(
+                    "f", Optional.of("g"), "f", Optional.empty(), "h", Optional.of("i")))
+            .setIntMultimap(ImmutableMultimap.of(3, "j", 3, "j", 4, "k"))
+            .setNullableList(ImmutableList.of("l"))
+            .setInts(new int[] {5, 6, 7})
+            .setBytes(new byte[] {8, 9})
+            .setNullableDoubles(new double[] {1.5})
+            .build();
+
+    CompactCollections<Integer> reserialized = SerializableTester.reserialize(compact);
+
+    assertThat(reserialized).isEqualTo(compact);
+    assertThat(reserialized.intMultimap()).isEqualTo(compact.intMultimap());
+  }
+
+  @Test
+  public void compactCollections_emptyAndNullSerialized() {
+    CompactCollections<Integer> compact = CompactCollections.<Integer>builder().build();
+
+    CompactCollections<Integer> reserialized = SerializableTester.reserialize(compact);
+
+    assertThat(reserialized).isEqualTo(compact);
+    assertThat(reserialized.nullableList()).isNull();
+    assertThat(reserialized.nullableDoubles()).isNull();
+  }
+
+  @Test
+  public void compactCollections_largerThanPreallocatedSerialized() {
+    ImmutableList.Builder<String> strings = ImmutableList.builder();
+    int[] ints = new int[5000];
+    byte[] bytes = new byte[5000];
+    for (int i = 0; i < 5000; i++) {
+      strings.add("s" + i);
+      ints[i] = i;
+      bytes[i] = (byte) i;
+    }
+    CompactCollections<Integer> compact =
+        CompactCollections.<Integer>builder()
+            .setStrings(strings.build())
+            .setInts(ints)
+            .setBytes(bytes)
+            .build();
+
+    CompactCollections<Integer> reserialized = SerializableTester.reserialize(compact);
+
+    assertThat(reserialized).isEqualTo(compact);
+  }
+
+  @Test
+  public void compactCollections_hugeLengthWithoutDataRejected() throws Exception {
+    byte[] marker = {0, 0, 0, 7, 0x55, 0x55, 0x55, 0x55, 0x55, 0x55, 0x55};
+    CompactCollections<Integer> compact =
+        CompactCollections.<Integer>builder().setBytes(Arrays.copyOfRange(marker, 4, 11)).build();
+    ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    try (ObjectOutputStream so = new ObjectOutputStream(bo)) {
+      so.writeObject(compact);
+    }
+    byte[] serialized = bo.toByteArray();
+    int lengthOffset = Bytes.indexOf(serialized, marker);
+    assertThat(lengthOffset).isAtLeast(0);
+    // Claim that the byte array has Integer.MAX_VALUE elements, with only seven in the stream.
+    serialized[lengthOffset] = 0x7f;
+    serialized[lengthOffset + 1] = (byte) 0xff;
+    serialized[lengthOffset + 2] = (byte) 0xff;
+    serialized[lengthOffset + 3] = (byte) 0xff;
+
+    try (ObjectInputStream si = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      assertThrows(IOException.class, si::readObject);
+    }
+  }
+
+  @Target(TYPE_USE)
+  @interface TypeAnnotation {}
+
+  @SerializableAutoValue(compact = true)
+  @AutoValue
+  abstract static class Annotated implements Serializable {
+    abstract ImmutableList<@TypeAnnotation String> strings();
+
+    abstract ImmutableMap<String, @TypeAnnotation Integer> map();
+  }
+
+  @SerializableAutoValue(compact = true)
+  @AutoValue
+  abstract static class Unannotated implements Serializable {
+    abstract ImmutableList<String> strings();
+
+    abstract ImmutableMap<String, Integer> map();
+  }
+
+  @Test
+  public void compact_schemaHashIgnoresTypeAnnotations() throws Exception {
+    assertThat(schemaHash(AutoValue_SerializableAutoValueExtensionTest_Annotated.class))
+        .isEqualTo(schemaHash(AutoValue_SerializableAutoValueExtensionTest_Unannotated.class));
+  }
+
+  private static int schemaHash(Class<?> autoValueClass) throws Exception {
+    Class<?> proxy = Class.forName(autoValueClass.getName() + "$Proxy$");
+    Field schemaHash = proxy.getDeclaredField("SCHEMA_HASH");
+    schemaHash.setAccessible(true);
+    return schemaHash.getInt(null);
+  }
+
+  private static int serializedSize(Object object) throws Exception {
+    ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    try (ObjectOutputStream so = new ObjectOutputStream(bo)) {
+      so.writeObject(object);
+    }
+    return bo.size();
+  }
+
   /**
    * Type that uses both {@code @SerializableAutoValue} and {@code @Memoized}, showing that the two
    * extensions work correctly together.
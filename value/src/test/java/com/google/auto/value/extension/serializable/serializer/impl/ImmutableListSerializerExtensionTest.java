@@ -118,4 +118,55 @@ public final class ImmutableListSerializerExtensionTest extends CompilationAbstr
                 "x.stream().map(%s.wrapper(value$ -> value$)).collect(%s.toImmutableList())",
                 FUNCTION_WITH_EXCEPTIONS, IMMUTABLE_LIST));
   }
+
+  @Test
+  public void getStreamingSerializer_nonImmutableList_emptyReturned() {
+    TypeMirror typeMirror = typeMirrorOf(String.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getStreamingSerializer(
+            typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+
+  @Test
+  public void getStreamingSerializer_immutableListWithSerializableContainedType_serializerReturned() {
+    fakeSerializerFactory.setReturnIdentitySerializer(true);
+    TypeMirror typeMirror = declaredTypeOf(ImmutableList.class, Integer.class);
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+
+    assertThat(serializer.isStreaming()).isTrue();
+    assertThat(serializer.isIdentity()).isTrue();
+  }
+
+  @Test
+  public void writeTo() {
+    TypeMirror typeMirror = declaredTypeOf(ImmutableList.class, Integer.class);
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+    CodeBlock actualCodeBlock = serializer.writeTo(CodeBlock.of("out"), CodeBlock.of("x"));
+
+    assertThat(actualCodeBlock.toString())
+        .isEqualTo(
+            String.join(
+                "\n",
+                IMMUTABLE_LIST + "<java.lang.Integer> collection$ = x;",
+                "if (collection$ == null) {",
+                "  out.writeInt(-1);",
+                "} else {",
+                "  out.writeInt(collection$.size());",
+                "  for (java.lang.Integer element$ : collection$) {",
+                "    out.writeObject(element$);",
+                "  }",
+                "}",
+                ""));
+  }
 }
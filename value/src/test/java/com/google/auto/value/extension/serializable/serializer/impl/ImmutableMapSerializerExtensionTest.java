@@ -136,4 +136,28 @@ public final class ImmutableMapSerializerExtensionTest extends CompilationAbstra
                 STRING,
                 STRING));
   }
+
+  @Test
+  public void getStreamingSerializer_immutableMap_serializerReturned() {
+    fakeSerializerFactory.setReturnIdentitySerializer(true);
+    TypeMirror typeMirror = declaredTypeOf(ImmutableMap.class, String.class, Integer.class);
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+
+    assertThat(serializer.isStreaming()).isTrue();
+  }
+
+  @Test
+  public void getStreamingSerializer_nonImmutableMap_emptyReturned() {
+    TypeMirror typeMirror = typeMirrorOf(String.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getStreamingSerializer(
+            typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
 }
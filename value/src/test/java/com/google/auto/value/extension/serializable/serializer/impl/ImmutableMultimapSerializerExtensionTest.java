@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.utils.CompilationAbstractTest;
+import com.google.auto.value.extension.serializable.serializer.utils.FakeSerializerFactory;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+import java.util.Optional;
+import javax.lang.model.type.TypeMirror;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ImmutableMultimapSerializerExtensionTest extends CompilationAbstractTest {
+
+  private ImmutableMultimapSerializerExtension extension;
+  private FakeSerializerFactory fakeSerializerFactory;
+
+  @Before
+  public void setUpExtension() {
+    extension = new ImmutableMultimapSerializerExtension();
+    fakeSerializerFactory = new FakeSerializerFactory();
+  }
+
+  @Test
+  public void getStreamingSerializer_immutableMultimaps_serializerReturned() {
+    for (Class<?> multimapClass :
+        new Class<?>[] {
+          ImmutableMultimap.class, ImmutableListMultimap.class, ImmutableSetMultimap.class
+        }) {
+      TypeMirror typeMirror = declaredTypeOf(multimapClass, String.class, Integer.class);
+
+      Serializer serializer =
+          extension
+              .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+              .get();
+
+      assertThat(serializer.isStreaming()).isTrue();
+    }
+  }
+
+  @Test
+  public void getStreamingSerializer_otherMultimap_emptyReturned() {
+    TypeMirror typeMirror = declaredTypeOf(Multimap.class, String.class, Integer.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getStreamingSerializer(
+            typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+
+  @Test
+  public void getSerializer_emptyReturned() {
+    TypeMirror typeMirror = declaredTypeOf(ImmutableMultimap.class, String.class, Integer.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.utils.CompilationAbstractTest;
+import com.google.auto.value.extension.serializable.serializer.utils.FakeSerializerFactory;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.CodeBlock;
+import java.util.Optional;
+import javax.lang.model.type.TypeMirror;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ImmutableSetSerializerExtensionTest extends CompilationAbstractTest {
+
+  private static final String IMMUTABLE_SET = "com.google.common.collect.ImmutableSet";
+
+  private ImmutableSetSerializerExtension extension;
+  private FakeSerializerFactory fakeSerializerFactory;
+
+  @Before
+  public void setUpExtension() {
+    extension = new ImmutableSetSerializerExtension();
+    fakeSerializerFactory = new FakeSerializerFactory();
+  }
+
+  @Test
+  public void getSerializer_immutableSet_emptyReturned() {
+    TypeMirror typeMirror = declaredTypeOf(ImmutableSet.class, Integer.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+
+  @Test
+  public void getStreamingSerializer_nonImmutableSet_emptyReturned() {
+    TypeMirror typeMirror = typeMirrorOf(String.class);
+
+    Optional<Serializer> actualSerializer =
+        extension.getStreamingSerializer(
+            typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+
+  @Test
+  public void readFrom() {
+    TypeMirror typeMirror = declaredTypeOf(ImmutableSet.class, Integer.class);
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+    CodeBlock actualCodeBlock = serializer.readFrom(CodeBlock.of("in"), CodeBlock.of("x"));
+
+    assertThat(serializer.isStreaming()).isTrue();
+    assertThat(actualCodeBlock.toString())
+        .isEqualTo(
+            String.join(
+                "\n",
+                "int size$ = in.readInt();",
+                "if (size$ < 0) {",
+                "  x = null;",
+                "} else {",
+                "  "
+                    + IMMUTABLE_SET
+                    + ".Builder<java.lang.Integer> builder$ = "
+                    + IMMUTABLE_SET
+                    + ".builderWithExpectedSize(java.lang.Math.min(size$, 1024));",
+                "  for (int i$ = 0; i$ < size$; i$++) {",
+                "    java.lang.Integer element$;",
+                "    element$ = (java.lang.Integer) in.readObject();",
+                "    builder$.add(element$);",
+                "  }",
+                "  x = builder$.build();",
+                "}",
+                ""));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.extension.serializable.serializer.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.auto.value.extension.serializable.serializer.interfaces.Serializer;
+import com.google.auto.value.extension.serializable.serializer.utils.CompilationAbstractTest;
+import com.google.auto.value.extension.serializable.serializer.utils.FakeSerializerFactory;
+import com.squareup.javapoet.CodeBlock;
+import java.util.Optional;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class PrimitiveArraySerializerExtensionTest extends CompilationAbstractTest {
+
+  private PrimitiveArraySerializerExtension extension;
+  private FakeSerializerFactory fakeSerializerFactory;
+
+  @Before
+  public void setUpExtension() {
+    extension = new PrimitiveArraySerializerExtension();
+    fakeSerializerFactory = new FakeSerializerFactory();
+  }
+
+  @Test
+  public void getStreamingSerializer_objectArray_emptyReturned() {
+    TypeMirror typeMirror = typeUtils.getArrayType(typeMirrorOf(String.class));
+
+    Optional<Serializer> actualSerializer =
+        extension.getStreamingSerializer(
+            typeMirror, fakeSerializerFactory, mockProcessingEnvironment);
+
+    assertThat(actualSerializer).isEmpty();
+  }
+
+  @Test
+  public void writeTo() {
+    TypeMirror typeMirror = typeUtils.getArrayType(typeUtils.getPrimitiveType(TypeKind.LONG));
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+    CodeBlock actualCodeBlock = serializer.writeTo(CodeBlock.of("out"), CodeBlock.of("x"));
+
+    assertThat(actualCodeBlock.toString())
+        .isEqualTo(
+            String.join(
+                "\n",
+                "long[] array$ = x;",
+                "if (array$ == null) {",
+                "  out.writeInt(-1);",
+                "} else {",
+                "  out.writeInt(array$.length);",
+                "  for (long element$ : array$) {",
+                "    out.writeLong(element$);",
+                "  }",
+                "}",
+                ""));
+  }
+
+  @Test
+  public void readFrom_bytes() {
+    TypeMirror typeMirror = typeUtils.getArrayType(typeUtils.getPrimitiveType(TypeKind.BYTE));
+
+    Serializer serializer =
+        extension
+            .getStreamingSerializer(typeMirror, fakeSerializerFactory, mockProcessingEnvironment)
+            .get();
+    CodeBlock actualCodeBlock = serializer.readFrom(CodeBlock.of("in"), CodeBlock.of("x"));
+
+    assertThat(actualCodeBlock.toString())
+        .isEqualTo(
+            String.join(
+                "\n",
+                "int length$ = in.readInt();",
+                "if (length$ < 0) {",
+                "  x = null;",
+                "} else {",
+                "  byte[] array$ = new byte[java.lang.Math.min(length$, 1024)];",
+                "  in.readFully(array$);",
+                "  while (array$.length < length$) {",
+                "    int read$ = array$.length;",
+                "    array$ = java.util.Arrays.copyOf(array$, "
+                    + "(int) java.lang.Math.min(length$, 2L * read$));",
+                "    in.readFully(array$, read$, array$.length - read$);",
+                "  }",
+                "  x = array$;",
+                "}",
+                ""));
+  }
+}
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.ImmutableIntArray;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -889,6 +890,271 @@ public class ToPrettyStringTest {
                 + "\n}");
   }
 
+  @AutoValue
+  abstract static class Appending {
+    static class HasAppendingToPrettyString {
+      @ToPrettyString
+      String toPrettyString() {
+        throw new AssertionError();
+      }
+
+      void toPrettyString(StringBuilder builder, int indentLevel) {
+        builder.append("appended\n").append(indentLevel);
+      }
+    }
+
+    abstract HasAppendingToPrettyString handWritten();
+
+    @Nullable
+    abstract Appending nested();
+
+    abstract ImmutableList<Appending> list();
+
+    @ToPrettyString
+    abstract String toPrettyString();
+
+    abstract void toPrettyString(StringBuilder builder, int indentLevel);
+  }
+
+  @Test
+  public void appending() {
+    Appending inner =
+        new AutoValue_ToPrettyStringTest_Appending(
+            new Appending.HasAppendingToPrettyString(), null, ImmutableList.of());
+    Appending valueType =
+        new AutoValue_ToPrettyStringTest_Appending(
+            new Appending.HasAppendingToPrettyString(), inner, ImmutableList.of(inner));
+
+    assertThat(valueType.toPrettyString())
+        .isEqualTo(
+            "Appending {"
+                + "\n  handWritten = appended"
+                + "\n1,"
+                + "\n  nested = Appending {"
+                + "\n    handWritten = appended"
+                + "\n2,"
+                + "\n    nested = null,"
+                + "\n    list = [],"
+                + "\n  },"
+                + "\n  list = ["
+                + "\n    Appending {"
+                + "\n      handWritten = appended"
+                + "\n3,"
+                + "\n      nested = null,"
+                + "\n      list = [],"
+                + "\n    },"
+                + "\n  ],"
+                + "\n}");
+  }
+
+  @Test
+  public void appending_toExistingBuilder() {
+    Appending valueType =
+        new AutoValue_ToPrettyStringTest_Appending(
+            new Appending.HasAppendingToPrettyString(), null, ImmutableList.of());
+    StringBuilder builder = new StringBuilder("prefix: ");
+
+    valueType.toPrettyString(builder, 2);
+
+    assertThat(builder.toString())
+        .isEqualTo(
+            "prefix: Appending {"
+                + "\n      handWritten = appended"
+                + "\n3,"
+                + "\n      nested = null,"
+                + "\n      list = [],"
+                + "\n    }");
+  }
+
+  @AutoValue
+  abstract static class Budgeted {
+    abstract ImmutableList<Integer> list();
+
+    abstract ImmutableList<ImmutableList<Integer>> nested();
+
+    abstract ImmutableMap<String, Integer> map();
+
+    abstract List<Integer> huge();
+
+    @ToPrettyString(maxElements = 2, maxDepth = 1)
+    abstract String toPrettyString();
+  }
+
+  /**
+   * A list that can only be partly traversed. The for-each loop fetches one element more than it
+   * prints before it stops.
+   */
+  private static final class HugeList extends AbstractList<Integer> {
+    @Override
+    public Integer get(int index) {
+      if (index > 2) {
+        throw new AssertionError(index);
+      }
+      return index;
+    }
+
+    @Override
+    public int size() {
+      return 500_000;
+    }
+  }
+
+  @Test
+  public void budgeted() {
+    Budgeted valueType =
+        new AutoValue_ToPrettyStringTest_Budgeted(
+            ImmutableList.of(1, 2, 3, 4, 5),
+            ImmutableList.of(ImmutableList.of(1), ImmutableList.of(), ImmutableList.of(2, 3)),
+            ImmutableMap.of("a", 1),
+            new HugeList());
+
+    assertThat(valueType.toPrettyString())
+        .isEqualTo(
+            "Budgeted {"
+                + "\n  list = ["
+                + "\n    1,"
+                + "\n    2,"
+                + "\n    ... (3 more)"
+                + "\n  ],"
+                + "\n  nested = ["
+                + "\n    [... (1 more)],"
+                + "\n    [],"
+                + "\n    ... (1 more)"
+                + "\n  ],"
+                + "\n  map = {"
+                + "\n    a: 1,"
+                + "\n  },"
+                + "\n  huge = ["
+                + "\n    0,"
+                + "\n    1,"
+                + "\n    ... (499998 more)"
+                + "\n  ],"
+                + "\n}");
+  }
+
+  @AutoValue
+  abstract static class CharBudget {
+    abstract List<String> strings();
+
+    @ToPrettyString(maxChars = 40)
+    abstract String toPrettyString();
+  }
+
+  @Test
+  public void charBudget() {
+    CharBudget valueType =
+        new AutoValue_ToPrettyStringTest_CharBudget(
+            Arrays.asList("abcdefghij", "klmnopqrst", "uvwxyz", "0123456789"));
+
+    assertThat(valueType.toPrettyString())
+        .isEqualTo(
+            "CharBudget {"
+                + "\n  strings = ["
+                + "\n    abcdefghij,"
+                + "\n    ... (3 more)"
+                + "\n  ],"
+                + "\n}");
+  }
+
+  @AutoValue
+  abstract static class NestedBudget {
+    abstract ImmutableList<Integer> list();
+
+    @ToPrettyString
+    abstract String toPrettyString();
+
+    abstract void toPrettyString(
+        StringBuilder builder, int indentLevel, PrettyStringBudget budget);
+  }
+
+  @AutoValue
+  abstract static class EnclosingBudget {
+    abstract NestedBudget nested();
+
+    abstract ImmutableList<NestedBudget> list();
+
+    @ToPrettyString(maxElements = 2)
+    abstract String toPrettyString();
+  }
+
+  @Test
+  public void nestedBudget() {
+    NestedBudget nested = new AutoValue_ToPrettyStringTest_NestedBudget(ImmutableList.of(1, 2, 3));
+    EnclosingBudget valueType =
+        new AutoValue_ToPrettyStringTest_EnclosingBudget(
+            nested, ImmutableList.of(nested, nested, nested));
+
+    assertThat(valueType.toPrettyString())
+        .isEqualTo(
+            "EnclosingBudget {"
+                + "\n  nested = NestedBudget {"
+                + "\n    list = ["
+                + "\n      1,"
+                + "\n      2,"
+                + "\n      ... (1 more)"
+                + "\n    ],"
+                + "\n  },"
+                + "\n  list = ["
+                + "\n    NestedBudget {"
+                + "\n      list = ["
+                + "\n        1,"
+                + "\n        2,"
+                + "\n        ... (1 more)"
+                + "\n      ],"
+                + "\n    },"
+                + "\n    NestedBudget {"
+                + "\n      list = ["
+                + "\n        1,"
+                + "\n        2,"
+                + "\n        ... (1 more)"
+                + "\n      ],"
+                + "\n    },"
+                + "\n    ... (1 more)"
+                + "\n  ],"
+                + "\n}");
+    // On its own, the nested value has no limits.
+    assertThat(nested.toPrettyString())
+        .isEqualTo("NestedBudget {\n  list = [\n    1,\n    2,\n    3,\n  ],\n}");
+  }
+
+  @AutoValue
+  abstract static class DepthBudget {
+    abstract ImmutableList<NestedBudget> nestedList();
+
+    abstract ImmutableMap<String, ImmutableMap<String, ImmutableList<Integer>>> maps();
+
+    @ToPrettyString(maxDepth = 2)
+    abstract String toPrettyString();
+  }
+
+  @Test
+  public void depthBudget_countsOnlyCollections() {
+    DepthBudget valueType =
+        new AutoValue_ToPrettyStringTest_DepthBudget(
+            ImmutableList.of(
+                new AutoValue_ToPrettyStringTest_NestedBudget(ImmutableList.of(1, 2, 3))),
+            ImmutableMap.of("a", ImmutableMap.of("b", ImmutableList.of(1, 2))));
+
+    assertThat(valueType.toPrettyString())
+        .isEqualTo(
+            "DepthBudget {"
+                + "\n  nestedList = ["
+                + "\n    NestedBudget {"
+                + "\n      list = ["
+                + "\n        1,"
+                + "\n        2,"
+                + "\n        3,"
+                + "\n      ],"
+                + "\n    },"
+                + "\n  ],"
+                + "\n  maps = {"
+                + "\n    a: {"
+                + "\n      b: [... (2 more)],"
+                + "\n    },"
+                + "\n  },"
+                + "\n}");
+  }
+
   @AutoValue
   abstract static class CollectionSubtypesWithFixedTypeParameters {
     static class StringList extends ArrayList<String> {}
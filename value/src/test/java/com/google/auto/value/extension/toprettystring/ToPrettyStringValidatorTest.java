@@ -230,6 +230,32 @@ public class ToPrettyStringValidatorTest {
         .onLineContaining("class Subclass");
   }
 
+  @Test
+  public void limitsCannotBeNegative() {
+    JavaFileObject file =
+        JavaFileObjects.forSourceLines(
+            "test.Test",
+            "package test;",
+            "",
+            "import com.google.auto.value.extension.toprettystring.ToPrettyString;",
+            "",
+            "class Test {",
+            "  @ToPrettyString(maxElements = -1)",
+            "  String toPretty() {",
+            "   return new String();",
+            "  }",
+            "}",
+            "");
+    Compilation compilation = compile(file);
+
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorCount(1);
+    assertThat(compilation)
+        .hadErrorContaining("maxElements cannot be negative")
+        .inFile(file)
+        .onLineContaining("String toPretty()");
+  }
+
   private static Compilation compile(JavaFileObject... javaFileObjects) {
     return javac().withProcessors(new ToPrettyStringValidator()).compile(javaFileObjects);
   }
@@ -85,12 +85,24 @@ public class AutoAnnotationCompilationTest {
             "  private static final long serialVersionUID = -7473814294717163169L;",
             "  private final MyEnum value;",
             "  private static final int defaultedValue = 23;",
+            "  private final transient int hashCode;",
             "",
             "  AutoAnnotation_AnnotationFactory_newMyAnnotation(MyEnum value) {",
             "    if (value == null) {",
             "      throw new NullPointerException(\"Null value\");",
             "    }",
             "    this.value = value;",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private AutoAnnotation_AnnotationFactory_newMyAnnotation(",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation original) {",
+            "    this.value = original.value;",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private Object readResolve() {",
+            "    return new AutoAnnotation_AnnotationFactory_newMyAnnotation(this);",
             "  }",
             "",
             "  @Override public Class<? extends MyAnnotation> annotationType() {",
@@ -115,6 +127,12 @@ public class AutoAnnotationCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation) {",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation that =",
+            "          (AutoAnnotation_AnnotationFactory_newMyAnnotation) o;",
+            "      return hashCode == that.hashCode",
+            "          && value.equals(that.value);",
+            "    }",
             "    if (o instanceof MyAnnotation) {",
             "      MyAnnotation that = (MyAnnotation) o;",
             "      return value.equals(that.value())",
@@ -124,6 +142,10 @@ public class AutoAnnotationCompilationTest {
             "  }",
             "",
             "  @Override public int hashCode() {",
+            "    return hashCode;",
+            "  }",
+            "",
+            "  private int computeHashCode() {",
             "    return ",
             "        " + invariableHash,
             "        + (" + 127 * "value".hashCode() + " ^ value.hashCode())",
@@ -254,12 +276,24 @@ public class AutoAnnotationCompilationTest {
                 + " Serializable {",
             "  private static final long serialVersionUID = -8116050813861599066L;",
             "  private final int[] value;",
+            "  private final transient int hashCode;",
             "",
             "  AutoAnnotation_AnnotationFactory_newMyAnnotation(int[] value) {",
             "    if (value == null) {",
             "      throw new NullPointerException(\"Null value\");",
             "    }",
             "    this.value = Arrays.copyOf(value, value.length);",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private AutoAnnotation_AnnotationFactory_newMyAnnotation(",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation original) {",
+            "    this.value = original.value;",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private Object readResolve() {",
+            "    return new AutoAnnotation_AnnotationFactory_newMyAnnotation(this);",
             "  }",
             "",
             "  @Override public Class<? extends MyAnnotation> annotationType() {",
@@ -280,17 +314,24 @@ public class AutoAnnotationCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation) {",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation that =",
+            "          (AutoAnnotation_AnnotationFactory_newMyAnnotation) o;",
+            "      return hashCode == that.hashCode",
+            "          && Arrays.equals(value, that.value);",
+            "    }",
             "    if (o instanceof MyAnnotation) {",
             "      MyAnnotation that = (MyAnnotation) o;",
-            "      return Arrays.equals(value,",
-            "          (that instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation)",
-            "              ? ((AutoAnnotation_AnnotationFactory_newMyAnnotation) that).value",
-            "              : that.value());",
+            "      return Arrays.equals(value, that.value());",
             "    }",
             "    return false;",
             "  }",
             "",
             "  @Override public int hashCode() {",
+            "    return hashCode;",
+            "  }",
+            "",
+            "  private int computeHashCode() {",
             "    return ",
             "        + (" + 127 * "value".hashCode() + " ^ Arrays.hashCode(value));",
             "  }",
@@ -367,6 +408,7 @@ public class AutoAnnotationCompilationTest {
             "  private static final long serialVersionUID = -2102364343628921304L;",
             "  private final int[] value;",
             "  private final MyEnum[] enums;",
+            "  private final transient int hashCode;",
             "",
             "  AutoAnnotation_AnnotationFactory_newMyAnnotation(",
             "      List<Integer> value,",
@@ -379,6 +421,18 @@ public class AutoAnnotationCompilationTest {
             "      throw new NullPointerException(\"Null enums\");",
             "    }",
             "    this.enums = enums.toArray(new MyEnum[0]);",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private AutoAnnotation_AnnotationFactory_newMyAnnotation(",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation original) {",
+            "    this.value = original.value;",
+            "    this.enums = original.enums;",
+            "    this.hashCode = computeHashCode();",
+            "  }",
+            "",
+            "  private Object readResolve() {",
+            "    return new AutoAnnotation_AnnotationFactory_newMyAnnotation(this);",
             "  }",
             "",
             "  @Override public Class<? extends MyAnnotation> annotationType() {",
@@ -407,21 +461,26 @@ public class AutoAnnotationCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation) {",
+            "      AutoAnnotation_AnnotationFactory_newMyAnnotation that =",
+            "          (AutoAnnotation_AnnotationFactory_newMyAnnotation) o;",
+            "      return hashCode == that.hashCode",
+            "          && Arrays.equals(value, that.value)",
+            "          && Arrays.equals(enums, that.enums);",
+            "    }",
             "    if (o instanceof MyAnnotation) {",
             "      MyAnnotation that = (MyAnnotation) o;",
-            "      return Arrays.equals(value,",
-            "          (that instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation)",
-            "              ? ((AutoAnnotation_AnnotationFactory_newMyAnnotation) that).value",
-            "              : that.value())",
-            "          && Arrays.equals(enums,",
-            "          (that instanceof AutoAnnotation_AnnotationFactory_newMyAnnotation)",
-            "              ? ((AutoAnnotation_AnnotationFactory_newMyAnnotation) that).enums",
-            "              : that.enums());",
+            "      return Arrays.equals(value, that.value())",
+            "          && Arrays.equals(enums, that.enums());",
             "    }",
             "    return false;",
             "  }",
             "",
             "  @Override public int hashCode() {",
+            "    return hashCode;",
+            "  }",
+            "",
+            "  private int computeHashCode() {",
             "    return ",
             "        + (" + 127 * "value".hashCode() + " ^ Arrays.hashCode(value))",
             "        + (" + 127 * "enums".hashCode() + " ^ Arrays.hashCode(enums));",
@@ -448,6 +507,49 @@ public class AutoAnnotationCompilationTest {
         .hasSourceEquivalentTo(expectedOutput);
   }
 
+  @Test
+  public void testGwtIntern() {
+    JavaFileObject myAnnotationJavaFile =
+        JavaFileObjects.forSourceLines(
+            "com.example.annotations.MyAnnotation",
+            "package com.example.annotations;",
+            "",
+            "import com.google.common.annotations.GwtCompatible;",
+            "",
+            "@GwtCompatible",
+            "public @interface MyAnnotation {",
+            "  int[] value();",
+            "}");
+    JavaFileObject gwtCompatibleJavaFile =
+        JavaFileObjects.forSourceLines(
+            "com.google.common.annotations.GwtCompatible",
+            "package com.google.common.annotations;",
+            "",
+            "public @interface GwtCompatible {}");
+    JavaFileObject annotationFactoryJavaFile =
+        JavaFileObjects.forSourceLines(
+            "com.example.factories.AnnotationFactory",
+            "package com.example.factories;",
+            "",
+            "import com.google.auto.value.AutoAnnotation;",
+            "import com.example.annotations.MyAnnotation;",
+            "",
+            "public class AnnotationFactory {",
+            "  @AutoAnnotation(intern = true)",
+            "  public static MyAnnotation newMyAnnotation(int[] value) {",
+            "    return AutoAnnotation_AnnotationFactory_newMyAnnotation.intern(value);",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoAnnotationProcessor())
+            .compile(annotationFactoryJavaFile, myAnnotationJavaFile, gwtCompatibleJavaFile);
+    assertThat(compilation)
+        .hadErrorContaining("cannot be used with a @GwtCompatible annotation")
+        .inFile(annotationFactoryJavaFile)
+        .onLineContaining("newMyAnnotation(int[] value)");
+  }
+
   @Test
   public void testMissingClass() {
     // Test that referring to an undefined annotation does not trigger @AutoAnnotation processing.
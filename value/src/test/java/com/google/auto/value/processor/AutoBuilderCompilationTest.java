@@ -78,19 +78,24 @@ public final class AutoBuilderCompilationTest {
           "  public Baz build() {",
           "    if (set$0 != 0x1",
           "          || this.aString == null) {",
-          "      StringBuilder missing = new StringBuilder();",
-          "      if ((set$0 & 0x1) == 0) {",
-          "        missing.append(\" anInt\");",
-          "      }",
-          "      if (this.aString == null) {",
-          "        missing.append(\" aString\");",
-          "      }",
-          "      throw new IllegalStateException(\"Missing required properties:\" + missing);",
+          "      throw new IllegalStateException(",
+          "          \"Missing required properties:\" + missingRequiredProperties$());",
           "    }",
           "    return new Baz(",
           "        this.anInt,",
           "        this.aString);",
           "  }",
+          "",
+          "  private String missingRequiredProperties$() {",
+          "    StringBuilder missing = new StringBuilder();",
+          "    if ((set$0 & 0x1) == 0) {",
+          "      missing.append(\" anInt\");",
+          "    }",
+          "    if (this.aString == null) {",
+          "      missing.append(\" aString\");",
+          "    }",
+          "    return missing.toString();",
+          "  }",
           "}");
 
   @Test
@@ -463,7 +463,140 @@ public class AutoOneOfCompilationTest {
   }
 
   @Test
-  public void mustBeClass() {
+  public void interfaceIsSealedWithRecords() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public sealed interface Pet permits AutoOneOf_Pet.Parent_ {",
+            "  public enum Kind {",
+            "    DOG,",
+            "    LEGS,",
+            "    NONE,",
+            "  }",
+            "  Kind getKind();",
+            "  String dog();",
+            "  int legs();",
+            "  void none();",
+            "}");
+    JavaFileObject expectedOutput =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.AutoOneOf_Pet",
+            "package foo.bar;",
+            "",
+            "import java.util.Objects;",
+            GeneratedImport.importGeneratedAnnotationType(),
+            "",
+            "@Generated(\"com.google.auto.value.processor.AutoOneOfProcessor\")",
+            "final class AutoOneOf_Pet {",
+            "  private AutoOneOf_Pet() {} // There are no instances of this type.",
+            "",
+            "  static Pet dog(String dog) {",
+            "    return new Impl_dog(dog);",
+            "  }",
+            "",
+            "  static Pet legs(int legs) {",
+            "    return new Impl_legs(legs);",
+            "  }",
+            "",
+            "  static Pet none() {",
+            "    return Impl_none.INSTANCE;",
+            "  }",
+            "",
+            "  sealed interface Parent_ extends Pet permits Impl_dog, Impl_legs, Impl_none {}",
+            "",
+            "  record Impl_dog(String dog) implements Parent_ {",
+            "    Impl_dog {",
+            "      Objects.requireNonNull(dog);",
+            "    }",
+            "",
+            "    @Override",
+            "    public String toString() {",
+            "      return \"Pet{dog=\" + this.dog + \"}\";",
+            "    }",
+            "",
+            "    @Override",
+            "    public int legs() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public void none() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public Pet.Kind getKind() {",
+            "      return Pet.Kind.DOG;",
+            "    }",
+            "  }",
+            "",
+            "  record Impl_legs(int legs) implements Parent_ {",
+            "    @Override",
+            "    public String toString() {",
+            "      return \"Pet{legs=\" + this.legs + \"}\";",
+            "    }",
+            "",
+            "    @Override",
+            "    public String dog() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public void none() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public Pet.Kind getKind() {",
+            "      return Pet.Kind.LEGS;",
+            "    }",
+            "  }",
+            "",
+            "  record Impl_none() implements Parent_ {",
+            "    static final Impl_none INSTANCE = new Impl_none();",
+            "",
+            "    @Override",
+            "    public void none() {}",
+            "",
+            "    @Override",
+            "    public String toString() {",
+            "      return \"Pet{none}\";",
+            "    }",
+            "",
+            "    @Override",
+            "    public String dog() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public int legs() {",
+            "      throw new UnsupportedOperationException(getKind().toString());",
+            "    }",
+            "",
+            "    @Override",
+            "    public Pet.Kind getKind() {",
+            "      return Pet.Kind.NONE;",
+            "    }",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoOneOfProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoOneOf_Pet")
+        .hasSourceEquivalentTo(expectedOutput);
+  }
+
+  @Test
+  public void interfaceBeforeSealedTypes() {
     JavaFileObject javaFileObject =
         JavaFileObjects.forSourceLines(
             "foo.bar.Pet",
@@ -481,12 +614,324 @@ public class AutoOneOfCompilationTest {
             "  String dog();",
             "  String cat();",
             "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoOneOfProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none", "--release", "11")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoOneOf_Pet")
+        .contentsAsUtf8String()
+        .contains("private abstract static class Parent_ implements Pet {");
+  }
+
+  @Test
+  public void matchMethod() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public abstract class Pet {",
+            "  public enum Kind {",
+            "    DOG,",
+            "    NONE,",
+            "  }",
+            "  public abstract Kind getKind();",
+            "  public abstract String dog();",
+            "  public abstract void none();",
+            "",
+            "  public interface Cases<R> {",
+            "    R dog(String name);",
+            "    R none();",
+            "  }",
+            "",
+            "  public interface IntCases {",
+            "    int dog(CharSequence name);",
+            "    int none();",
+            "  }",
+            "",
+            "  public abstract <R> R match(Cases<? extends R> cases);",
+            "  public abstract int matchInt(IntCases cases);",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoOneOfProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoOneOf_Pet")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:class Impl_dog .*"
+                + "public <R> R match\\(Pet\\.Cases<\\? extends R> cases\\) \\{\\s*"
+                + "return cases\\.dog\\(this\\.dog\\);\\s*}\\s*"
+                + "@Override\\s*"
+                + "public int matchInt\\(Pet\\.IntCases cases\\) \\{\\s*"
+                + "return cases\\.dog\\(this\\.dog\\);.*"
+                + "class Impl_none .*"
+                + "return cases\\.none\\(\\);)");
+  }
+
+  @Test
+  public void matchMethodMissingCase() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public abstract class Pet {",
+            "  public enum Kind {",
+            "    DOG,",
+            "    CAT,",
+            "  }",
+            "  public abstract Kind getKind();",
+            "  public abstract String dog();",
+            "  public abstract String cat();",
+            "",
+            "  public interface Cases<R> {",
+            "    R dog(String name);",
+            "    R gerbil(String name);",
+            "  }",
+            "",
+            "  public abstract <R> R match(Cases<R> cases);",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoOneOfProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining("Method gerbil in foo.bar.Pet.Cases does not correspond to a property")
+        .inFile(javaFileObject)
+        .onLineContaining("match(");
+    assertThat(compilation)
+        .hadErrorContaining("foo.bar.Pet.Cases has no method cat for the property of that name")
+        .inFile(javaFileObject)
+        .onLineContaining("match(");
+  }
+
+  @Test
+  public void matchMethodWrongTypes() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public abstract class Pet {",
+            "  public enum Kind {",
+            "    DOG,",
+            "    NONE,",
+            "  }",
+            "  public abstract Kind getKind();",
+            "  public abstract String dog();",
+            "  public abstract void none();",
+            "",
+            "  public interface LongCases {",
+            "    long dog(Integer name);",
+            "    String none();",
+            "  }",
+            "",
+            "  public abstract long matchLong(LongCases cases);",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoOneOfProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining(
+            "Method dog in foo.bar.Pet.LongCases must have one parameter that accepts"
+                + " java.lang.String")
+        .inFile(javaFileObject)
+        .onLineContaining("matchLong(");
+    assertThat(compilation)
+        .hadErrorContaining(
+            "Method none in foo.bar.Pet.LongCases returns java.lang.String, which matchLong"
+                + " cannot return")
+        .inFile(javaFileObject)
+        .onLineContaining("matchLong(");
+  }
+
+  @Test
+  public void compact() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "import java.io.Serializable;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public abstract class Pet implements Serializable {",
+            "  public enum Kind {",
+            "    DOG,",
+            "    LEGS,",
+            "    NONE,",
+            "  }",
+            "  public abstract Kind getKind();",
+            "  public abstract String dog();",
+            "  public abstract int legs();",
+            "  public abstract void none();",
+            "}");
+    JavaFileObject expectedOutput =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.AutoOneOf_Pet",
+            "package foo.bar;",
+            "",
+            "import java.util.Objects;",
+            GeneratedImport.importGeneratedAnnotationType(),
+            "",
+            "@Generated(\"com.google.auto.value.processor.AutoOneOfProcessor\")",
+            "final class AutoOneOf_Pet {",
+            "  private AutoOneOf_Pet() {} // There are no instances of this type.",
+            "",
+            "  static Pet dog(String dog) {",
+            "    Objects.requireNonNull(dog);",
+            "    return new Impl_(Pet.Kind.DOG, dog, 0L);",
+            "  }",
+            "",
+            "  static Pet legs(int legs) {",
+            "    return new Impl_(Pet.Kind.LEGS, null, legs);",
+            "  }",
+            "",
+            "  static Pet none() {",
+            "    return Impl_.INSTANCE_none;",
+            "  }",
+            "",
+            "  // The only implementation class. Its kind says which property is present.",
+            "  @SuppressWarnings(\"unchecked\") // casts of value to the current property type",
+            "  private static final class Impl_ extends Pet {",
+            "    // There is only one instance for this kind.",
+            "    static final Impl_ INSTANCE_none = new Impl_(Pet.Kind.NONE, null, 0L);",
+            "    private final Pet.Kind kind;",
+            "    private final Object value;",
+            "    private final long bits;",
+            "    private Impl_(Pet.Kind kind, Object value, long bits) {",
+            "      this.kind = kind;",
+            "      this.value = value;",
+            "      this.bits = bits;",
+            "    }",
+            "    @Override",
+            "    public Pet.Kind getKind() {",
+            "      return this.kind;",
+            "    }",
+            "    @Override",
+            "    public String dog() {",
+            "      if (this.kind != Pet.Kind.DOG) {",
+            "        throw new UnsupportedOperationException(this.kind.toString());",
+            "      }",
+            "      return ((String) this.value);",
+            "    }",
+            "    @Override",
+            "    public int legs() {",
+            "      if (this.kind != Pet.Kind.LEGS) {",
+            "        throw new UnsupportedOperationException(this.kind.toString());",
+            "      }",
+            "      return ((int) this.bits);",
+            "    }",
+            "    @Override",
+            "    public void none() {",
+            "      if (this.kind != Pet.Kind.NONE) {",
+            "        throw new UnsupportedOperationException(this.kind.toString());",
+            "      }",
+            "    }",
+            "    private Object readResolve() {",
+            "      if (this.kind == Pet.Kind.NONE) {",
+            "        return INSTANCE_none;",
+            "      }",
+            "      return this;",
+            "    }",
+            "    @Override",
+            "    public String toString() {",
+            "      if (this.kind == Pet.Kind.DOG) {",
+            "        return \"Pet{dog=\" + ((String) this.value) + \"}\";",
+            "      }",
+            "      if (this.kind == Pet.Kind.LEGS) {",
+            "        return \"Pet{legs=\" + ((int) this.bits) + \"}\";",
+            "      }",
+            "      return \"Pet{none}\";",
+            "    }",
+            "    @Override",
+            "    public boolean equals(Object x) {",
+            "      if (x == this) {",
+            "        return true;",
+            "      }",
+            "      if (!(x instanceof Pet)) {",
+            "        return false;",
+            "      }",
+            "      Pet that = (Pet) x;",
+            "      if (this.kind != that.getKind()) {",
+            "        return false;",
+            "      }",
+            "      if (this.kind == Pet.Kind.DOG) {",
+            "        return this.value.equals(that.dog());",
+            "      }",
+            "      if (this.kind == Pet.Kind.LEGS) {",
+            "        return ((int) this.bits) == that.legs();",
+            "      }",
+            "      return false;",
+            "    }",
+            "    @Override",
+            "    public int hashCode() {",
+            "      if (this.kind == Pet.Kind.DOG) {",
+            "        String dog = ((String) this.value);",
+            "        return dog.hashCode();",
+            "      }",
+            "      if (this.kind == Pet.Kind.LEGS) {",
+            "        int legs = ((int) this.bits);",
+            "        return legs;",
+            "      }",
+            "      return System.identityHashCode(this);",
+            "    }",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoOneOfProcessor())
+            .withOptions(
+                "-Xlint:-processing",
+                "-implicit:none",
+                "-A" + Nullables.NULLABLE_OPTION + "=",
+                "-A" + AutoOneOfProcessor.COMPACT_OPTION)
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoOneOf_Pet")
+        .hasSourceEquivalentTo(expectedOutput);
+  }
+
+  @Test
+  public void mustBeClassOrInterface() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Pet",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoOneOf;",
+            "",
+            "@AutoOneOf(Pet.Kind.class)",
+            "public enum Pet {",
+            "  DOG,",
+            "  CAT;",
+            "",
+            "  public enum Kind {",
+            "    DOG,",
+            "    CAT,",
+            "  }",
+            "}");
     Compilation compilation =
         javac().withProcessors(new AutoOneOfProcessor()).compile(javaFileObject);
     assertThat(compilation)
-        .hadErrorContaining("@AutoOneOf only applies to classes")
+        .hadErrorContaining("@AutoOneOf only applies to classes and interfaces")
         .inFile(javaFileObject)
-        .onLineContaining("interface Pet");
+        .onLineContaining("enum Pet");
   }
 
   @Test
@@ -27,10 +27,12 @@ import static java.util.stream.Collectors.joining;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
 import com.google.common.truth.Expect;
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.JavaFileObjects;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
@@ -46,6 +48,8 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import org.objectweb.asm.ClassReader;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -113,6 +117,10 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz that = (AutoValue_Baz) o;",
+            "      return this.buh == that.buh;",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz that = (Baz) o;",
             "      return this.buh == that.buh();",
@@ -137,6 +145,367 @@ public class AutoValueCompilationTest {
         .hasSourceEquivalentTo(expectedOutput);
   }
 
+  @Test
+  public void cacheHashCode() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import java.util.List;",
+            "",
+            "@AutoValue",
+            "@AutoValue.CacheHashCode",
+            "public abstract class Baz {",
+            "  public abstract long buh();",
+            "  public abstract List<String> strings();",
+            "",
+            "  public static Baz create(long buh, List<String> strings) {",
+            "    return new AutoValue_Baz(buh, strings);",
+            "  }",
+            "}");
+    JavaFileObject expectedOutput =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.AutoValue_Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.errorprone.annotations.concurrent.LazyInit;",
+            "import java.util.List;",
+            GeneratedImport.importGeneratedAnnotationType(),
+            "",
+            "@Generated(\"" + AutoValueProcessor.class.getName() + "\")",
+            "final class AutoValue_Baz extends Baz {",
+            "  private final long buh;",
+            "  private final List<String> strings;",
+            "",
+            "  @LazyInit private transient int hashCode$;",
+            "",
+            "  AutoValue_Baz(long buh, List<String> strings) {",
+            "    this.buh = buh;",
+            "    if (strings == null) {",
+            "      throw new NullPointerException(\"Null strings\");",
+            "    }",
+            "    this.strings = strings;",
+            "  }",
+            "",
+            "  @Override public long buh() {",
+            "    return buh;",
+            "  }",
+            "",
+            "  @Override public List<String> strings() {",
+            "    return strings;",
+            "  }",
+            "",
+            "  @Override public String toString() {",
+            "    return \"Baz{\"",
+            "        + \"buh=\" + buh + \", \"",
+            "        + \"strings=\" + strings",
+            "        + \"}\";",
+            "  }",
+            "",
+            "  @Override public boolean equals(Object o) {",
+            "    if (o == this) {",
+            "      return true;",
+            "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz that = (AutoValue_Baz) o;",
+            "      if (hashCode$ != 0 && that.hashCode$ != 0 && hashCode$ != that.hashCode$) {",
+            "        return false;",
+            "      }",
+            "      return this.buh == that.buh",
+            "          && this.strings.equals(that.strings);",
+            "    }",
+            "    if (o instanceof Baz) {",
+            "      Baz that = (Baz) o;",
+            "      return this.buh == that.buh()",
+            "          && this.strings.equals(that.strings());",
+            "    }",
+            "    return false;",
+            "  }",
+            "",
+            "  @Override public int hashCode() {",
+            "    int h$ = hashCode$;",
+            "    if (h$ != 0) {",
+            "      return h$;",
+            "    }",
+            "    h$ = 1;",
+            "    h$ *= 1000003;",
+            "    h$ ^= (int) ((buh >>> 32) ^ buh);",
+            "    h$ *= 1000003;",
+            "    h$ ^= strings.hashCode();",
+            "    hashCode$ = h$;",
+            "    return h$;",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-A" + Nullables.NULLABLE_OPTION + "=")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .hasSourceEquivalentTo(expectedOutput);
+  }
+
+  @Test
+  public void cacheHashCodeWithExplicitHashCode() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "@AutoValue.CacheHashCode",
+            "public abstract class Baz {",
+            "  public abstract String buh();",
+            "",
+            "  @Override public int hashCode() {",
+            "    return buh().length();",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .hadWarningContaining("@AutoValue.CacheHashCode has no effect")
+        .inFile(javaFileObject)
+        .onLineContaining("public abstract class Baz");
+  }
+
+  @Test
+  public void intern() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import java.io.Serializable;",
+            "",
+            "@AutoValue",
+            "@AutoValue.Intern",
+            "public abstract class Baz implements Serializable {",
+            "  public abstract String buh();",
+            "",
+            "  public static Builder builder() {",
+            "    return new AutoValue_Baz.Builder();",
+            "  }",
+            "",
+            "  @AutoValue.Builder",
+            "  public abstract static class Builder {",
+            "    public abstract Builder buh(String x);",
+            "    public abstract Baz build();",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .contains("static AutoValue_Baz intern(AutoValue_Baz instance) {");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:if \\(interned\\$ && o instanceof AutoValue_Baz"
+                + " && \\(\\(AutoValue_Baz\\) o\\)\\.interned\\$\\) \\{\\s*return false;)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch("(?s:Object readResolve\\(\\) \\{\\s*return AutoValue_Baz\\.intern\\(this\\);)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch("(?s:return AutoValue_Baz\\.intern\\(new AutoValue_Baz\\(\\s*this\\.buh\\)\\);)");
+  }
+
+  @Test
+  public void internNotGwtCompatible() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import com.google.common.annotations.GwtCompatible;",
+            "",
+            "@AutoValue",
+            "@AutoValue.Intern",
+            "@GwtCompatible",
+            "public abstract class Baz {",
+            "  public abstract String buh();",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining("@AutoValue.Intern cannot be used in a @GwtCompatible class")
+        .inFile(javaFileObject)
+        .onLineContaining("public abstract class Baz");
+  }
+
+  @Test
+  public void withers() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract int count();",
+            "  public abstract String name();",
+            "",
+            "  public abstract Baz withCount(int count);",
+            "  abstract Baz withName(String name);",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:public Baz withCount\\(int count\\) \\{\\s*"
+                + "if \\(count == this\\.count\\) \\{\\s*return this;\\s*\\}\\s*"
+                + "return new AutoValue_Baz\\(\\s*count,\\s*this\\.name\\);)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:Baz withName\\(String name\\) \\{.*"
+                + "if \\(name == this\\.name \\|\\| name\\.equals\\(this\\.name\\)\\) \\{\\s*"
+                + "return this;\\s*\\}\\s*"
+                + "return new AutoValue_Baz\\(\\s*this\\.count,\\s*name\\);)");
+  }
+
+  @Test
+  public void witherWrongTypes() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract int count();",
+            "  public abstract String name();",
+            "",
+            "  public abstract Baz withCount(long count);",
+            "  public abstract String withName(String name);",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining(
+            "Parameter type long of withCount is not assignable to int, the type of property count")
+        .inFile(javaFileObject)
+        .onLineContaining("withCount");
+    assertThat(compilation)
+        .hadErrorContaining("Method withName must return foo.bar.Baz")
+        .inFile(javaFileObject)
+        .onLineContaining("withName");
+  }
+
+  @Test
+  public void witherWithHandWrittenBuild() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract int count();",
+            "",
+            "  public abstract Baz withCount(int count);",
+            "",
+            "  @AutoValue.Builder",
+            "  public abstract static class Builder {",
+            "    public abstract Builder count(int count);",
+            "    abstract Baz autoBuild();",
+            "",
+            "    public Baz build() {",
+            "      Baz baz = autoBuild();",
+            "      if (baz.count() < 0) {",
+            "        throw new IllegalStateException();",
+            "      }",
+            "      return baz;",
+            "    }",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining(
+            "[AutoValueWitherBuild] Method withCount cannot be implemented because the builder has"
+                + " a build() method that AutoValue does not implement")
+        .inFile(javaFileObject)
+        .onLineContaining("withCount");
+  }
+
+  @Test
+  public void equalsComparesCheapPropertiesFirst() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import com.google.common.collect.ImmutableMap;",
+            "import java.util.List;",
+            "import java.util.concurrent.TimeUnit;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract List<String> list();",
+            "  public abstract String string();",
+            "  public abstract ImmutableMap<String, Integer> map();",
+            "  public abstract TimeUnit unit();",
+            "  public abstract float aFloat();",
+            "  public abstract int[] ints();",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:if \\(o != null && o\\.getClass\\(\\) == AutoValue_Baz\\.class\\) \\{\\s*"
+                + "AutoValue_Baz that = \\(AutoValue_Baz\\) o;\\s*"
+                + "return this\\.unit == that\\.unit\\s*"
+                + "&& Float\\.floatToIntBits\\(this\\.aFloat\\) == "
+                + "Float\\.floatToIntBits\\(that\\.aFloat\\)\\s*"
+                + "&& this\\.string\\.equals\\(that\\.string\\)\\s*"
+                + "&& this\\.list\\.equals\\(that\\.list\\)\\s*"
+                + "&& this\\.map\\.equals\\(that\\.map\\)\\s*"
+                + "&& Arrays\\.equals\\(this\\.ints, that\\.ints\\);)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .contains("return this.unit == that.unit()");
+  }
+
   @Test
   public void importTwoWays() {
     // Test that referring to the same class in two different ways does not confuse the import logic
@@ -210,11 +579,16 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz that = (AutoValue_Baz) o;",
+            "      return this.arrays.equals(that.arrays)",
+            "          && Arrays.equals(this.ints, that.ints);",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz that = (Baz) o;",
-            "      return Arrays.equals(this.ints, (that instanceof AutoValue_Baz) "
-                + "? ((AutoValue_Baz) that).ints : that.ints())",
-            "          && this.arrays.equals(that.arrays());",
+            "      return this.arrays.equals(that.arrays())",
+            "          && Arrays.equals(this.ints, (that instanceof AutoValue_Baz) "
+                + "? ((AutoValue_Baz) that).ints : that.ints());",
             "    }",
             "    return false;",
             "  }",
@@ -345,6 +719,10 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Nesty.class) {",
+            "      AutoValue_Nesty that = (AutoValue_Nesty) o;",
+            "      return this.inner.equals(that.inner);",
+            "    }",
             "    if (o instanceof Nesty) {",
             "      Nesty that = (Nesty) o;",
             "      return this.inner.equals(that.inner());",
@@ -566,7 +944,7 @@ public class AutoValueCompilationTest {
   }
 
   @Test
-  public void autoValueMustBeClass() {
+  public void autoValueInterfaceIsRecord() {
     JavaFileObject javaFileObject =
         JavaFileObjects.forSourceLines(
             "foo.bar.Baz",
@@ -577,13 +955,53 @@ public class AutoValueCompilationTest {
             "@AutoValue",
             "public interface Baz {",
             "  String buh();",
+            "  int count();",
+            "}");
+    JavaFileObject expectedOutput =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.AutoValue_Baz",
+            "package foo.bar;",
+            "",
+            GeneratedImport.importGeneratedAnnotationType(),
+            "",
+            "@Generated(\"" + AutoValueProcessor.class.getName() + "\")",
+            "record AutoValue_Baz(",
+            "    String buh,",
+            "    int count) implements Baz {",
+            "",
+            "  AutoValue_Baz {",
+            "    if (buh == null) {",
+            "      throw new NullPointerException(\"Null buh\");",
+            "    }",
+            "  }",
+            "",
+            "  @Override",
+            "  public String toString() {",
+            "    return \"Baz{\"",
+            "        + \"buh=\" + buh + \", \"",
+            "        + \"count=\" + count",
+            "        + \"}\";",
+            "  }",
+            "",
+            "  @Override",
+            "  public int hashCode() {",
+            "    int h$ = 1;",
+            "    h$ *= 1000003;",
+            "    h$ ^= buh.hashCode();",
+            "    h$ *= 1000003;",
+            "    h$ ^= count;",
+            "    return h$;",
+            "  }",
             "}");
     Compilation compilation =
-        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
     assertThat(compilation)
-        .hadErrorContaining("@AutoValue only applies to classes")
-        .inFile(javaFileObject)
-        .onLineContaining("interface Baz");
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .hasSourceEquivalentTo(expectedOutput);
   }
 
   @Test
@@ -790,7 +1208,7 @@ public class AutoValueCompilationTest {
   }
 
   @Test
-  public void annotationOnInterface() {
+  public void annotationOnInterfaceBeforeRecords() {
     JavaFileObject javaFileObject =
         JavaFileObjects.forSourceLines(
             "foo.bar.Baz",
@@ -799,13 +1217,49 @@ public class AutoValueCompilationTest {
             "import com.google.auto.value.AutoValue;",
             "",
             "@AutoValue",
-            "public interface Baz {}");
+            "public interface Baz {",
+            "  String buh();",
+            "}");
     Compilation compilation =
-        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none", "--release", "11")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
     assertThat(compilation)
-        .hadErrorContaining("AutoValue only applies to classes")
-        .inFile(javaFileObject)
-        .onLineContaining("interface Baz");
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .contains("final class AutoValue_Baz implements Baz {");
+  }
+
+  @Test
+  public void annotationOnInterfaceWithArrayProperty() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "public interface Baz {",
+            "  @SuppressWarnings(\"mutable\")",
+            "  int[] ints();",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    // A record would compare arrays by reference, so we need our own equals and hashCode.
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:record AutoValue_Baz\\(\\s*int\\[\\] ints\\) implements Baz \\{.*"
+                + "return Arrays\\.equals\\(this\\.ints, that\\.ints\\);.*"
+                + "h\\$ \\^= Arrays\\.hashCode\\(ints\\);)");
   }
 
   @Test
@@ -1235,9 +1689,21 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz<?> that = (AutoValue_Baz<?>) o;",
+            "      return this.anInt == that.anInt",
+            "          && this.anOptionalString.equals(that.anOptionalString)",
+            "          && this.aNestedAutoValue.equals(that.aNestedAutoValue)",
+            "          && Arrays.equals(this.aByteArray, that.aByteArray)",
+            "          && Arrays.equals(this.aNullableIntArray, that.aNullableIntArray)",
+            "          && this.aList.equals(that.aList)",
+            "          && this.anImmutableMap.equals(that.anImmutableMap);",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz<?> that = (Baz<?>) o;",
             "      return this.anInt == that.anInt()",
+            "          && this.anOptionalString.equals(that.anOptionalString())",
+            "          && this.aNestedAutoValue.equals(that.aNestedAutoValue())",
             "          && Arrays.equals(this.aByteArray, "
                 + "(that instanceof AutoValue_Baz) "
                 + "? ((AutoValue_Baz<?>) that).aByteArray : that.aByteArray())",
@@ -1245,9 +1711,7 @@ public class AutoValueCompilationTest {
                 + "(that instanceof AutoValue_Baz) "
                 + "? ((AutoValue_Baz<?>) that).aNullableIntArray : that.aNullableIntArray())",
             "          && this.aList.equals(that.aList())",
-            "          && this.anImmutableMap.equals(that.anImmutableMap())",
-            "          && this.anOptionalString.equals(that.anOptionalString())",
-            "          && this.aNestedAutoValue.equals(that.aNestedAutoValue());",
+            "          && this.anImmutableMap.equals(that.anImmutableMap());",
             "    }",
             "    return false;",
             "  }",
@@ -1428,17 +1892,8 @@ public class AutoValueCompilationTest {
             "      if (set$0 != 1",
             "          || this.aByteArray == null",
             "          || this.aList == null) {",
-            "        StringBuilder missing = new StringBuilder();",
-            "        if ((set$0 & 1) == 0) {",
-            "            missing.append(\" anInt\");",
-            "        }",
-            "        if (this.aByteArray == null) {",
-            "          missing.append(\" aByteArray\");",
-            "        }",
-            "        if (this.aList == null) {",
-            "          missing.append(\" aList\");",
-            "        }",
-            "        throw new IllegalStateException(\"Missing required properties:\" + missing);",
+            "        throw new IllegalStateException(",
+            "            \"Missing required properties:\" + missingRequiredProperties$());",
             "      }",
             "      return new AutoValue_Baz<T>(",
             "          this.anInt,",
@@ -1449,6 +1904,20 @@ public class AutoValueCompilationTest {
             "          this.anOptionalString,",
             "          this.aNestedAutoValue);",
             "    }",
+            "",
+            "    private String missingRequiredProperties$() {",
+            "      StringBuilder missing = new StringBuilder();",
+            "      if ((set$0 & 1) == 0) {",
+            "        missing.append(\" anInt\");",
+            "      }",
+            "      if (this.aByteArray == null) {",
+            "        missing.append(\" aByteArray\");",
+            "      }",
+            "      if (this.aList == null) {",
+            "        missing.append(\" aList\");",
+            "      }",
+            "      return missing.toString();",
+            "    }",
             "  }",
             "}");
     Compilation compilation =
@@ -1588,9 +2057,19 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz<?> that = (AutoValue_Baz<?>) o;",
+            "      return this.anInt == that.anInt",
+            "          && this.anOptionalString.equals(that.anOptionalString)",
+            "          && Arrays.equals(this.aByteArray, that.aByteArray)",
+            "          && Arrays.equals(this.aNullableIntArray, that.aNullableIntArray)",
+            "          && this.aList.equals(that.aList)",
+            "          && this.anImmutableMap.equals(that.anImmutableMap);",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz<?> that = (Baz<?>) o;",
             "      return this.anInt == that.anInt()",
+            "          && this.anOptionalString.equals(that.anOptionalString())",
             "          && Arrays.equals(this.aByteArray, "
                 + "(that instanceof AutoValue_Baz) "
                 + "? ((AutoValue_Baz<?>) that).aByteArray : that.aByteArray())",
@@ -1598,8 +2077,7 @@ public class AutoValueCompilationTest {
                 + "(that instanceof AutoValue_Baz) "
                 + "? ((AutoValue_Baz<?>) that).aNullableIntArray : that.aNullableIntArray())",
             "          && this.aList.equals(that.aList())",
-            "          && this.anImmutableMap.equals(that.anImmutableMap())",
-            "          && this.anOptionalString.equals(that.anOptionalString());",
+            "          && this.anImmutableMap.equals(that.anImmutableMap());",
             "    }",
             "    return false;",
             "  }",
@@ -1722,17 +2200,8 @@ public class AutoValueCompilationTest {
             "      if (set$0 != 1",
             "          || this.aByteArray == null",
             "          || this.aList == null) {",
-            "        StringBuilder missing = new StringBuilder();",
-            "        if ((set$0 & 1) == 0) {",
-            "            missing.append(\" anInt\");",
-            "        }",
-            "        if (this.aByteArray == null) {",
-            "          missing.append(\" aByteArray\");",
-            "        }",
-            "        if (this.aList == null) {",
-            "          missing.append(\" aList\");",
-            "        }",
-            "        throw new IllegalStateException(\"Missing required properties:\" + missing);",
+            "        throw new IllegalStateException(",
+            "            \"Missing required properties:\" + missingRequiredProperties$());",
             "      }",
             "      return new AutoValue_Baz<T>(",
             "          this.anInt,",
@@ -1742,6 +2211,20 @@ public class AutoValueCompilationTest {
             "          this.anImmutableMap,",
             "          this.anOptionalString);",
             "    }",
+            "",
+            "    private String missingRequiredProperties$() {",
+            "      StringBuilder missing = new StringBuilder();",
+            "      if ((set$0 & 1) == 0) {",
+            "        missing.append(\" anInt\");",
+            "      }",
+            "      if (this.aByteArray == null) {",
+            "        missing.append(\" aByteArray\");",
+            "      }",
+            "      if (this.aList == null) {",
+            "        missing.append(\" aList\");",
+            "      }",
+            "      return missing.toString();",
+            "    }",
             "  }",
             "}");
     Compilation compilation =
@@ -1758,6 +2241,359 @@ public class AutoValueCompilationTest {
         .hasSourceEquivalentTo(expectedOutput);
   }
 
+  @Test
+  public void copyOnWriteToBuilder() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import com.google.common.collect.ImmutableList;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract String name();",
+            "  public abstract ImmutableList<String> tags();",
+            "",
+            "  public abstract Builder toBuilder();",
+            "",
+            "  @AutoValue.Builder",
+            "  public abstract static class Builder {",
+            "    public abstract Builder name(String name);",
+            "    public abstract ImmutableList.Builder<String> tagsBuilder();",
+            "    public abstract Baz build();",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions(
+                "-Xlint:-processing",
+                "-implicit:none",
+                "-A" + AutoValueProcessor.COPY_ON_WRITE_TO_BUILDER_OPTION)
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch("(?s:Builder\\(Baz source\\) \\{\\s*this\\.source\\$ = source;\\s*\\})");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch("(?s:this\\.name = name;\\s*changed\\$0 \\|= 1;\\s*return this;)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:if \\(tagsBuilder\\$ == null\\) \\{\\s*"
+                + "if \\(source\\$ != null && \\(changed\\$0 & 2\\) == 0\\) \\{\\s*"
+                + "this\\.tags = source\\$\\.tags\\(\\);\\s*\\}\\s*"
+                + "changed\\$0 \\|= 2;)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:public Baz build\\(\\) \\{\\s*"
+                + "if \\(source\\$ != null\\) \\{\\s*"
+                + "if \\(changed\\$0 == 0\\) \\{\\s*return source\\$;\\s*\\}\\s*"
+                + "if \\(\\(changed\\$0 & 1\\) == 0\\) \\{\\s*"
+                + "this\\.name = source\\$\\.name\\(\\);\\s*\\}\\s*"
+                + "if \\(\\(changed\\$0 & 2\\) == 0\\) \\{\\s*"
+                + "this\\.tags = source\\$\\.tags\\(\\);\\s*\\}\\s*"
+                + "\\})");
+  }
+
+  @Test
+  public void builderResetMethod() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "import com.google.common.collect.ImmutableList;",
+            "import java.util.Optional;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract String name();",
+            "  public abstract int count();",
+            "  public abstract Optional<String> note();",
+            "  public abstract ImmutableList<String> tags();",
+            "",
+            "  @AutoValue.Builder",
+            "  public abstract static class Builder {",
+            "    public abstract Builder name(String name);",
+            "    public abstract Builder count(int count);",
+            "    public abstract Builder note(String note);",
+            "    public abstract ImmutableList.Builder<String> tagsBuilder();",
+            "    public abstract Builder clear();",
+            "    public abstract Baz build();",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:public Baz\\.Builder clear\\(\\) \\{\\s*"
+                + "this\\.name = null;\\s*"
+                + "this\\.note = Optional\\.empty\\(\\);\\s*"
+                + "tagsBuilder\\$ = null;\\s*"
+                + "this\\.tags = null;\\s*"
+                + "set\\$0 = 0;\\s*"
+                + "return this;\\s*\\})");
+  }
+
+  @Test
+  public void builderResetMethodWrongReturnType() {
+    JavaFileObject javaFileObject =
+        JavaFileObjects.forSourceLines(
+            "foo.bar.Baz",
+            "package foo.bar;",
+            "",
+            "import com.google.auto.value.AutoValue;",
+            "",
+            "@AutoValue",
+            "public abstract class Baz {",
+            "  public abstract String name();",
+            "",
+            "  @AutoValue.Builder",
+            "  public abstract static class Builder {",
+            "    public abstract Builder name(String name);",
+            "    public abstract boolean reset();",
+            "    public abstract Baz build();",
+            "  }",
+            "}");
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining("Method reset() must return void or foo.bar.Baz.Builder")
+        .inFile(javaFileObject)
+        .onLineContaining("reset()");
+  }
+
+  @Test
+  public void wideBuilderUsesLongBitmasks() throws IOException {
+    // With more than 32 required properties, every required property is tracked in a long
+    // bitmask, so build() only has one comparison per 64 properties. The message for missing
+    // properties is built in a separate method, which keeps build() small enough to be inlined.
+    int propertyCount = 200;
+    ImmutableList.Builder<String> lines = ImmutableList.builder();
+    lines.add(
+        "package foo.bar;",
+        "",
+        "import com.google.auto.value.AutoValue;",
+        "",
+        "@AutoValue",
+        "public abstract class Baz {");
+    for (int i = 0; i < propertyCount; i++) {
+      lines.add("  public abstract " + (i % 2 == 0 ? "String" : "int") + " p" + i + "();");
+    }
+    lines.add("", "  @AutoValue.Builder", "  public abstract static class Builder {");
+    for (int i = 0; i < propertyCount; i++) {
+      String type = i % 2 == 0 ? "String" : "int";
+      lines.add("    public abstract Builder p" + i + "(" + type + " x);");
+    }
+    lines.add("    public abstract Baz build();", "  }", "}");
+    JavaFileObject javaFileObject = JavaFileObjects.forSourceLines("foo.bar.Baz", lines.build());
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:private long set\\$0;\\s*"
+                + "private long set\\$1;\\s*"
+                + "private long set\\$2;\\s*"
+                + "private byte set\\$3;.*"
+                + "if \\(set\\$0 != -1\\s*"
+                + "\\|\\| set\\$1 != -1\\s*"
+                + "\\|\\| set\\$2 != -1\\s*"
+                + "\\|\\| set\\$3 != -1\\) \\{\\s*"
+                + "throw new IllegalStateException\\(\\s*"
+                + "\"Missing required properties:\" \\+ missingRequiredProperties\\$\\(\\)\\);)");
+
+    JavaFileObject builderClass =
+        compilation
+            .generatedFile(StandardLocation.CLASS_OUTPUT, "foo/bar/AutoValue_Baz$Builder.class")
+            .get();
+    byte[] bytes;
+    try (InputStream in = builderClass.openInputStream()) {
+      bytes = ByteStreams.toByteArray(in);
+    }
+    // Each property costs 4 bytes to pass to the constructor (aload_0, getfield). Before the
+    // properties were tracked in long words, build() also had an if-statement and a call to
+    // StringBuilder.append for each property, for more than 24 bytes per property.
+    int buildLength = codeLength(bytes, "build");
+    expect.that(buildLength).isAtLeast(4 * propertyCount);
+    expect.that(buildLength).isLessThan(5 * propertyCount);
+    expect.that(codeLength(bytes, "missingRequiredProperties$")).isGreaterThan(0);
+  }
+
+  @Test
+  public void largeClassConstructedFromBuilder() {
+    // 150 String and 150 long properties need 450 constructor parameter slots, which is more than
+    // the JVM allows, so the generated constructor takes the builder instead.
+    int propertyCount = 300;
+    ImmutableList.Builder<String> lines = ImmutableList.builder();
+    lines.add(
+        "package foo.bar;",
+        "",
+        "import com.google.auto.value.AutoValue;",
+        "",
+        "@AutoValue",
+        "public abstract class Baz {");
+    for (int i = 0; i < propertyCount; i++) {
+      lines.add("  public abstract " + (i % 2 == 0 ? "String" : "long") + " p" + i + "();");
+    }
+    lines.add(
+        "",
+        "  public abstract Baz withP0(String p0);",
+        "",
+        "  @AutoValue.Builder",
+        "  public abstract static class Builder {");
+    for (int i = 0; i < propertyCount; i++) {
+      String type = i % 2 == 0 ? "String" : "long";
+      lines.add("    public abstract Builder p" + i + "(" + type + " x);");
+    }
+    lines.add("    public abstract Baz build();", "  }", "}");
+    JavaFileObject javaFileObject = JavaFileObjects.forSourceLines("foo.bar.Baz", lines.build());
+    Compilation compilation =
+        javac()
+            .withProcessors(new AutoValueProcessor())
+            .withOptions("-Xlint:-processing", "-implicit:none")
+            .compile(javaFileObject);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:private AutoValue_Baz\\(Builder builder\\) \\{\\s*"
+                + "this\\.p0 = builder\\.p0;\\s*"
+                + "this\\.p1 = builder\\.p1;.*"
+                + "this\\.p299 = builder\\.p299;\\s*"
+                + "\\})");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch("(?s:Builder builder\\$ = new Builder\\(\\);\\s*builder\\$\\.p0 = p0;)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .contains("return new AutoValue_Baz(this);");
+    // With more than 64 properties, equals, hashCode, and toString delegate to a method for each
+    // group of 64.
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:return \"Baz\\{\"\\s*"
+                + "\\+ toString\\$0\\(\\) \\+ \", \"\\s*"
+                + "\\+ toString\\$1\\(\\) \\+ \", \".*"
+                + "\\+ toString\\$4\\(\\)\\s*"
+                + "\\+ \"\\}\";)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:return equalsFields\\$0\\(that\\)\\s*"
+                + "&& equalsFields\\$1\\(that\\).*"
+                + "&& equalsFields\\$4\\(that\\);.*"
+                + "return equalsThat\\$0\\(that\\)\\s*"
+                + "&& equalsThat\\$1\\(that\\).*"
+                + "&& equalsThat\\$4\\(that\\);)");
+    assertThat(compilation)
+        .generatedSourceFile("foo.bar.AutoValue_Baz")
+        .contentsAsUtf8String()
+        .containsMatch(
+            "(?s:int h\\$ = 1;\\s*"
+                + "h\\$ = hashCode\\$0\\(h\\$\\);\\s*"
+                + "h\\$ = hashCode\\$1\\(h\\$\\);.*"
+                + "h\\$ = hashCode\\$4\\(h\\$\\);\\s*"
+                + "return h\\$;\\s*\\}\\s*"
+                + "private int hashCode\\$0\\(int h\\$\\) \\{\\s*"
+                + "h\\$ \\*= 1000003;\\s*"
+                + "h\\$ \\^= p0\\.hashCode\\(\\);)");
+  }
+
+  @Test
+  public void largeClassWithoutBuilder() {
+    ImmutableList.Builder<String> lines = ImmutableList.builder();
+    lines.add(
+        "package foo.bar;",
+        "",
+        "import com.google.auto.value.AutoValue;",
+        "",
+        "@AutoValue",
+        "public abstract class Baz {");
+    for (int i = 0; i < 128; i++) {
+      lines.add("  public abstract long p" + i + "();");
+    }
+    lines.add("}");
+    JavaFileObject javaFileObject = JavaFileObjects.forSourceLines("foo.bar.Baz", lines.build());
+    Compilation compilation =
+        javac().withProcessors(new AutoValueProcessor()).compile(javaFileObject);
+    assertThat(compilation)
+        .hadErrorContaining(
+            "The properties of this class need 256 constructor parameter slots, but the limit is"
+                + " 254")
+        .inFile(javaFileObject)
+        .onLineContaining("class Baz");
+  }
+
+  /**
+   * Returns the number of bytes of bytecode in the method with the given name in the given class
+   * file, or 0 if there is no such method or it has no code.
+   */
+  private static int codeLength(byte[] classFile, String methodName) {
+    ClassReader reader = new ClassReader(classFile);
+    char[] buf = new char[reader.getMaxStringLength()];
+    // Skip access_flags, this_class, and super_class, then the interfaces and the fields.
+    int offset = reader.header + 6;
+    offset += 2 + 2 * reader.readUnsignedShort(offset);
+    offset = skipMembers(reader, offset);
+    int methodCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < methodCount; i++) {
+      String name = reader.readUTF8(offset + 2, buf);
+      int attributeCount = reader.readUnsignedShort(offset + 6);
+      offset += 8;
+      for (int j = 0; j < attributeCount; j++) {
+        String attributeName = reader.readUTF8(offset, buf);
+        if (name.equals(methodName) && attributeName.equals("Code")) {
+          // attribute_name_index, attribute_length, max_stack, max_locals, code_length.
+          return reader.readInt(offset + 10);
+        }
+        offset += 6 + reader.readInt(offset + 2);
+      }
+    }
+    return 0;
+  }
+
+  private static int skipMembers(ClassReader reader, int offset) {
+    int count = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      int attributeCount = reader.readUnsignedShort(offset + 6);
+      offset += 8;
+      for (int j = 0; j < attributeCount; j++) {
+        offset += 6 + reader.readInt(offset + 2);
+      }
+    }
+    return offset;
+  }
+
   @Test
   public void autoValueBuilderOnTopLevelClass() {
     JavaFileObject javaFileObject =
@@ -4135,6 +4971,10 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz that = (AutoValue_Baz) o;",
+            "      return this.aString.equals(that.aString);",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz that = (Baz) o;",
             "      return this.aString.equals(that.aString());",
@@ -4250,6 +5090,11 @@ public class AutoValueCompilationTest {
             "    if (o == this) {",
             "      return true;",
             "    }",
+            "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+            "      AutoValue_Baz that = (AutoValue_Baz) o;",
+            "      return (this.inner == null ? that.inner == null :"
+                + " this.inner.equals(that.inner));",
+            "    }",
             "    if (o instanceof Baz) {",
             "      Baz that = (Baz) o;",
             "      return (this.inner == null ? that.inner() == null :"
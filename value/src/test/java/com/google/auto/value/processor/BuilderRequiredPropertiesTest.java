@@ -59,22 +59,18 @@ public final class BuilderRequiredPropertiesTest {
     assertThat(fieldDeclarations(9)).containsExactly("private short set$0;");
     assertThat(fieldDeclarations(16)).containsExactly("private short set$0;");
     assertThat(fieldDeclarations(17)).containsExactly("private int set$0;");
-    assertThat(fieldDeclarations(32)).containsExactly("private int set$0;");
-    assertThat(fieldDeclarations(33)).containsExactly("private int set$0;", "private byte set$1;");
-    assertThat(fieldDeclarations(40)).containsExactly("private int set$0;", "private byte set$1;");
-    assertThat(fieldDeclarations(41)).containsExactly("private int set$0;", "private short set$1;");
-    assertThat(fieldDeclarations(48)).containsExactly("private int set$0;", "private short set$1;");
-    assertThat(fieldDeclarations(49)).containsExactly("private int set$0;", "private int set$1;");
-    assertThat(fieldDeclarations(64)).containsExactly("private int set$0;", "private int set$1;");
-    assertThat(fieldDeclarations(65))
-        .containsExactly("private int set$0;", "private int set$1;", "private byte set$2;");
+    assertThat(fieldDeclarations(31)).containsExactly("private int set$0;");
+    // From here on there are more than 32 required properties, counting the String one, so every
+    // required property is tracked in long fields.
+    assertThat(fieldDeclarations(32)).containsExactly("private long set$0;");
+    assertThat(fieldDeclarations(63)).containsExactly("private long set$0;");
+    assertThat(fieldDeclarations(64)).containsExactly("private long set$0;", "private byte set$1;");
+    assertThat(fieldDeclarations(79))
+        .containsExactly("private long set$0;", "private short set$1;");
+    assertThat(fieldDeclarations(80)).containsExactly("private long set$0;", "private int set$1;");
+    assertThat(fieldDeclarations(96)).containsExactly("private long set$0;", "private long set$1;");
     assertThat(fieldDeclarations(144))
-        .containsExactly(
-            "private int set$0;",
-            "private int set$1;",
-            "private int set$2;",
-            "private int set$3;",
-            "private short set$4;");
+        .containsExactly("private long set$0;", "private long set$1;", "private int set$2;");
   }
 
   private ImmutableList<String> fieldDeclarations(int size) {
@@ -90,13 +86,20 @@ public final class BuilderRequiredPropertiesTest {
     assertThat(initToAllSet(16)).containsExactly("set$0 = (short) 0xffff;");
     assertThat(initToAllSet(17)).containsExactly("set$0 = 0x1_ffff;");
     assertThat(initToAllSet(31)).containsExactly("set$0 = 0x7fff_ffff;");
-    assertThat(initToAllSet(32)).containsExactly("set$0 = -1;");
-    assertThat(initToAllSet(33)).containsExactly("set$0 = -1;", "set$1 = (byte) 1;");
-    assertThat(initToAllSet(63)).containsExactly("set$0 = -1;", "set$1 = 0x7fff_ffff;");
-    assertThat(initToAllSet(64)).containsExactly("set$0 = -1;", "set$1 = -1;");
+    assertThat(initToAllSet(32)).containsExactly("set$0 = 0x1_ffff_ffffL;");
+    assertThat(initToAllSet(33)).containsExactly("set$0 = 0x3_ffff_ffffL;");
+    assertThat(initToAllSet(63)).containsExactly("set$0 = -1;");
+    assertThat(initToAllSet(64)).containsExactly("set$0 = -1;", "set$1 = (byte) 1;");
     assertThat(initToAllSet(144))
-        .containsExactly(
-            "set$0 = -1;", "set$1 = -1;", "set$2 = -1;", "set$3 = -1;", "set$4 = (short) 0xffff;");
+        .containsExactly("set$0 = -1;", "set$1 = -1;", "set$2 = 0x1_ffff;");
+  }
+
+  @Test
+  public void initToNoneSet() {
+    assertThat(builderRequiredProperties(0).getInitToNoneSet()).isEmpty();
+    assertThat(builderRequiredProperties(8).getInitToNoneSet()).containsExactly("set$0 = 0;");
+    assertThat(builderRequiredProperties(64).getInitToNoneSet())
+        .containsExactly("set$0 = 0;", "set$1 = 0;");
   }
 
   private ImmutableList<String> initToAllSet(int size) {
@@ -136,26 +139,31 @@ public final class BuilderRequiredPropertiesTest {
 
   @Test
   public void markAsSet_int() {
-    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(32);
+    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(31);
     ImmutableList<Property> primitives = requiredPrimitiveProperties(builderRequiredProperties);
-    assertThat(primitives).hasSize(32);
+    assertThat(primitives).hasSize(31);
     assertThat(builderRequiredProperties.markAsSet(primitives.get(0))).isEqualTo("set$0 |= 1;");
-    assertThat(builderRequiredProperties.markAsSet(primitives.get(31)))
-        .isEqualTo("set$0 |= 0x8000_0000;");
+    assertThat(builderRequiredProperties.markAsSet(primitives.get(30)))
+        .isEqualTo("set$0 |= 0x4000_0000;");
   }
 
   @Test
-  public void markAsSet_intPlusByte() {
-    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(34);
+  public void markAsSet_long() {
+    // With more than 32 required properties, the String property is tracked too, as bit 0.
+    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(66);
+    Property stringProperty = builderRequiredProperties.getRequiredProperties().asList().get(0);
     ImmutableList<Property> primitives = requiredPrimitiveProperties(builderRequiredProperties);
-    assertThat(primitives).hasSize(34);
-    assertThat(builderRequiredProperties.markAsSet(primitives.get(0))).isEqualTo("set$0 |= 1;");
+    assertThat(primitives).hasSize(66);
+    assertThat(builderRequiredProperties.markAsSet(stringProperty)).isEqualTo("set$0 |= 1L;");
+    assertThat(builderRequiredProperties.markAsSet(primitives.get(0))).isEqualTo("set$0 |= 2L;");
     assertThat(builderRequiredProperties.markAsSet(primitives.get(31)))
-        .isEqualTo("set$0 |= 0x8000_0000;");
-    assertThat(builderRequiredProperties.markAsSet(primitives.get(32)))
+        .isEqualTo("set$0 |= 0x1_0000_0000L;");
+    assertThat(builderRequiredProperties.markAsSet(primitives.get(62)))
+        .isEqualTo("set$0 |= 0x8000_0000_0000_0000L;");
+    assertThat(builderRequiredProperties.markAsSet(primitives.get(63)))
         .isEqualTo("set$1 |= (byte) 1;");
-    assertThat(builderRequiredProperties.markAsSet(primitives.get(33)))
-        .isEqualTo("set$1 |= (byte) 2;");
+    assertThat(builderRequiredProperties.markAsSet(primitives.get(65)))
+        .isEqualTo("set$1 |= (byte) 4;");
   }
 
   @Test
@@ -191,36 +199,33 @@ public final class BuilderRequiredPropertiesTest {
 
   @Test
   public void missingRequiredProperty_int() {
-    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(32);
+    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(31);
     ImmutableList<Property> primitives = requiredPrimitiveProperties(builderRequiredProperties);
-    assertThat(primitives).hasSize(32);
+    assertThat(primitives).hasSize(31);
     assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(0)))
         .isEqualTo("(set$0 & 1) == 0");
-    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(31)))
-        .isEqualTo("(set$0 & 0x8000_0000) == 0");
+    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(30)))
+        .isEqualTo("(set$0 & 0x4000_0000) == 0");
   }
 
   @Test
-  public void missingRequiredProperty_intPlusByte() {
-    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(34);
+  public void missingRequiredProperty_long() {
+    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(66);
+    Property stringProperty = builderRequiredProperties.getRequiredProperties().asList().get(0);
     ImmutableList<Property> primitives = requiredPrimitiveProperties(builderRequiredProperties);
-    assertThat(primitives).hasSize(34);
-    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(0)))
-        .isEqualTo("(set$0 & 1) == 0");
+    assertThat(primitives).hasSize(66);
+    assertThat(builderRequiredProperties.missingRequiredProperty(stringProperty))
+        .isEqualTo("(set$0 & 1L) == 0");
     assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(31)))
-        .isEqualTo("(set$0 & 0x8000_0000) == 0");
-    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(32)))
+        .isEqualTo("(set$0 & 0x1_0000_0000L) == 0");
+    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(63)))
         .isEqualTo("(set$1 & 1) == 0");
-    assertThat(builderRequiredProperties.missingRequiredProperty(primitives.get(33)))
-        .isEqualTo("(set$1 & 2) == 0");
   }
 
   @Test
   public void noValueToGet_noDefaults() {
-    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(34);
-    ImmutableList<Property> primitives = requiredPrimitiveProperties(builderRequiredProperties);
-    assertThat(primitives).hasSize(34);
-    for (Property property : primitives) {
+    BuilderRequiredProperties builderRequiredProperties = builderRequiredProperties(66);
+    for (Property property : builderRequiredProperties.getRequiredProperties()) {
       assertWithMessage("For property %s", property)
           .that(builderRequiredProperties.noValueToGet(property))
           .isEqualTo(builderRequiredProperties.missingRequiredProperty(property));
@@ -254,12 +259,14 @@ public final class BuilderRequiredPropertiesTest {
         .isEqualTo("set$0 != 0x1_ffff\n|| this.string == null");
     assertThat(builderRequiredProperties(31).getAnyMissing())
         .isEqualTo("set$0 != 0x7fff_ffff\n|| this.string == null");
-    assertThat(builderRequiredProperties(32).getAnyMissing())
-        .isEqualTo("set$0 != -1\n|| this.string == null");
-    assertThat(builderRequiredProperties(33).getAnyMissing())
-        .isEqualTo("set$0 != -1\n|| set$1 != 1\n|| this.string == null");
+    assertThat(builderRequiredProperties(32).getAnyMissing()).isEqualTo("set$0 != 0x1_ffff_ffffL");
+    assertThat(builderRequiredProperties(63).getAnyMissing()).isEqualTo("set$0 != -1");
     assertThat(builderRequiredProperties(64).getAnyMissing())
-        .isEqualTo("set$0 != -1\n|| set$1 != -1\n|| this.string == null");
+        .isEqualTo("set$0 != -1\n|| set$1 != 1");
+    assertThat(builderRequiredProperties(79).getAnyMissing())
+        .isEqualTo("set$0 != -1\n|| set$1 != -1");
+    assertThat(builderRequiredProperties(100).getAnyMissing())
+        .isEqualTo("set$0 != -1\n|| set$1 != 0x1f_ffff_ffffL");
   }
 
   @Test
@@ -301,6 +308,18 @@ public final class BuilderRequiredPropertiesTest {
     assertThat(BuilderRequiredProperties.hex(0xffff_ffff)).isEqualTo("0xffff_ffff");
   }
 
+  @Test
+  public void hexLong() {
+    assertThat(BuilderRequiredProperties.hexLong(0x0)).isEqualTo("0L");
+    assertThat(BuilderRequiredProperties.hexLong(0x9)).isEqualTo("9L");
+    assertThat(BuilderRequiredProperties.hexLong(0xa)).isEqualTo("0xaL");
+    assertThat(BuilderRequiredProperties.hexLong(0xffff)).isEqualTo("0xffffL");
+    assertThat(BuilderRequiredProperties.hexLong(0x1_0000)).isEqualTo("0x1_0000L");
+    assertThat(BuilderRequiredProperties.hexLong(0x1_ffff_ffffL)).isEqualTo("0x1_ffff_ffffL");
+    assertThat(BuilderRequiredProperties.hexLong(0x8000_0000_0000_0000L))
+        .isEqualTo("0x8000_0000_0000_0000L");
+  }
+
   private ImmutableList<Property> requiredPrimitiveProperties(
       BuilderRequiredProperties builderRequiredProperties) {
     return builderRequiredProperties.getRequiredProperties().stream()
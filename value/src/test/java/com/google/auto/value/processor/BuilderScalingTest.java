@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.auto.value.processor;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.Reflection;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Checks that the work {@link AutoValueProcessor} does for a class with a builder grows linearly
+ * with the number of properties. Timing a compilation would be too noisy to be a reliable test, so
+ * instead we count the calls the processor makes to {@link Types} and {@link Elements}, plus the
+ * sizes of any collections those calls return. Each of those calls can be expensive, and code that
+ * makes one for every pair of properties or builder methods, or that asks for all the members of
+ * the builder once per property, quickly comes to dominate compilation time when there are
+ * hundreds of properties.
+ */
+@RunWith(JUnit4.class)
+public final class BuilderScalingTest {
+  private static final ImmutableList<String> PROPERTY_TYPES =
+      ImmutableList.of(
+          "String",
+          "int",
+          "long",
+          "Optional<String>",
+          "ImmutableList<String>",
+          "ImmutableSet<Integer>",
+          "double");
+
+  @Test
+  public void typeUtilityWorkGrowsLinearly() {
+    long small = typeUtilityWork(100);
+    long large = typeUtilityWork(1000);
+    // With 10 times as many properties we expect about 10 times as much work. If something is
+    // quadratic, we will see more like 100 times as much.
+    assertWithMessage("work for 100 properties: %s; for 1000 properties: %s", small, large)
+        .that(large)
+        .isLessThan(small * 15);
+  }
+
+  /**
+   * Compiles an {@code @AutoValue} class with the given number of properties and a builder, and
+   * returns the number of {@link Types} and {@link Elements} methods that the processor called plus
+   * the total size of the collections that they returned.
+   */
+  private static long typeUtilityWork(int propertyCount) {
+    AtomicLong work = new AtomicLong();
+    Processor original = new AutoValueProcessor();
+    InvocationHandler handler =
+        (proxy, method, args) -> {
+          if (method.getName().equals("init")) {
+            ProcessingEnvironment processingEnv = (ProcessingEnvironment) args[0];
+            args = new Object[] {countingProcessingEnvironment(processingEnv, work)};
+          }
+          return invoke(method, original, args);
+        };
+    Processor processor = Reflection.newProxy(Processor.class, handler);
+    Compilation compilation = javac().withProcessors(processor).compile(wideClass(propertyCount));
+    assertThat(compilation).succeededWithoutWarnings();
+    return work.get();
+  }
+
+  private static ProcessingEnvironment countingProcessingEnvironment(
+      ProcessingEnvironment original, AtomicLong work) {
+    Types types = countingProxy(Types.class, original.getTypeUtils(), work);
+    Elements elements = countingProxy(Elements.class, original.getElementUtils(), work);
+    InvocationHandler handler =
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getTypeUtils":
+              return types;
+            case "getElementUtils":
+              return elements;
+            default:
+              return invoke(method, original, args);
+          }
+        };
+    return Reflection.newProxy(ProcessingEnvironment.class, handler);
+  }
+
+  private static <T> T countingProxy(Class<T> type, T original, AtomicLong work) {
+    InvocationHandler handler =
+        (proxy, method, args) -> {
+          Object result = invoke(method, original, args);
+          work.addAndGet(result instanceof Collection<?> ? 1 + ((Collection<?>) result).size() : 1);
+          return result;
+        };
+    return Reflection.newProxy(type, handler);
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static JavaFileObject wideClass(int propertyCount) {
+    List<String> lines = new ArrayList<>();
+    lines.add("package foo.bar;");
+    lines.add("");
+    lines.add("import com.google.auto.value.AutoValue;");
+    lines.add("import com.google.common.collect.ImmutableList;");
+    lines.add("import com.google.common.collect.ImmutableSet;");
+    lines.add("import java.util.Collection;");
+    lines.add("import java.util.List;");
+    lines.add("import java.util.Optional;");
+    lines.add("");
+    lines.add("@AutoValue");
+    lines.add("public abstract class Wide {");
+    for (int i = 0; i < propertyCount; i++) {
+      lines.add("  public abstract " + propertyType(i) + " getP" + i + "();");
+    }
+    lines.add("");
+    lines.add("  public abstract Builder toBuilder();");
+    lines.add("");
+    lines.add("  @AutoValue.Builder");
+    lines.add("  public abstract static class Builder {");
+    for (int i = 0; i < propertyCount; i++) {
+      String type = propertyType(i);
+      String setter = "    public abstract Builder setP" + i;
+      switch (type) {
+        case "Optional<String>":
+          lines.add(setter + "(String x);");
+          lines.add(setter + "(Optional<String> x);");
+          break;
+        case "ImmutableList<String>":
+          lines.add(setter + "(List<String> x);");
+          lines.add("    public abstract ImmutableList.Builder<String> p" + i + "Builder();");
+          break;
+        case "ImmutableSet<Integer>":
+          lines.add(setter + "(Collection<Integer> x);");
+          lines.add(setter + "(Integer[] x);");
+          break;
+        default:
+          lines.add(setter + "(" + type + " x);");
+      }
+      if (i % 5 == 0) {
+        lines.add("    public abstract " + type + " getP" + i + "();");
+      }
+    }
+    lines.add("");
+    lines.add("    public abstract Wide build();");
+    lines.add("  }");
+    lines.add("}");
+    return JavaFileObjects.forSourceLines("foo.bar.Wide", lines);
+  }
+
+  private static String propertyType(int i) {
+    return PROPERTY_TYPES.get(i % PROPERTY_TYPES.size());
+  }
+}
@@ -229,6 +229,10 @@ public class PropertyAnnotationsTest {
                   "    if (o == this) {",
                   "      return true;",
                   "    }",
+                  "    if (o != null && o.getClass() == AutoValue_Baz.class) {",
+                  "      AutoValue_Baz that = (AutoValue_Baz) o;",
+                  "      return this.buh == that.buh;",
+                  "    }",
                   "    if (o instanceof Baz) {",
                   "      Baz that = (Baz) o;",
                   "      return this.buh == that.buh();",